@@ -0,0 +1,78 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    private int entries;
+
+    private final Git git = new Git();
+    private Path root;
+    private Path target;
+    private GitTreeEntry tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("git4j-bench");
+        File objectsFolder = root.resolve(".git").resolve("objects").toFile();
+        objectsFolder.mkdirs();
+        List<GitTreeEntry> objects = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            GitBlob blob = new GitBlob("content " + i + "\n");
+            git.serializeGitObjectToFile(objectsFolder, blob);
+            objects.add(new GitTreeEntry("100644", String.format("file-%06d.txt", i), git.getSha(blob)));
+        }
+        tree = new GitTreeEntry(objects);
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() throws IOException {
+        target = root.resolve("work");
+        Fixtures.deleteRecursively(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void checkout() {
+        git.checkout(tree, root, target);
+    }
+
+    @Benchmark
+    public void checkoutParallel() {
+        git.checkout(tree, root, target, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,75 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitCommit;
+import it.ethiclab.git4j.GitCommitGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitGraphBenchmark {
+
+    @Param({"1000", "20000"})
+    private int commits;
+
+    private final Git git = new Git();
+    private GitCommitGraph graph;
+    private byte[] root;
+    private byte[] head;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, GitCommit> store = new HashMap<>();
+        String parent = null;
+        for (int i = 0; i < commits; i++) {
+            GitCommit commit = Fixtures.commit(0);
+            commit.setMessage("commit " + i);
+            if (parent != null) {
+                commit.getParentCommits().add(parent);
+            }
+            parent = git.binaryToHex(git.getSha(commit));
+            store.put(parent, commit);
+            if (root == null) {
+                root = git.hexToBinary(parent);
+            }
+        }
+        head = git.hexToBinary(parent);
+        graph = GitCommitGraph.build(git, sha -> store.get(git.binaryToHex(sha)), Collections.singletonList(head));
+    }
+
+    @Benchmark
+    public boolean isAncestor() {
+        return graph.isAncestor(root, head);
+    }
+
+    @Benchmark
+    public List<byte[]> getMergeBases() {
+        return graph.getMergeBases(head, root);
+    }
+
+    @Benchmark
+    public List<byte[]> log() {
+        return graph.log(head);
+    }
+}
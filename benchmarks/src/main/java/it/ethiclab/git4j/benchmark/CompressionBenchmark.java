@@ -0,0 +1,42 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitBlob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"16", "1024", "65536", "4194304"})
+    private int size;
+
+    private final Git git = new Git();
+    private byte[] input;
+
+    @Setup
+    public void setUp() {
+        input = git.serialize(new GitBlob(Fixtures.content(size)));
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return git.compress(input);
+    }
+}
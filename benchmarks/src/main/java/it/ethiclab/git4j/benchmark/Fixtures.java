@@ -0,0 +1,66 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitCommit;
+import it.ethiclab.git4j.GitTreeEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static String content(int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append("Hello World ").append(random.nextInt(1000)).append("!\n");
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    static GitTreeEntry tree(Git git, int entries) {
+        List<GitTreeEntry> objects = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            objects.add(new GitTreeEntry("100644", String.format("file-%06d.txt", i), git.getBlobSha1("content " + i)));
+        }
+        return new GitTreeEntry(objects);
+    }
+
+    static GitCommit commit(int parents) {
+        GitCommit c = new GitCommit();
+        c.setMessage("Merge branch 'devel'");
+        c.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        c.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        c.setAuthoringDate(new Date(1496909724));
+        c.setCommitDate(new Date(1496909724));
+        c.setAuthoringTimezone("GMT+2");
+        c.setCommitTimezone("GMT+2");
+        for (int i = 0; i < parents; i++) {
+            c.getParentCommits().add("67dcda19177750b3047b28182f5dd3e1745cab67");
+        }
+        c.setTree("bf1d6d1bc9c9ca5295959c67222228c145e174c9");
+        return c;
+    }
+
+    static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        Files.walk(folder, FileVisitOption.FOLLOW_LINKS)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+}
@@ -0,0 +1,88 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitCommit;
+import it.ethiclab.git4j.GitGc;
+import it.ethiclab.git4j.GitGcStats;
+import it.ethiclab.git4j.GitLooseObjectStore;
+import it.ethiclab.git4j.GitRefDatabase;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GcBenchmark {
+
+    private static final int FILES = 200;
+
+    @Param({"2", "20"})
+    private int commits;
+
+    private final Git git = new Git();
+    private Path folder;
+    private File gitDir;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j-bench");
+        gitDir = folder.resolve(".git").toFile();
+        File objects = new File(gitDir, "objects");
+        objects.mkdirs();
+        new File(gitDir, "refs/heads").mkdirs();
+        Files.write(new File(gitDir, "HEAD").toPath(), "ref: refs/heads/master\n".getBytes(StandardCharsets.UTF_8));
+        GitLooseObjectStore store = new GitLooseObjectStore(git, objects);
+        String parent = null;
+        for (int c = 0; c < commits; c++) {
+            List<GitTreeEntry> files = new ArrayList<>();
+            for (int i = 0; i < FILES; i++) {
+                String content = i == c % FILES ? "commit " + c + "\n" : "file " + i + "\n" + Fixtures.content(1024);
+                files.add(new GitTreeEntry("100644", String.format("file-%06d.txt", i), git.write(store, new GitBlob(content))));
+            }
+            GitCommit commit = Fixtures.commit(0);
+            commit.setMessage("commit " + c);
+            commit.setTree(git.binaryToHex(git.write(store, new GitTreeEntry(files))));
+            if (parent != null) {
+                commit.getParentCommits().add(parent);
+            }
+            parent = git.binaryToHex(git.write(store, commit));
+        }
+        store.flush();
+        new GitRefDatabase(git, gitDir).compareAndSet("refs/heads/master", null, git.hexToBinary(parent));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public GitGcStats gc() {
+        return new GitGc(git, gitDir).run();
+    }
+}
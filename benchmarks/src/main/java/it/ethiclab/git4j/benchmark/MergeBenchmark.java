@@ -0,0 +1,80 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitArenaObjectStore;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitMerge;
+import it.ethiclab.git4j.GitMergeResult;
+import it.ethiclab.git4j.GitSnapshot;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+    private static final int FILES = 20;
+    private static final int LINES = 30;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private final Git git = new Git();
+    private final GitArenaObjectStore store = new GitArenaObjectStore();
+    private GitMerge merge;
+    private GitTreeEntry base;
+    private GitTreeEntry ours;
+    private GitTreeEntry theirs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        base = tree(-1, -1);
+        ours = tree(3, 2);
+        theirs = tree(25, 3);
+        merge = new GitMerge(git, store);
+        merge.setParallelism(parallelism);
+    }
+
+    private GitTreeEntry tree(int changed, int every) throws IOException {
+        List<GitTreeEntry> root = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            List<GitTreeEntry> files = new ArrayList<>();
+            for (int j = 0; j < FILES; j++) {
+                StringBuilder sb = new StringBuilder();
+                for (int k = 0; k < LINES; k++) {
+                    sb.append(k == changed && j % every == 0 ? "changed " + i + " " + j : "line " + k).append('\n');
+                }
+                files.add(new GitTreeEntry("100644", "file" + j, git.write(store, new GitBlob(sb.toString()))));
+            }
+            files.sort(GitTreeEntry.GIT_ORDER);
+            root.add(new GitTreeEntry(GitSnapshot.TREE_MODE, "dir" + i, git.write(store, new GitTreeEntry(files))));
+        }
+        root.sort(GitTreeEntry.GIT_ORDER);
+        return new GitTreeEntry(GitSnapshot.TREE_MODE, "", git.write(store, new GitTreeEntry(root)));
+    }
+
+    @Benchmark
+    public GitMergeResult merge() {
+        return merge.merge(base, ours, theirs);
+    }
+}
@@ -0,0 +1,63 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.GitObjectIdSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectIdSetBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int ids;
+
+    private byte[][] shas;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(5);
+        shas = new byte[ids][];
+        for (int i = 0; i < ids; i++) {
+            shas[i] = new byte[20];
+            random.nextBytes(shas[i]);
+        }
+    }
+
+    @Benchmark
+    public GitObjectIdSet objectIdSet() {
+        GitObjectIdSet set = new GitObjectIdSet(20, shas.length);
+        for (byte[] sha : shas) {
+            set.add(sha);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<ByteBuffer> hashSet() {
+        Set<ByteBuffer> set = new HashSet<>();
+        for (byte[] sha : shas) {
+            set.add(ByteBuffer.wrap(sha));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,69 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitPackIndex;
+import it.ethiclab.git4j.GitPackWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackIndexBenchmark {
+
+    @Param({"1000", "20000", "200000"})
+    private int objects;
+
+    private final Git git = new Git();
+    private Path folder;
+    private GitPackIndex index;
+    private byte[][] shas;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j-bench");
+        GitPackWriter writer = new GitPackWriter(git);
+        writer.setDeltaWindow(0);
+        shas = new byte[objects][];
+        for (int i = 0; i < objects; i++) {
+            GitBlob blob = new GitBlob("blob " + i);
+            writer.add(blob);
+            shas[i] = git.getSha(blob);
+        }
+        byte[] checksum = writer.write(folder.toFile());
+        index = new GitPackIndex(folder.resolve("pack-" + git.binaryToHex(checksum) + ".idx").toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public int find() {
+        byte[] sha = shas[next];
+        next = next + 1 == shas.length ? 0 : next + 1;
+        return index.find(sha);
+    }
+}
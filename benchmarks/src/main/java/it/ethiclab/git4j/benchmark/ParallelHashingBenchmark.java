@@ -0,0 +1,53 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelHashingBenchmark {
+
+    private static final int OBJECTS = 20000;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private final Git git = new Git();
+    private List<GitObject> objects;
+
+    @Setup
+    public void setUp() {
+        String content = Fixtures.content(3328);
+        objects = new ArrayList<>(OBJECTS);
+        for (int i = 0; i < OBJECTS; i++) {
+            objects.add(new GitBlob(i + content));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OBJECTS)
+    public List<byte[]> getShas() {
+        return git.getShas(objects, threads);
+    }
+}
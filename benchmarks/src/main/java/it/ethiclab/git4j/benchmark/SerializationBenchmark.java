@@ -0,0 +1,50 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitCommit;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    private int entries;
+
+    private final Git git = new Git();
+    private GitTreeEntry tree;
+    private GitCommit commit;
+
+    @Setup
+    public void setUp() {
+        tree = Fixtures.tree(git, entries);
+        commit = Fixtures.commit(2);
+    }
+
+    @Benchmark
+    public byte[] serializeTree() {
+        return git.serialize(tree);
+    }
+
+    @Benchmark
+    public byte[] serializeCommit() {
+        return git.serialize(commit);
+    }
+}
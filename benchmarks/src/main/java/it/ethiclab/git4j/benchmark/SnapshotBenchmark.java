@@ -0,0 +1,80 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitIndex;
+import it.ethiclab.git4j.GitSnapshot;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final int DIRECTORIES = 20;
+
+    @Param({"1000", "5000"})
+    private int files;
+
+    private final Git git = new Git();
+    private Path folder;
+    private Path work;
+    private GitSnapshot snapshot;
+    private GitSnapshot indexed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j-bench");
+        work = folder.resolve("work");
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        for (int i = 0; i < files; i++) {
+            Path dir = work.resolve("dir" + i % DIRECTORIES);
+            Files.createDirectories(dir);
+            Path file = dir.resolve("file" + i);
+            Files.write(file, ("content " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, old);
+        }
+        snapshot = new GitSnapshot(git);
+        indexed = new GitSnapshot(git);
+        indexed.setIndex(new GitIndex(git, folder.resolve("index").toFile()));
+        indexed.writeTree(work);
+        indexed.getIndex().write();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public GitTreeEntry writeTree() {
+        return snapshot.writeTree(work);
+    }
+
+    @Benchmark
+    public GitTreeEntry writeTreeIndexed() {
+        return indexed.writeTree(work);
+    }
+}
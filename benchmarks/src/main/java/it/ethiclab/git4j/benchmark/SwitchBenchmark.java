@@ -0,0 +1,82 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitArenaObjectStore;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitSnapshot;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchBenchmark {
+
+    @Param({"10", "100"})
+    private int directories;
+
+    private final Git git = new Git();
+    private final GitArenaObjectStore store = new GitArenaObjectStore();
+    private Path folder;
+    private GitTreeEntry current;
+    private GitTreeEntry other;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j-bench");
+        current = tree(-1);
+        other = tree(directories / 2);
+        git.checkout(null, current, store, folder, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    private GitTreeEntry tree(int changed) throws IOException {
+        List<GitTreeEntry> root = new ArrayList<>();
+        for (int i = 0; i < directories; i++) {
+            List<GitTreeEntry> files = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                String content = i == changed && j == 0 ? "changed\n" : "content " + i + " " + j + "\n";
+                files.add(new GitTreeEntry("100644", "file" + j, git.write(store, new GitBlob(content))));
+            }
+            files.sort(GitTreeEntry.GIT_ORDER);
+            root.add(new GitTreeEntry(GitSnapshot.TREE_MODE, "dir" + i, git.write(store, new GitTreeEntry(files))));
+        }
+        root.sort(GitTreeEntry.GIT_ORDER);
+        return new GitTreeEntry(GitSnapshot.TREE_MODE, "", git.write(store, new GitTreeEntry(root)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public int switchOneChange() {
+        int changed = git.checkout(current, other, store, folder, null, Runtime.getRuntime().availableProcessors());
+        GitTreeEntry tree = current;
+        current = other;
+        other = tree;
+        return changed;
+    }
+}
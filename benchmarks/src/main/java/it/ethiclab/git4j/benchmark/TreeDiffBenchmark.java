@@ -0,0 +1,80 @@
+package it.ethiclab.git4j.benchmark;
+
+import it.ethiclab.git4j.Git;
+import it.ethiclab.git4j.GitArenaObjectStore;
+import it.ethiclab.git4j.GitBlob;
+import it.ethiclab.git4j.GitChange;
+import it.ethiclab.git4j.GitSnapshot;
+import it.ethiclab.git4j.GitTreeDiff;
+import it.ethiclab.git4j.GitTreeEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeDiffBenchmark {
+
+    @Param({"50", "200"})
+    private int directories;
+
+    private final Git git = new Git();
+    private final GitArenaObjectStore store = new GitArenaObjectStore();
+    private GitTreeDiff diff;
+    private byte[] a;
+    private byte[] b;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        a = tree(-1);
+        b = tree(directories / 2);
+        diff = new GitTreeDiff(git, store);
+    }
+
+    private byte[] tree(int changed) throws IOException {
+        List<GitTreeEntry> root = new ArrayList<>();
+        for (int i = 0; i < directories; i++) {
+            List<GitTreeEntry> files = new ArrayList<>();
+            for (int j = 0; j < 50; j++) {
+                String content = i == changed && j == 0 ? "changed\n" : "content " + i + " " + j + "\n";
+                files.add(new GitTreeEntry("100644", "file" + j, git.write(store, new GitBlob(content))));
+            }
+            files.sort(GitTreeEntry.GIT_ORDER);
+            byte[] sub = git.write(store, new GitTreeEntry(files));
+            byte[] dir = git.write(store, new GitTreeEntry(Collections.singletonList(
+                    new GitTreeEntry(GitSnapshot.TREE_MODE, "sub", sub))));
+            root.add(new GitTreeEntry(GitSnapshot.TREE_MODE, "dir" + i, dir));
+        }
+        root.sort(GitTreeEntry.GIT_ORDER);
+        return git.write(store, new GitTreeEntry(root));
+    }
+
+    @Benchmark
+    public List<GitChange> oneChange() {
+        return diff.diff(a, b);
+    }
+
+    @Benchmark
+    public List<GitChange> allAdded() {
+        return diff.diff(null, a);
+    }
+}
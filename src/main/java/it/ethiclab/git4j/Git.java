@@ -5,18 +5,44 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 public class Git {
 
+    public static final String SHA1 = "sha1";
+    public static final String SHA256 = "sha256";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final String encoding;
-    private final MessageDigest digest;
+    private final MessageDigest prototype;
+    private final ThreadLocal<MessageDigest> digest;
+    private final GitZipPool zipPool = new GitZipPool(Runtime.getRuntime().availableProcessors() * 2);
+    private final ThreadLocal<GitObjectReader> reader = ThreadLocal.withInitial(() -> new GitObjectReader(zipPool));
+    private final ThreadLocal<GitCommitEncoder> commitEncoder;
+    private final Map<File, GitPackDatabase> packs = new ConcurrentHashMap<>();
+    private volatile GitObjectCache cache;
+    private volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private volatile int compressionStrategy = Deflater.DEFAULT_STRATEGY;
+    private volatile boolean storeCompressedBlobs;
 
     public Git() {
         this("SHA1", "utf-8");
@@ -25,10 +51,33 @@ public class Git {
     public Git(String algorithm, String encoding) {
         this.encoding = encoding;
         try {
-            digest = MessageDigest.getInstance(algorithm);
+            prototype = MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException e) {
             throw new GitException(e);
         }
+        digest = ThreadLocal.withInitial(this::newMessageDigest);
+        commitEncoder = ThreadLocal.withInitial(() -> new GitCommitEncoder(this, encoding));
+    }
+
+    public static Git forObjectFormat(String objectFormat) {
+        if (SHA1.equals(objectFormat)) {
+            return new Git("SHA-1", "utf-8");
+        } else if (SHA256.equals(objectFormat)) {
+            return new Git("SHA-256", "utf-8");
+        }
+        throw new GitException("unsupported object format " + objectFormat);
+    }
+
+    MessageDigest newMessageDigest() {
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                return MessageDigest.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+            } catch (NoSuchAlgorithmException ex) {
+                throw new GitException(ex);
+            }
+        }
     }
 
     public byte[] getBlobSha1(String input) {
@@ -36,6 +85,144 @@ public class Git {
         return getBinarySha1(blobString);
     }
 
+    public byte[] getBlobSha1(Path file) {
+        return getSha(new GitBlob(file));
+    }
+
+    public GitObjectCache getCache() {
+        return cache;
+    }
+
+    public void setCache(GitObjectCache cache) {
+        this.cache = cache;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new GitException("invalid compression level " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionStrategy() {
+        return compressionStrategy;
+    }
+
+    public void setCompressionStrategy(int compressionStrategy) {
+        if (compressionStrategy != Deflater.DEFAULT_STRATEGY && compressionStrategy != Deflater.FILTERED
+                && compressionStrategy != Deflater.HUFFMAN_ONLY) {
+            throw new GitException("invalid compression strategy " + compressionStrategy);
+        }
+        this.compressionStrategy = compressionStrategy;
+    }
+
+    public boolean isStoreCompressedBlobs() {
+        return storeCompressedBlobs;
+    }
+
+    public void setStoreCompressedBlobs(boolean storeCompressedBlobs) {
+        this.storeCompressedBlobs = storeCompressedBlobs;
+    }
+
+    public int getCreatedDeflaterCount() {
+        return zipPool.getCreatedDeflaterCount();
+    }
+
+    public int getCreatedInflaterCount() {
+        return zipPool.getCreatedInflaterCount();
+    }
+
+    GitZipPool getZipPool() {
+        return zipPool;
+    }
+
+    Deflater acquireDeflater(int level) {
+        return zipPool.deflater(level, compressionStrategy);
+    }
+
+    void releaseDeflater(Deflater deflater) {
+        zipPool.release(deflater);
+    }
+
+    int getCompressionLevel(GitObject object) {
+        if (!storeCompressedBlobs || !(object instanceof GitBlob)) {
+            return compressionLevel;
+        }
+        GitBlob blob = (GitBlob) object;
+        if (blob.getData() != null) {
+            return getCompressionLevel(blob.getData(), 0, blob.getData().length);
+        }
+        if (blob.getPath() != null) {
+            byte[] head = new byte[8];
+            int n = 0;
+            try (InputStream in = Files.newInputStream(blob.getPath())) {
+                int r;
+                while (n < head.length && (r = in.read(head, n, head.length - n)) > 0) {
+                    n += r;
+                }
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+            return getCompressionLevel(head, 0, n);
+        }
+        return compressionLevel;
+    }
+
+    int getCompressionLevel(byte[] data, int offset, int length) {
+        return storeCompressedBlobs && isCompressed(data, offset, length) ? Deflater.NO_COMPRESSION : compressionLevel;
+    }
+
+    static boolean isCompressed(byte[] b, int off, int len) {
+        if (len >= 2 && (b[off] & 0xff) == 0x1f && (b[off + 1] & 0xff) == 0x8b) {
+            return true;
+        }
+        if (len >= 3 && (b[off] & 0xff) == 0xff && (b[off + 1] & 0xff) == 0xd8 && (b[off + 2] & 0xff) == 0xff) {
+            return true;
+        }
+        if (len >= 3 && b[off] == 'B' && b[off + 1] == 'Z' && b[off + 2] == 'h') {
+            return true;
+        }
+        if (len >= 4 && b[off] == 'P' && b[off + 1] == 'K' && b[off + 2] == 3 && b[off + 3] == 4) {
+            return true;
+        }
+        if (len >= 4 && (b[off] & 0xff) == 0x89 && b[off + 1] == 'P' && b[off + 2] == 'N' && b[off + 3] == 'G') {
+            return true;
+        }
+        if (len >= 4 && (b[off] & 0xff) == 0x28 && (b[off + 1] & 0xff) == 0xb5 && (b[off + 2] & 0xff) == 0x2f
+                && (b[off + 3] & 0xff) == 0xfd) {
+            return true;
+        }
+        if (len >= 6 && (b[off] & 0xff) == 0xfd && b[off + 1] == '7' && b[off + 2] == 'z' && b[off + 3] == 'X'
+                && b[off + 4] == 'Z' && b[off + 5] == 0) {
+            return true;
+        }
+        return len >= 6 && b[off] == '7' && b[off + 1] == 'z' && (b[off + 2] & 0xff) == 0xbc
+                && (b[off + 3] & 0xff) == 0xaf && b[off + 4] == 0x27 && b[off + 5] == 0x1c;
+    }
+
+    public static int compressBound(int length) {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+
+    public int getDigestLength() {
+        return prototype.getDigestLength();
+    }
+
+    public String getObjectFormat() {
+        switch (getDigestLength()) {
+            case 20:
+                return SHA1;
+            case 32:
+                return SHA256;
+            default:
+                return prototype.getAlgorithm().toLowerCase().replace("-", "");
+        }
+    }
+
     public byte[] getBytes(String input) {
         try {
             return input.getBytes(encoding);
@@ -45,15 +232,15 @@ public class Git {
     }
 
     public byte[] getBinarySha1(byte[] input) {
-        return digest.digest(input);
+        return digest.get().digest(input);
     }
 
     public String binaryToHex(byte[] hashBytes) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < hashBytes.length; i++) {
-            sb.append(Integer.toString((hashBytes[i] & 0xff) + 0x100, 16).substring(1));
-        }
-        return sb.toString();
+        return GitHex.encode(hashBytes);
+    }
+
+    public byte[] hexToBinary(String hex) {
+        return GitHex.decode(hex);
     }
 
     public byte[] getTreeSha(GitTreeEntry tree) {
@@ -71,18 +258,34 @@ public class Git {
         return r;
     }
 
-    private String format(String timezone) {
-        Calendar calendar = getCalendar(timezone);
-        TimeZone tz = calendar.getTimeZone();
-        SimpleDateFormat sdf = new SimpleDateFormat("ZZ");
-        sdf.setTimeZone(tz);
-        return sdf.format(calendar.getTime());
-    }
-
     public byte[] getSha(GitObject object) {
+        if (object instanceof GitBlob && ((GitBlob) object).isStreaming()) {
+            try {
+                return streamBlob((GitBlob) object, null);
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+        }
         return getBinarySha1(serialize(object));
     }
 
+    public GitObjectType getType(GitObject object) {
+        if (object instanceof GitCommit) {
+            return GitObjectType.COMMIT;
+        } else if (object instanceof GitBlob) {
+            return GitObjectType.BLOB;
+        } else if (object instanceof GitTreeEntry) {
+            return GitObjectType.TREE;
+        }
+        throw new GitException("unsupported object " + object);
+    }
+
+    MessageDigest getDigest() {
+        MessageDigest md = digest.get();
+        md.reset();
+        return md;
+    }
+
     public byte[] serialize(GitObject object) {
         if (object instanceof GitCommit) {
             return serialize((GitCommit) object);
@@ -95,133 +298,406 @@ public class Git {
     }
 
     public byte[] serialize(GitCommit commit) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("tree");
-        sb.append(' ');
-        sb.append(commit.getTree());
-        sb.append('\n');
+        return commitEncoder.get().encode(commit);
+    }
 
-        if (!commit.getParentCommits().isEmpty()) {
-            for(String parent : commit.getParentCommits()) {
-                sb.append("parent");
-                sb.append(" ");
-                sb.append(parent);
-                sb.append("\n");
+    public byte[] serialize(GitBlob commit) {
+        if (commit.isStreaming()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                streamBlob(commit, out);
+            } catch (IOException e) {
+                throw new GitException(e);
             }
+            return out.toByteArray();
         }
+        String content = commit.getContent();
+        return getBytes("blob " + content.length() + "\000" + content);
+    }
 
-        sb.append("author " + commit.getAuthor() + " " + commit.getAuthoringDate().getTime() + " " + format(commit.getAuthoringTimezone()));
-        sb.append('\n');
-        sb.append("committer " + commit.getCommitter() + " " + commit.getCommitDate().getTime() + " " + format(commit.getCommitTimezone()));
-        sb.append("\n");
-        sb.append("\n");
-        sb.append(commit.getMessage());
-        sb.append("\n");
+    public List<byte[]> getShas(List<? extends GitObject> objects, int parallelism) {
+        if (parallelism < 1) {
+            throw new GitException("invalid parallelism " + parallelism);
+        }
+        byte[][] result = new byte[objects.size()][];
+        int threads = Math.min(parallelism, objects.size());
+        if (threads <= 1) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = getSha(objects.get(i));
+            }
+            return Arrays.asList(result);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int chunk = (result.length + threads - 1) / threads;
+            for (int start = 0; start < result.length; start += chunk) {
+                int from = start;
+                int to = Math.min(start + chunk, result.length);
+                futures.add(executor.submit(() -> {
+                    for (int i = from; i < to; i++) {
+                        result[i] = getSha(objects.get(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GitException) {
+                throw (GitException) e.getCause();
+            }
+            throw new GitException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(result);
+    }
 
-        StringBuilder commitBuilder = new StringBuilder();
-        commitBuilder.append("commit");
-        commitBuilder.append(' ');
-        commitBuilder.append(sb.length());
-        commitBuilder.append('\0');
-        commitBuilder.append(sb.toString());
+    private byte[] streamBlob(GitBlob blob, OutputStream out) throws IOException {
+        return streamBlob(blob, out, true);
+    }
 
-        System.out.println(commitBuilder.toString());
+    byte[] streamBlob(GitBlob blob, OutputStream out, boolean writeHeader) throws IOException {
+        MessageDigest digest = getDigest();
+        byte[] header = getBytes("blob " + blob.getSize() + "\000");
+        digest.update(header);
+        if (out != null && writeHeader) {
+            out.write(header);
+        }
+        if (blob.getData() != null) {
+            digest.update(blob.getData());
+            if (out != null) {
+                out.write(blob.getData());
+            }
+            return digest.digest();
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        long remaining = blob.getSize();
+        try (InputStream in = blob.openStream()) {
+            while (remaining > 0) {
+                int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                if (n < 0) {
+                    throw new GitException("unexpected end of blob, " + remaining + " bytes missing");
+                }
+                digest.update(buf, 0, n);
+                if (out != null) {
+                    out.write(buf, 0, n);
+                }
+                remaining -= n;
+            }
+        }
+        return digest.digest();
+    }
 
-        return getBytes(commitBuilder.toString());
+    public byte[] writeBlob(File objectsFolder, GitBlob blob) throws IOException {
+        File tmp = File.createTempFile("tmp_obj_", null, objectsFolder);
+        byte[] sha;
+        Deflater deflater = acquireDeflater(getCompressionLevel(blob));
+        try {
+            try (OutputStream out = new DeflaterOutputStream(new FileOutputStream(tmp), deflater, BUFFER_SIZE)) {
+                sha = streamBlob(blob, out);
+            }
+            moveObject(objectsFolder, tmp, binaryToHex(sha));
+        } finally {
+            releaseDeflater(deflater);
+            Files.deleteIfExists(tmp.toPath());
+        }
+        return sha;
     }
 
-    public byte[] serialize(GitBlob commit) {
-        String content = commit.getContent();
-        return getBytes("blob " + content.length() + "\000" + content);
+    private void moveObject(File objectsFolder, File tmp, String sha) throws IOException {
+        File twoLettersFolder = Paths.get(objectsFolder.getAbsolutePath(), sha.substring(0, 2)).toFile();
+        twoLettersFolder.mkdir();
+        Path target = Paths.get(twoLettersFolder.getAbsolutePath(), sha.substring(2));
+        Files.move(tmp.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     public byte[] serialize(GitTreeEntry tree) {
+        List<GitTreeEntry> objects = tree.getObjects();
+        byte[][] names = new byte[objects.size()][];
+        int idLength = getDigestLength();
         int length = 0;
-
-        for (GitTreeEntry object : tree.getObjects()) {
-            length+=object.length();
+        for (int i = 0; i < names.length; i++) {
+            GitTreeEntry object = objects.get(i);
+            if (object.getSha1().length != idLength) {
+                throw new GitException("invalid id length " + object.getSha1().length + " for " + object.getName());
+            }
+            names[i] = getBytes(object.getOctalMode() + " " + object.getName());
+            length += names[i].length + 1 + idLength;
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("tree");
-        sb.append(' ');
-        sb.append(length);
-        ByteBuffer bb = ByteBuffer.allocate(8 + length);
-        bb.put(getBytes(sb.toString()));
+        byte[] header = getBytes("tree " + length);
+        ByteBuffer bb = ByteBuffer.allocate(header.length + 1 + length);
+        bb.put(header);
         bb.put((byte) 0);
 
-        for (GitTreeEntry object : tree.getObjects()) {
-            String strObject = object.getOctalMode() + " " + object.getName();
-            bb.put(getBytes(strObject));
+        for (int i = 0; i < names.length; i++) {
+            bb.put(names[i]);
             bb.put((byte) 0);
-            bb.put(object.getSha1());
+            bb.put(objects.get(i).getSha1());
         }
 
         return bb.array();
     }
 
-    private void doCopy(InputStream is, OutputStream os, int skip) throws IOException {
-        int oneByte;
-        is.skip(skip);
-        StringBuilder sb = new StringBuilder();
-        while ((oneByte = is.read()) != 0) {
-            sb.append((char) oneByte);
-        }
-        int length = Integer.parseInt(sb.toString());
-        byte[] buf = new byte[length];
-        is.read(buf);
-        os.write(buf);
-        os.flush();
-        os.close();
-        is.close();
+    public byte[] compress(byte[] input) {
+        byte[] out = new byte[compressBound(input.length)];
+        return Arrays.copyOf(out, compress(input, 0, input.length, out, 0));
     }
 
-    public byte[] compress(byte[] input) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        DeflaterOutputStream compressor = new DeflaterOutputStream(out);
+    public int compress(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        return compress(input, offset, length, out, outOffset, compressionLevel);
+    }
+
+    int compress(byte[] input, int offset, int length, byte[] out, int outOffset, int level) {
+        Deflater deflater = acquireDeflater(level);
         try {
-            compressor.write(input);
-            compressor.flush();
-            compressor.close();
-        } catch (IOException e) {
-            throw new GitException(e);
+            deflater.setInput(input, offset, length);
+            deflater.finish();
+            int n = outOffset;
+            while (!deflater.finished()) {
+                if (n == out.length) {
+                    throw new GitException("output buffer too small, " + (out.length - outOffset) + " bytes");
+                }
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return n - outOffset;
+        } finally {
+            releaseDeflater(deflater);
         }
-        return out.toByteArray();
     }
 
     public void uncompress(File dest, File file) {
-        try {
-            InflaterInputStream zip = new InflaterInputStream(new FileInputStream(file));
-            FileOutputStream out = new FileOutputStream(dest);
-            doCopy(zip, out, 5);
+        reader.get().copy(file, dest);
+    }
+
+    public GitObject read(File objectsFolder, byte[] sha) {
+        GitRawObject raw = readRaw(objectsFolder, sha);
+        return raw == null ? null : parse(raw);
+    }
+
+    public GitRawObject readRaw(File objectsFolder, byte[] sha) {
+        GitObjectCache cache = this.cache;
+        if (cache == null) {
+            return load(objectsFolder, sha);
         }
-        catch (Exception e) {
-            throw new GitException(e);
+        GitRawObject raw = cache.get(sha);
+        if (raw == null) {
+            raw = load(objectsFolder, sha);
+            if (raw != null) {
+                cache.put(sha, raw);
+            }
+        }
+        return raw;
+    }
+
+    public boolean has(File objectsFolder, byte[] sha) {
+        String hex = binaryToHex(sha);
+        if (Paths.get(objectsFolder.getAbsolutePath(), hex.substring(0, 2), hex.substring(2)).toFile().isFile()) {
+            return true;
+        }
+        File packFolder = new File(objectsFolder, "pack");
+        return packFolder.isDirectory() && packDatabase(packFolder).has(sha);
+    }
+
+    long getSize(File objectsFolder, byte[] sha) {
+        String hex = binaryToHex(sha);
+        File loose = Paths.get(objectsFolder.getAbsolutePath(), hex.substring(0, 2), hex.substring(2)).toFile();
+        if (loose.isFile()) {
+            return reader.get().readHeader(loose);
+        }
+        File packFolder = new File(objectsFolder, "pack");
+        return packFolder.isDirectory() ? packDatabase(packFolder).getSize(sha) : -1;
+    }
+
+    GitPackDatabase packDatabase(File packFolder) {
+        return packs.computeIfAbsent(packFolder.getAbsoluteFile(), folder -> new GitPackDatabase(folder, getDigestLength(), zipPool));
+    }
+
+    private GitRawObject load(File objectsFolder, byte[] sha) {
+        String hex = binaryToHex(sha);
+        File loose = Paths.get(objectsFolder.getAbsolutePath(), hex.substring(0, 2), hex.substring(2)).toFile();
+        if (loose.isFile()) {
+            return reader.get().read(loose);
+        }
+        File packFolder = new File(objectsFolder, "pack");
+        if (!packFolder.isDirectory()) {
+            return null;
+        }
+        GitPackDatabase db = packDatabase(packFolder);
+        GitRawObject raw = db.read(sha);
+        if (raw == null) {
+            db.rescan();
+            raw = db.read(sha);
+        }
+        return raw;
+    }
+
+    public GitObject parse(GitRawObject raw) {
+        switch (raw.getType()) {
+            case BLOB:
+                return new GitBlob(raw.getData());
+            case TREE:
+                return new GitTreeEntry(new GitParsedTreeEntries(raw.getData(), getDigestLength()));
+            case COMMIT:
+                return new GitParsedCommit(raw.getData());
+            default:
+                throw new GitException("unsupported object type " + raw.getType().getName());
         }
     }
 
     public void checkout(GitTreeEntry tree, Path root, Path path) {
+        checkout(tree, store(root), path);
+    }
+
+    public void checkout(GitTreeEntry tree, GitObjectStore store, Path path) {
+        checkoutTree(verifyTree(store, tree), store, path);
+    }
+
+    private void checkoutTree(GitTreeEntry tree, GitObjectStore store, Path path) {
         path.toFile().mkdir();
         for (GitTreeEntry entry : tree.getObjects()) {
             Path itemPath = Paths.get(path.toFile().getAbsolutePath(), entry.getName());
             if (!entry.getObjects().isEmpty()) {
-                checkout(entry, root, itemPath);
+                checkoutTree(entry, store, itemPath);
+            } else if (entry.isTree() && entry.getSha1() != null) {
+                checkoutTree(readTree(store, entry.getSha1()), store, itemPath);
             } else {
-                String sha = binaryToHex(entry.getSha1());
-                Path blob = Paths.get(root.toFile().getAbsolutePath(), ".git", "objects", sha.substring(0, 2), sha.substring(2));
-                uncompress(itemPath.toFile(), blob.toFile());
+                checkoutBlob(store, entry.getSha1(), itemPath);
             }
         }
     }
 
-    public void serializeGitObjectToFile(File objectsFolder, GitObject object) throws IOException {
-        String sha = binaryToHex(getSha(object));
+    private GitTreeEntry verifyTree(GitObjectStore store, GitTreeEntry tree) {
+        GitTreeEntry loaded = tree;
+        if (tree.getObjects().isEmpty() && tree.getSha1() != null) {
+            loaded = readTree(store, tree.getSha1());
+        }
+        List<GitTreeEntry> objects = new ArrayList<>(loaded.getObjects().size());
+        for (GitTreeEntry entry : loaded.getObjects()) {
+            verifyName(entry.getName());
+            objects.add(entry.isTree() ? verifyTree(store, entry) : entry);
+        }
+        return new GitTreeEntry(tree.getOctalMode(), tree.getName(), tree.getSha1(), objects);
+    }
 
-        File twoLettersFolder = Paths.get(objectsFolder.getAbsolutePath(), sha.substring(0, 2)).toFile();
-        twoLettersFolder.mkdir();
+    static void verifyName(String name) {
+        if (name == null || name.isEmpty() || name.equals(".") || name.equals("..") || name.equalsIgnoreCase(".git")
+                || name.indexOf('/') >= 0 || name.indexOf('\0') >= 0) {
+            throw new GitException("invalid path name " + name);
+        }
+    }
+
+    private GitObjectStore store(Path root) {
+        return new GitLooseObjectStore(this, Paths.get(root.toFile().getAbsolutePath(), ".git", "objects").toFile());
+    }
+
+    private GitTreeEntry readTree(GitObjectStore store, byte[] sha) {
+        GitRawObject raw = store.get(sha);
+        if (raw == null || raw.getType() != GitObjectType.TREE) {
+            throw new GitException("missing tree " + binaryToHex(sha));
+        }
+        return (GitTreeEntry) parse(raw);
+    }
+
+    private void checkoutBlob(GitObjectStore store, byte[] sha, Path dest) {
+        try {
+            if (!store.copy(sha, dest)) {
+                throw new GitException("missing object " + binaryToHex(sha));
+            }
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public void checkout(GitTreeEntry tree, Path root, Path path, int parallelism) {
+        checkout(tree, store(root), path, parallelism);
+    }
+
+    public void checkout(GitTreeEntry tree, GitObjectStore store, Path path, int parallelism) {
+        if (parallelism < 1) {
+            throw new GitException("invalid parallelism " + parallelism);
+        }
+        GitTreeEntry verified = verifyTree(store, tree);
+        Map<Path, Throwable> failures = new ConcurrentSkipListMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new CheckoutTask(verified, store, path, failures));
+        } finally {
+            pool.shutdown();
+        }
+        if (!failures.isEmpty()) {
+            throw new GitCheckoutException(failures);
+        }
+    }
+
+    private class CheckoutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GitTreeEntry entry;
+        private final GitObjectStore store;
+        private final Path path;
+        private final Map<Path, Throwable> failures;
+
+        CheckoutTask(GitTreeEntry entry, GitObjectStore store, Path path, Map<Path, Throwable> failures) {
+            this.entry = entry;
+            this.store = store;
+            this.path = path;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            GitTreeEntry tree = entry;
+            try {
+                if (entry.getObjects().isEmpty() && entry.getSha1() != null) {
+                    if (!entry.isTree()) {
+                        checkoutBlob(store, entry.getSha1(), path);
+                        return;
+                    }
+                    tree = readTree(store, entry.getSha1());
+                }
+                Files.createDirectories(path);
+            } catch (Exception e) {
+                failures.put(path, e);
+                return;
+            }
+            List<CheckoutTask> tasks = new ArrayList<>();
+            for (GitTreeEntry child : tree.getObjects()) {
+                tasks.add(new CheckoutTask(child, store, Paths.get(path.toFile().getAbsolutePath(), child.getName()), failures));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    public int checkout(GitTreeEntry from, GitTreeEntry to, GitObjectStore store, Path path) {
+        return checkout(from, to, store, path, null, 1);
+    }
+
+    public int checkout(GitTreeEntry from, GitTreeEntry to, GitObjectStore store, Path path, GitIndex index, int parallelism) {
+        return new GitIncrementalCheckout(this, store, path, index).run(from, to, parallelism);
+    }
 
-        Path OBJECT = Paths.get(twoLettersFolder.getAbsolutePath(), sha.substring(2));
-        Files.write(OBJECT, compress(serialize(object)));
+    public byte[] write(GitObjectStore store, GitObject object) throws IOException {
+        if (store instanceof GitLooseObjectStore) {
+            return ((GitLooseObjectStore) store).getWriter().write(object);
+        }
+        byte[] data = serialize(object);
+        byte[] sha = getBinarySha1(data);
+        if (!store.has(sha)) {
+            int offset = GitPackWriter.headerLength(data);
+            store.put(sha, new GitRawObject(getType(object), Arrays.copyOfRange(data, offset, data.length)));
+        }
+        return sha;
+    }
+
+    public void serializeGitObjectToFile(File objectsFolder, GitObject object) throws IOException {
+        try (GitObjectWriter writer = new GitObjectWriter(this, objectsFolder)) {
+            writer.write(object);
+        }
     }
 }
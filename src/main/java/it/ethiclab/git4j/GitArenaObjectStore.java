@@ -0,0 +1,223 @@
+package it.ethiclab.git4j;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class GitArenaObjectStore implements GitObjectStore {
+
+    private static final int HEADER = 5;
+
+    private final int idLength;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] table = new long[1024];
+    private int count;
+    private long usedBytes;
+    private long capacity;
+
+    public GitArenaObjectStore() {
+        this(20, 64 * 1024 * 1024);
+    }
+
+    public GitArenaObjectStore(int idLength, int chunkSize) {
+        if (chunkSize < 1024) {
+            throw new GitException("invalid chunk size " + chunkSize);
+        }
+        this.idLength = idLength;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getObjectCount() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCapacity() {
+        lock.readLock().lock();
+        try {
+            return capacity;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int hash(byte[] sha) {
+        return (sha[0] & 0xff) << 24 | (sha[1] & 0xff) << 16 | (sha[2] & 0xff) << 8 | sha[3] & 0xff;
+    }
+
+    private int slot(long[] table, byte[] sha) {
+        int mask = table.length - 1;
+        int i = hash(sha) & mask;
+        while (table[i] != 0 && !matches(table[i] - 1, sha)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private boolean matches(long location, byte[] sha) {
+        ByteBuffer chunk = chunks.get((int) (location >>> 32));
+        int offset = (int) location + HEADER;
+        for (int i = 0; i < idLength; i++) {
+            if (chunk.get(offset + i) != sha[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long find(byte[] sha) {
+        if (sha.length != idLength) {
+            return -1;
+        }
+        long location = table[slot(table, sha)];
+        return location - 1;
+    }
+
+    @Override
+    public boolean has(byte[] sha) {
+        lock.readLock().lock();
+        try {
+            return find(sha) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public GitRawObject get(byte[] sha) {
+        lock.readLock().lock();
+        try {
+            long location = find(sha);
+            if (location < 0) {
+                return null;
+            }
+            ByteBuffer chunk = chunks.get((int) (location >>> 32));
+            int offset = (int) location;
+            byte[] data = new byte[chunk.getInt(offset + 1)];
+            ByteBuffer b = chunk.duplicate();
+            ((Buffer) b).position(offset + HEADER + idLength);
+            b.get(data);
+            return new GitRawObject(GitObjectType.fromPackType(chunk.get(offset)), data);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean copy(byte[] sha, Path dest) throws IOException {
+        ByteBuffer content;
+        lock.readLock().lock();
+        try {
+            long location = find(sha);
+            if (location < 0) {
+                return false;
+            }
+            ByteBuffer chunk = chunks.get((int) (location >>> 32));
+            int offset = (int) location;
+            content = chunk.duplicate();
+            ((Buffer) content).position(offset + HEADER + idLength);
+            ((Buffer) content).limit(offset + HEADER + idLength + chunk.getInt(offset + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (FileChannel channel = FileChannel.open(dest, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(byte[] sha, GitRawObject object) {
+        if (sha.length != idLength) {
+            throw new GitException("invalid id length " + sha.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = slot(table, sha);
+            if (table[slot] != 0) {
+                return;
+            }
+            table[slot] = append(sha, object) + 1;
+            count++;
+            if (count * 2 > table.length) {
+                resize();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long append(byte[] sha, GitRawObject object) {
+        int length = HEADER + idLength + object.getSize();
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < length) {
+            chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+            chunks.add(chunk);
+            capacity += chunk.capacity();
+        }
+        long location = (long) (chunks.size() - 1) << 32 | chunk.position();
+        chunk.put((byte) object.getType().getPackType());
+        chunk.putInt(object.getSize());
+        chunk.put(sha);
+        chunk.put(object.getData());
+        usedBytes += length;
+        return location;
+    }
+
+    private void resize() {
+        long[] resized = new long[table.length * 2];
+        byte[] sha = new byte[idLength];
+        for (long entry : table) {
+            if (entry != 0) {
+                ByteBuffer b = chunks.get((int) ((entry - 1) >>> 32)).duplicate();
+                ((Buffer) b).position((int) (entry - 1) + HEADER);
+                b.get(sha);
+                resized[slot(resized, sha)] = entry;
+            }
+        }
+        table = resized;
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            chunks.clear();
+            table = new long[1024];
+            count = 0;
+            usedBytes = 0;
+            capacity = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
@@ -1,12 +1,91 @@
 package it.ethiclab.git4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class GitBlob implements GitObject {
     private final String content;
+    private final byte[] data;
+    private final Path path;
+    private final InputStream stream;
+    private final long size;
+    private final AtomicBoolean opened = new AtomicBoolean();
+
     public GitBlob(String content) {
         this.content = content;
+        this.data = null;
+        this.path = null;
+        this.stream = null;
+        this.size = content.length();
+    }
+
+    public GitBlob(byte[] data) {
+        this.content = null;
+        this.data = data;
+        this.path = null;
+        this.stream = null;
+        this.size = data.length;
+    }
+
+    public GitBlob(Path path) {
+        try {
+            this.size = Files.size(path);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        this.content = null;
+        this.data = null;
+        this.path = path;
+        this.stream = null;
+    }
+
+    public GitBlob(InputStream stream, long size) {
+        this.content = null;
+        this.data = null;
+        this.path = null;
+        this.stream = stream;
+        this.size = size;
     }
 
     public String getContent() {
+        if (content == null && data != null) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
         return content;
     }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isStreaming() {
+        return content == null;
+    }
+
+    public InputStream openStream() throws IOException {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        } else if (path != null) {
+            return Files.newInputStream(path);
+        } else if (stream != null) {
+            if (opened.getAndSet(true)) {
+                throw new GitException("blob stream can be read only once");
+            }
+            return stream;
+        }
+        throw new GitException("blob is not streaming");
+    }
 }
@@ -0,0 +1,69 @@
+package it.ethiclab.git4j;
+
+public class GitChange {
+
+    private final GitChangeType type;
+    private final String oldPath;
+    private final String newPath;
+    private final String oldMode;
+    private final String newMode;
+    private final byte[] oldId;
+    private final byte[] newId;
+    private final int score;
+
+    public GitChange(GitChangeType type, String oldPath, String newPath, String oldMode, String newMode,
+                     byte[] oldId, byte[] newId, int score) {
+        this.type = type;
+        this.oldPath = oldPath;
+        this.newPath = newPath;
+        this.oldMode = oldMode;
+        this.newMode = newMode;
+        this.oldId = oldId;
+        this.newId = newId;
+        this.score = score;
+    }
+
+    public GitChangeType getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return newPath != null ? newPath : oldPath;
+    }
+
+    public String getOldPath() {
+        return oldPath;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    public String getOldMode() {
+        return oldMode;
+    }
+
+    public String getNewMode() {
+        return newMode;
+    }
+
+    public byte[] getOldId() {
+        return oldId;
+    }
+
+    public byte[] getNewId() {
+        return newId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        if (type == GitChangeType.RENAME) {
+            return String.format("R%03d\t%s\t%s", score, oldPath, newPath);
+        }
+        return type.getStatus() + "\t" + getPath();
+    }
+}
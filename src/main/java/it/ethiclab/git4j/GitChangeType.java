@@ -0,0 +1,20 @@
+package it.ethiclab.git4j;
+
+public enum GitChangeType {
+    ADD('A'),
+    DELETE('D'),
+    MODIFY('M'),
+    MODE_CHANGE('M'),
+    TYPE_CHANGE('T'),
+    RENAME('R');
+
+    private final char status;
+
+    GitChangeType(char status) {
+        this.status = status;
+    }
+
+    public char getStatus() {
+        return status;
+    }
+}
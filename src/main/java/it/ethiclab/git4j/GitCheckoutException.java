@@ -0,0 +1,23 @@
+package it.ethiclab.git4j;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+public class GitCheckoutException extends GitException {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Path, Throwable> failures;
+
+    public GitCheckoutException(Map<Path, Throwable> failures) {
+        super(failures.size() + " paths could not be checked out: " + failures.keySet());
+        this.failures = Collections.unmodifiableMap(failures);
+        for (Throwable failure : failures.values()) {
+            addSuppressed(failure);
+        }
+    }
+
+    public Map<Path, Throwable> getFailures() {
+        return failures;
+    }
+}
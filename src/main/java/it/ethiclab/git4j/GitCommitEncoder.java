@@ -0,0 +1,163 @@
+package it.ethiclab.git4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+class GitCommitEncoder {
+
+    private static final Map<String, Zone> ZONES = new ConcurrentHashMap<>();
+    private static final byte[] COMMIT = {'c', 'o', 'm', 'm', 'i', 't', ' '};
+    private static final byte[] TREE = {'t', 'r', 'e', 'e', ' '};
+    private static final byte[] PARENT = {'p', 'a', 'r', 'e', 'n', 't', ' '};
+    private static final byte[] AUTHOR = {'a', 'u', 't', 'h', 'o', 'r', ' '};
+    private static final byte[] COMMITTER = {'c', 'o', 'm', 'm', 'i', 't', 't', 'e', 'r', ' '};
+
+    private final Git git;
+    private final boolean utf8;
+    private byte[] buf = new byte[1024];
+    private int size;
+
+    GitCommitEncoder(Git git, String encoding) {
+        this.git = git;
+        this.utf8 = "utf-8".equalsIgnoreCase(encoding) || "utf8".equalsIgnoreCase(encoding);
+    }
+
+    byte[] encode(GitCommit commit) {
+        size = 0;
+        write(TREE);
+        write(commit.getTree());
+        write('\n');
+        for (String parent : commit.getParentCommits()) {
+            write(PARENT);
+            write(parent);
+            write('\n');
+        }
+        write(AUTHOR);
+        writeIdentity(commit.getAuthor(), commit.getAuthoringDate().getTime(), commit.getAuthoringTimezone());
+        write(COMMITTER);
+        writeIdentity(commit.getCommitter(), commit.getCommitDate().getTime(), commit.getCommitTimezone());
+        write('\n');
+        write(commit.getMessage());
+        write('\n');
+
+        int body = size;
+        writeNumber(body);
+        int digits = size - body;
+        byte[] result = new byte[COMMIT.length + digits + 1 + body];
+        System.arraycopy(COMMIT, 0, result, 0, COMMIT.length);
+        System.arraycopy(buf, body, result, COMMIT.length, digits);
+        System.arraycopy(buf, 0, result, COMMIT.length + digits + 1, body);
+        return result;
+    }
+
+    private void writeIdentity(String identity, long time, String timezone) {
+        write(identity);
+        write(' ');
+        writeNumber(time);
+        write(' ');
+        int offset = zone(timezone).offsetMinutes();
+        write(offset < 0 ? '-' : '+');
+        offset = Math.abs(offset);
+        write('0' + offset / 600);
+        write('0' + offset / 60 % 10);
+        write('0' + offset % 60 / 10);
+        write('0' + offset % 10);
+        write('\n');
+    }
+
+    private static Zone zone(String timezone) {
+        Zone zone = ZONES.get(timezone);
+        if (zone == null) {
+            zone = new Zone(TimeZone.getTimeZone(timezone));
+            ZONES.putIfAbsent(timezone, zone);
+        }
+        return zone;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    private void write(int b) {
+        ensure(1);
+        buf[size++] = (byte) b;
+    }
+
+    private void write(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeNumber(long value) {
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        ensure(20);
+        int start = size;
+        do {
+            buf[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+    }
+
+    private void write(String s) {
+        if (!utf8) {
+            write(git.getBytes(s));
+            return;
+        }
+        int length = s.length();
+        ensure(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[size++] = (byte) (0xc0 | (c >> 6));
+                buf[size++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[size++] = (byte) (0xf0 | (cp >> 18));
+                buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[size++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buf[size++] = '?';
+            } else {
+                buf[size++] = (byte) (0xe0 | (c >> 12));
+                buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[size++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private static class Zone {
+        private final TimeZone timeZone;
+        private final boolean fixed;
+        private final int fixedOffset;
+
+        Zone(TimeZone timeZone) {
+            this.timeZone = timeZone;
+            this.fixed = !timeZone.useDaylightTime();
+            this.fixedOffset = timeZone.getRawOffset() / 60000;
+        }
+
+        int offsetMinutes() {
+            if (fixed) {
+                return fixedOffset;
+            }
+            // same instant Git.getCalendar() used to format the offset
+            return timeZone.getOffset(System.currentTimeMillis() + timeZone.getRawOffset()) / 60000;
+        }
+    }
+}
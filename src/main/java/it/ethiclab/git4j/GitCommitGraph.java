@@ -0,0 +1,598 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+
+public class GitCommitGraph {
+
+    private static final int SIGNATURE = 0x43475048;
+    private static final int VERSION = 1;
+    private static final int CHUNK_FANOUT = 0x4f494446;
+    private static final int CHUNK_IDS = 0x4f49444c;
+    private static final int CHUNK_DATA = 0x43444154;
+    private static final int CHUNK_EDGES = 0x45444745;
+    private static final int PARENT_NONE = 0x70000000;
+    private static final int EDGE_BIT = 0x80000000;
+    private static final int GENERATION_MAX = 0x3fffffff;
+
+    private static final int PARENT1 = 1;
+    private static final int PARENT2 = 2;
+    private static final int STALE = 4;
+    private static final int RESULT = 8;
+
+    private final ByteBuffer buf;
+    private final int idLength;
+    private final int count;
+    private final int fanout;
+    private final int ids;
+    private final int data;
+    private final int edges;
+
+    public GitCommitGraph(File file) {
+        this(map(file));
+    }
+
+    private GitCommitGraph(ByteBuffer buf) {
+        this.buf = buf;
+        if (buf.capacity() < 8 || buf.getInt(0) != SIGNATURE || buf.get(4) != VERSION) {
+            throw new GitException("unsupported commit graph");
+        }
+        switch (buf.get(5)) {
+            case 1:
+                idLength = 20;
+                break;
+            case 2:
+                idLength = 32;
+                break;
+            default:
+                throw new GitException("unsupported commit graph hash version " + buf.get(5));
+        }
+        int chunks = buf.get(6) & 0xff;
+        int fanout = -1;
+        int ids = -1;
+        int data = -1;
+        int edges = -1;
+        for (int i = 0; i < chunks; i++) {
+            int entry = 8 + i * 12;
+            if (entry + 12 > buf.capacity()) {
+                throw new GitException("truncated commit graph");
+            }
+            long offset = buf.getLong(entry + 4);
+            if (offset > buf.capacity()) {
+                throw new GitException("truncated commit graph");
+            }
+            switch (buf.getInt(entry)) {
+                case CHUNK_FANOUT:
+                    fanout = (int) offset;
+                    break;
+                case CHUNK_IDS:
+                    ids = (int) offset;
+                    break;
+                case CHUNK_DATA:
+                    data = (int) offset;
+                    break;
+                case CHUNK_EDGES:
+                    edges = (int) offset;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (fanout < 0 || ids < 0 || data < 0) {
+            throw new GitException("corrupt commit graph: missing chunk");
+        }
+        this.fanout = fanout;
+        this.ids = ids;
+        this.data = data;
+        this.edges = edges;
+        this.count = buf.getInt(fanout + 255 * 4);
+        if (data + (long) count * (idLength + 16) > buf.capacity()) {
+            throw new GitException("truncated commit graph");
+        }
+    }
+
+    private static ByteBuffer map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new GitException("commit graph too large: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public static GitCommitGraph build(Git git, File objectsFolder, Collection<byte[]> heads) {
+        return build(git, sha -> {
+            GitObject object = git.read(objectsFolder, sha);
+            return object instanceof GitCommit ? (GitCommit) object : null;
+        }, heads);
+    }
+
+    public static GitCommitGraph build(Git git, Function<byte[], GitCommit> loader, Collection<byte[]> heads) {
+        GitObjectIdMap<Commit> commits = new GitObjectIdMap<>(git.getDigestLength(), heads.size());
+        List<Commit> found = new ArrayList<>();
+        Deque<byte[]> pending = new ArrayDeque<>(heads);
+        while (!pending.isEmpty()) {
+            byte[] sha = pending.pop();
+            if (commits.containsKey(sha)) {
+                continue;
+            }
+            GitCommit commit = loader.apply(sha);
+            if (commit == null) {
+                throw new GitException("missing commit " + git.binaryToHex(sha));
+            }
+            Commit c = new Commit(sha, git.hexToBinary(commit.getTree()),
+                    commit.getCommitDate() == null ? 0 : commit.getCommitDate().getTime());
+            for (String parent : commit.getParentCommits()) {
+                byte[] p = git.hexToBinary(parent);
+                c.parents.add(p);
+                pending.push(p);
+            }
+            commits.put(sha, c);
+            found.add(c);
+        }
+
+        Commit[] sorted = found.toArray(new Commit[0]);
+        Arrays.sort(sorted, (a, b) -> GitPackWriter.compare(a.sha, b.sha));
+        int n = sorted.length;
+        int[][] parents = new int[n][];
+        for (int i = 0; i < n; i++) {
+            sorted[i].position = i;
+        }
+        for (int i = 0; i < n; i++) {
+            List<byte[]> list = sorted[i].parents;
+            parents[i] = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                parents[i][j] = commits.get(list.get(j)).position;
+            }
+        }
+        int[] generations = generations(parents);
+        return new GitCommitGraph(encode(git, sorted, parents, generations));
+    }
+
+    private static int[] generations(int[][] parents) {
+        int n = parents.length;
+        int[] generations = new int[n];
+        int[] stack = new int[Math.max(16, n)];
+        for (int start = 0; start < n; start++) {
+            if (generations[start] != 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                int c = stack[top - 1];
+                int max = 0;
+                boolean ready = true;
+                for (int p : parents[c]) {
+                    if (generations[p] == 0) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = p;
+                        ready = false;
+                    } else {
+                        max = Math.max(max, generations[p]);
+                    }
+                }
+                if (ready) {
+                    top--;
+                    if (generations[c] == 0) {
+                        generations[c] = Math.min(GENERATION_MAX, max + 1);
+                    }
+                }
+            }
+        }
+        return generations;
+    }
+
+    private static ByteBuffer encode(Git git, Commit[] commits, int[][] parents, int[] generations) {
+        int idLength = git.getDigestLength();
+        int n = commits.length;
+        int edgeCount = 0;
+        for (int[] p : parents) {
+            if (p.length > 2) {
+                edgeCount += p.length - 1;
+            }
+        }
+        int chunks = edgeCount > 0 ? 4 : 3;
+        int fanout = 8 + (chunks + 1) * 12;
+        int ids = fanout + 256 * 4;
+        int data = ids + n * idLength;
+        int edges = data + n * (idLength + 16);
+        int end = edges + edgeCount * 4;
+        ByteBuffer buf = ByteBuffer.allocate(end + idLength);
+        buf.putInt(SIGNATURE);
+        buf.put((byte) VERSION);
+        buf.put((byte) (idLength == 20 ? 1 : 2));
+        buf.put((byte) chunks);
+        buf.put((byte) 0);
+        buf.putInt(CHUNK_FANOUT).putLong(fanout);
+        buf.putInt(CHUNK_IDS).putLong(ids);
+        buf.putInt(CHUNK_DATA).putLong(data);
+        if (edgeCount > 0) {
+            buf.putInt(CHUNK_EDGES).putLong(edges);
+        }
+        buf.putInt(0).putLong(end);
+
+        int[] counts = new int[256];
+        for (Commit c : commits) {
+            counts[c.sha[0] & 0xff]++;
+        }
+        int total = 0;
+        for (int i = 0; i < 256; i++) {
+            total += counts[i];
+            buf.putInt(total);
+        }
+        for (Commit c : commits) {
+            buf.put(c.sha);
+        }
+        int edge = 0;
+        for (int i = 0; i < n; i++) {
+            int[] p = parents[i];
+            long time = Math.max(0, commits[i].time);
+            buf.put(commits[i].tree);
+            buf.putInt(p.length > 0 ? p[0] : PARENT_NONE);
+            if (p.length > 2) {
+                buf.putInt(EDGE_BIT | edge);
+                edge += p.length - 1;
+            } else {
+                buf.putInt(p.length > 1 ? p[1] : PARENT_NONE);
+            }
+            buf.putInt(generations[i] << 2 | (int) (time >>> 32) & 3);
+            buf.putInt((int) time);
+        }
+        for (int[] p : parents) {
+            if (p.length > 2) {
+                for (int j = 1; j < p.length; j++) {
+                    buf.putInt(j == p.length - 1 ? EDGE_BIT | p[j] : p[j]);
+                }
+            }
+        }
+        MessageDigest digest = git.getDigest();
+        digest.update(buf.array(), 0, end);
+        buf.put(digest.digest());
+        ((Buffer) buf).clear();
+        return buf;
+    }
+
+    public void write(File file) throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        folder.mkdirs();
+        File tmp = File.createTempFile("tmp_graph_", null, folder);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+                byte[] chunk = new byte[64 * 1024];
+                ByteBuffer b = buf.duplicate();
+                ((Buffer) b).clear();
+                while (b.hasRemaining()) {
+                    int n = Math.min(chunk.length, b.remaining());
+                    b.get(chunk, 0, n);
+                    out.write(chunk, 0, n);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    public int getCommitCount() {
+        return count;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public int find(byte[] sha) {
+        int first = sha[0] & 0xff;
+        int low = first == 0 ? 0 : buf.getInt(fanout + (first - 1) * 4);
+        int high = buf.getInt(fanout + first * 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareId(mid, sha);
+            if (c == 0) {
+                return mid;
+            } else if (c < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int compareId(int position, byte[] sha) {
+        int offset = ids + position * idLength;
+        for (int i = 0; i < idLength; i++) {
+            int c = (buf.get(offset + i) & 0xff) - (sha[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public byte[] getId(int position) {
+        return bytes(ids + position * idLength);
+    }
+
+    public byte[] getTree(int position) {
+        return bytes(data + position * (idLength + 16));
+    }
+
+    private byte[] bytes(int offset) {
+        byte[] sha = new byte[idLength];
+        ByteBuffer b = buf.duplicate();
+        ((Buffer) b).position(offset);
+        b.get(sha);
+        return sha;
+    }
+
+    public int getGeneration(int position) {
+        return buf.getInt(data + position * (idLength + 16) + idLength + 8) >>> 2;
+    }
+
+    public long getCommitTime(int position) {
+        int offset = data + position * (idLength + 16) + idLength + 8;
+        return (long) (buf.getInt(offset) & 3) << 32 | buf.getInt(offset + 4) & 0xffffffffL;
+    }
+
+    public int[] getParents(int position) {
+        int offset = data + position * (idLength + 16) + idLength;
+        int first = buf.getInt(offset);
+        int second = buf.getInt(offset + 4);
+        if (first == PARENT_NONE) {
+            return new int[0];
+        }
+        if (second == PARENT_NONE) {
+            return new int[]{first};
+        }
+        if ((second & EDGE_BIT) == 0) {
+            return new int[]{first, second};
+        }
+        if (edges < 0) {
+            throw new GitException("corrupt commit graph: missing edges");
+        }
+        int[] parents = new int[8];
+        int n = 0;
+        parents[n++] = first;
+        int edge = edges + (second & ~EDGE_BIT) * 4;
+        while (true) {
+            int p = buf.getInt(edge);
+            if (n == parents.length) {
+                parents = Arrays.copyOf(parents, n * 2);
+            }
+            parents[n++] = p & ~EDGE_BIT;
+            if ((p & EDGE_BIT) != 0) {
+                break;
+            }
+            edge += 4;
+        }
+        return Arrays.copyOf(parents, n);
+    }
+
+    private int position(byte[] sha) {
+        int position = find(sha);
+        if (position < 0) {
+            throw new GitException("commit not in graph: " + GitHex.encode(sha));
+        }
+        return position;
+    }
+
+    public boolean isAncestor(byte[] ancestor, byte[] commit) {
+        int target = position(ancestor);
+        int start = position(commit);
+        int generation = getGeneration(target);
+        BitSet seen = new BitSet(count);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = start;
+        seen.set(start);
+        while (top > 0) {
+            int c = stack[--top];
+            if (c == target) {
+                return true;
+            }
+            for (int p : getParents(c)) {
+                if (!seen.get(p) && getGeneration(p) >= generation) {
+                    seen.set(p);
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = p;
+                }
+            }
+        }
+        return false;
+    }
+
+    public List<byte[]> getMergeBases(byte[] a, byte[] b) {
+        int first = position(a);
+        int second = position(b);
+        List<byte[]> result = new ArrayList<>();
+        if (first == second) {
+            result.add(getId(first));
+            return result;
+        }
+        byte[] flags = new byte[count];
+        Queue queue = new Queue(true);
+        flags[first] |= PARENT1;
+        flags[second] |= PARENT2;
+        queue.add(first);
+        queue.add(second);
+        List<Integer> candidates = new ArrayList<>();
+        while (queue.hasNonStale(flags)) {
+            int c = queue.poll();
+            int f = flags[c] & (PARENT1 | PARENT2 | STALE);
+            if (f == (PARENT1 | PARENT2)) {
+                if ((flags[c] & RESULT) == 0) {
+                    flags[c] |= RESULT;
+                    candidates.add(c);
+                }
+                f |= STALE;
+            }
+            for (int p : getParents(c)) {
+                if ((flags[p] & f) == f) {
+                    continue;
+                }
+                flags[p] |= f;
+                queue.add(p);
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            boolean redundant = false;
+            for (int j = 0; j < candidates.size() && !redundant; j++) {
+                redundant = i != j && isAncestor(getId(candidates.get(i)), getId(candidates.get(j)));
+            }
+            if (!redundant) {
+                result.add(getId(candidates.get(i)));
+            }
+        }
+        return result;
+    }
+
+    public List<byte[]> log(byte[] head) {
+        return log(head, Integer.MAX_VALUE);
+    }
+
+    public List<byte[]> log(byte[] head, int limit) {
+        int start = position(head);
+        List<byte[]> result = new ArrayList<>();
+        BitSet seen = new BitSet(count);
+        Queue queue = new Queue(false);
+        queue.add(start);
+        seen.set(start);
+        while (!queue.isEmpty() && result.size() < limit) {
+            int c = queue.poll();
+            result.add(getId(c));
+            for (int p : getParents(c)) {
+                if (!seen.get(p)) {
+                    seen.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+        return result;
+    }
+
+    private class Queue {
+        private final boolean byGeneration;
+        private int[] heap = new int[16];
+        private long[] order = new long[16];
+        private int size;
+        private long sequence;
+
+        Queue(boolean byGeneration) {
+            this.byGeneration = byGeneration;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean hasNonStale(byte[] flags) {
+            for (int i = 0; i < size; i++) {
+                if ((flags[heap[i]] & STALE) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean before(int i, int j) {
+            int a = heap[i];
+            int b = heap[j];
+            if (byGeneration) {
+                int c = Integer.compare(getGeneration(a), getGeneration(b));
+                if (c != 0) {
+                    return c > 0;
+                }
+            }
+            int c = Long.compare(getCommitTime(a), getCommitTime(b));
+            if (c != 0) {
+                return c > 0;
+            }
+            return order[i] < order[j];
+        }
+
+        void add(int position) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                order = Arrays.copyOf(order, size * 2);
+            }
+            heap[size] = position;
+            order[size] = sequence++;
+            int i = size++;
+            while (i > 0 && before(i, (i - 1) / 2)) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        int poll() {
+            int result = heap[0];
+            size--;
+            heap[0] = heap[size];
+            order[0] = order[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int best = i;
+                if (left < size && before(left, best)) {
+                    best = left;
+                }
+                if (right < size && before(right, best)) {
+                    best = right;
+                }
+                if (best == i) {
+                    return result;
+                }
+                swap(i, best);
+                i = best;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int h = heap[i];
+            heap[i] = heap[j];
+            heap[j] = h;
+            long o = order[i];
+            order[i] = order[j];
+            order[j] = o;
+        }
+    }
+
+    private static class Commit {
+        private final byte[] sha;
+        private final byte[] tree;
+        private final long time;
+        private final List<byte[]> parents = new ArrayList<>(2);
+        private int position;
+
+        Commit(byte[] sha, byte[] tree, long time) {
+            this.sha = sha;
+            this.tree = tree;
+            this.time = time;
+        }
+    }
+}
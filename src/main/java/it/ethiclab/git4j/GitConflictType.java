@@ -0,0 +1,10 @@
+package it.ethiclab.git4j;
+
+public enum GitConflictType {
+    CONTENT,
+    ADD_ADD,
+    MODIFY_DELETE,
+    FILE_DIRECTORY,
+    MODE,
+    BINARY
+}
@@ -0,0 +1,212 @@
+package it.ethiclab.git4j;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+public final class GitDelta {
+
+    private static final int BLOCK = 16;
+    private static final int MAX_COPY = 0x10000;
+    private static final int MAX_INSERT = 0x7f;
+    private static final int MAX_CHAIN = 64;
+
+    private GitDelta() {
+    }
+
+    public static byte[] encode(byte[] base, byte[] target) {
+        return new Index(base).encode(target, Integer.MAX_VALUE);
+    }
+
+    public static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        long baseSize = readSize(delta, pos);
+        if (baseSize != base.length) {
+            throw new GitException("delta base size mismatch: expected " + baseSize + " but was " + base.length);
+        }
+        long targetSize = readSize(delta, pos);
+        if (targetSize > Integer.MAX_VALUE) {
+            throw new GitException("delta target too large: " + targetSize);
+        }
+        byte[] target = new byte[(int) targetSize];
+        int out = 0;
+        int i = pos[0];
+        while (i < delta.length) {
+            int op = delta[i++] & 0xff;
+            if ((op & 0x80) != 0) {
+                int offset = 0;
+                int size = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((op & (1 << bit)) != 0) {
+                        offset |= (delta[i++] & 0xff) << (8 * bit);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((op & (0x10 << bit)) != 0) {
+                        size |= (delta[i++] & 0xff) << (8 * bit);
+                    }
+                }
+                if (size == 0) {
+                    size = MAX_COPY;
+                }
+                if (offset < 0 || offset + size > base.length || out + size > target.length) {
+                    throw new GitException("corrupt delta: copy out of bounds");
+                }
+                System.arraycopy(base, offset, target, out, size);
+                out += size;
+            } else if (op != 0) {
+                if (i + op > delta.length || out + op > target.length) {
+                    throw new GitException("corrupt delta: insert out of bounds");
+                }
+                System.arraycopy(delta, i, target, out, op);
+                i += op;
+                out += op;
+            } else {
+                throw new GitException("corrupt delta: reserved opcode");
+            }
+        }
+        if (out != target.length) {
+            throw new GitException("corrupt delta: expected " + target.length + " bytes but produced " + out);
+        }
+        return target;
+    }
+
+    static long targetSize(byte[] delta) {
+        int[] pos = {0};
+        readSize(delta, pos);
+        return readSize(delta, pos);
+    }
+
+    private static long readSize(byte[] delta, int[] pos) {
+        long size = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = delta[pos[0]++] & 0xff;
+            size |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return size;
+    }
+
+    private static void writeSize(ByteArrayOutputStream out, long size) {
+        while (size >= 0x80) {
+            out.write((int) (size & 0x7f) | 0x80);
+            size >>>= 7;
+        }
+        out.write((int) size);
+    }
+
+    private static int hash(byte[] buf, int offset) {
+        int h = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            h = h * 31 + buf[offset + i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public static final class Index {
+        private final byte[] base;
+        private final int[] head;
+        private final int[] next;
+        private final int mask;
+
+        public Index(byte[] base) {
+            this.base = base;
+            int blocks = base.length / BLOCK;
+            int size = Integer.highestOneBit(Math.max(1, blocks) * 2 - 1) << 1;
+            head = new int[size];
+            next = new int[blocks];
+            mask = size - 1;
+            Arrays.fill(head, -1);
+            for (int block = 0; block < blocks; block++) {
+                int bucket = hash(base, block * BLOCK) & mask;
+                next[block] = head[bucket];
+                head[bucket] = block;
+            }
+        }
+
+        public byte[] getBase() {
+            return base;
+        }
+
+        public byte[] encode(byte[] target, int maxSize) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(target.length, maxSize) + 16);
+            writeSize(out, base.length);
+            writeSize(out, target.length);
+            int literal = 0;
+            int i = 0;
+            while (i + BLOCK <= target.length) {
+                int bestOffset = -1;
+                int bestLength = 0;
+                int chain = 0;
+                for (int block = head[hash(target, i) & mask]; block >= 0 && chain < MAX_CHAIN; block = next[block], chain++) {
+                    int offset = block * BLOCK;
+                    int length = 0;
+                    while (offset + length < base.length && i + length < target.length
+                            && base[offset + length] == target[i + length]) {
+                        length++;
+                    }
+                    if (length > bestLength) {
+                        bestLength = length;
+                        bestOffset = offset;
+                    }
+                }
+                if (bestLength < BLOCK) {
+                    i++;
+                    continue;
+                }
+                while (literal < i && bestOffset > 0 && base[bestOffset - 1] == target[i - 1]) {
+                    bestOffset--;
+                    bestLength++;
+                    i--;
+                }
+                writeInsert(out, target, literal, i);
+                writeCopy(out, bestOffset, bestLength);
+                i += bestLength;
+                literal = i;
+                if (out.size() > maxSize) {
+                    return null;
+                }
+            }
+            writeInsert(out, target, literal, target.length);
+            return out.size() > maxSize ? null : out.toByteArray();
+        }
+
+        private static void writeInsert(ByteArrayOutputStream out, byte[] target, int from, int to) {
+            while (from < to) {
+                int length = Math.min(MAX_INSERT, to - from);
+                out.write(length);
+                out.write(target, from, length);
+                from += length;
+            }
+        }
+
+        private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+            while (length > 0) {
+                int size = Math.min(MAX_COPY, length);
+                int op = 0x80;
+                byte[] args = new byte[7];
+                int n = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    int b = (offset >>> (8 * bit)) & 0xff;
+                    if (b != 0) {
+                        op |= 1 << bit;
+                        args[n++] = (byte) b;
+                    }
+                }
+                int encodedSize = size == MAX_COPY ? 0 : size;
+                for (int bit = 0; bit < 3; bit++) {
+                    int b = (encodedSize >>> (8 * bit)) & 0xff;
+                    if (b != 0) {
+                        op |= 0x10 << bit;
+                        args[n++] = (byte) b;
+                    }
+                }
+                out.write(op);
+                out.write(args, 0, n);
+                offset += size;
+                length -= size;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package it.ethiclab.git4j;
+
+public enum GitDurability {
+    NONE,
+    BATCH,
+    OBJECT
+}
@@ -0,0 +1,317 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+public class GitGc {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final String GITLINK_MODE = "160000";
+
+    private final Git git;
+    private final File gitDir;
+    private final File objectsFolder;
+    private final File packFolder;
+    private long gracePeriod = 14 * DAY;
+    private boolean incremental;
+    private BiConsumer<String, Integer> progress = (phase, count) -> {
+    };
+
+    public GitGc(Git git, File gitDir) {
+        this.git = git;
+        this.gitDir = gitDir;
+        this.objectsFolder = new File(gitDir, "objects");
+        this.packFolder = new File(objectsFolder, "pack");
+    }
+
+    public long getGracePeriod() {
+        return gracePeriod;
+    }
+
+    public void setGracePeriod(long gracePeriod) {
+        if (gracePeriod < 0) {
+            throw new GitException("invalid grace period " + gracePeriod);
+        }
+        this.gracePeriod = gracePeriod;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setProgress(BiConsumer<String, Integer> progress) {
+        this.progress = progress;
+    }
+
+    public GitGcStats run() {
+        GitGcStats stats = new GitGcStats();
+        long expire = System.currentTimeMillis() - gracePeriod;
+        GitPackDatabase packs = git.packDatabase(packFolder);
+        packs.rescan();
+        List<GitPack> oldPacks = new ArrayList<>();
+        List<GitPack> keptPacks = new ArrayList<>();
+        for (GitPack pack : packs.getPacks()) {
+            if (keep(pack.getFile())) {
+                keptPacks.add(pack);
+            } else if (!incremental) {
+                oldPacks.add(pack);
+            }
+        }
+        GitRefDatabase refs = new GitRefDatabase(git, gitDir);
+
+        long start = System.nanoTime();
+        GitObjectIdSet reachable = new GitObjectIdSet(git.getDigestLength(), 1024);
+        GitObjectIdSet packed = new GitObjectIdSet(git.getDigestLength(), 1024);
+        GitPackWriter writer = new GitPackWriter(git);
+        Deque<Item> pending = new ArrayDeque<>();
+        byte[] head = refs.resolve("HEAD");
+        if (head != null) {
+            pending.push(new Item(head, null, null));
+        }
+        for (GitRef ref : refs.getRefs("refs/").values()) {
+            if (!ref.isSymbolic()) {
+                pending.push(new Item(ref.getId(), null, null));
+            }
+        }
+        File indexFile = new File(gitDir, "index");
+        if (indexFile.isFile()) {
+            GitIndex index = new GitIndex(git, indexFile);
+            for (GitIndexEntry entry : index.getEntries()) {
+                if (!GITLINK_MODE.equals(entry.getOctalMode())) {
+                    pending.push(new Item(entry.getSha1(), entry.getPath(), GitObjectType.BLOB));
+                }
+            }
+            for (byte[] tree : index.getCachedTrees()) {
+                pending.push(new Item(tree, null, GitObjectType.TREE));
+            }
+        }
+        walk(pending, reachable, packed, keptPacks, writer);
+        stats.setReachableCount(reachable.size());
+        GitObjectIdSet dropped = new GitObjectIdSet(git.getDigestLength(), 16);
+        for (GitPack pack : oldPacks) {
+            boolean recent = pack.getFile().lastModified() > expire;
+            GitPackIndex index = pack.getIndex();
+            for (int i = 0; i < index.getObjectCount(); i++) {
+                byte[] sha = index.getObjectId(i);
+                if (reachable.contains(sha)) {
+                    continue;
+                }
+                if (!recent) {
+                    dropped.add(sha);
+                } else if (packed.add(sha)) {
+                    long offset = index.getOffset(i);
+                    writer.add(sha, null, pack.getType(offset), pack.getSize(offset), () -> read(sha));
+                }
+            }
+        }
+        stats.setWalkNanos(System.nanoTime() - start);
+        progress.accept("walk", reachable.size());
+
+        start = System.nanoTime();
+        stats.setPackedCount(packed.size());
+        File newPack = null;
+        try {
+            if (packed.size() > 0) {
+                byte[] checksum = writer.write(packFolder);
+                stats.setPackChecksum(checksum);
+                newPack = new File(packFolder, "pack-" + git.binaryToHex(checksum) + ".pack");
+            }
+            progress.accept("pack", packed.size());
+            stats.setPackNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int removedPacks = 0;
+            for (GitPack pack : oldPacks) {
+                if (!pack.getFile().equals(newPack)) {
+                    delete(pack.getFile());
+                    removedPacks++;
+                }
+            }
+            stats.setRemovedPackCount(removedPacks);
+            packs.rescan();
+            if (!incremental) {
+                refs.pack();
+            }
+            pruneLoose(reachable, packed, keptPacks, expire, stats);
+            stats.setPrunedCount(stats.getPrunedCount() + dropped.size());
+            stats.setPruneNanos(System.nanoTime() - start);
+            progress.accept("prune", stats.getPrunedCount());
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        return stats;
+    }
+
+    private void walk(Deque<Item> pending, GitObjectIdSet reachable, GitObjectIdSet packed, List<GitPack> keptPacks,
+            GitPackWriter writer) {
+        while (!pending.isEmpty()) {
+            Item item = pending.pop();
+            byte[] sha = item.sha;
+            if (!reachable.add(sha)) {
+                continue;
+            }
+            if (reachable.size() % PROGRESS_INTERVAL == 0) {
+                progress.accept("walk", reachable.size());
+            }
+            if (incremental && !isLoose(sha) && git.has(objectsFolder, sha)) {
+                continue;
+            }
+            boolean kept = contains(keptPacks, sha);
+            if (item.type == GitObjectType.BLOB) {
+                if (!kept) {
+                    packed.add(sha);
+                    long size = git.getSize(objectsFolder, sha);
+                    if (size < 0) {
+                        throw new GitException("missing object " + git.binaryToHex(sha));
+                    }
+                    writer.add(sha, item.path, GitObjectType.BLOB, size, () -> read(sha));
+                }
+                continue;
+            }
+            GitRawObject raw = read(sha);
+            if (!kept) {
+                packed.add(sha);
+                writer.add(sha, null, raw.getType(), raw.getSize(), () -> read(sha));
+            }
+            switch (raw.getType()) {
+                case COMMIT:
+                    GitCommit commit = (GitCommit) git.parse(raw);
+                    for (String parent : commit.getParentCommits()) {
+                        pending.push(new Item(git.hexToBinary(parent), null, GitObjectType.COMMIT));
+                    }
+                    pending.push(new Item(git.hexToBinary(commit.getTree()), null, GitObjectType.TREE));
+                    break;
+                case TREE:
+                    for (GitTreeEntry entry : ((GitTreeEntry) git.parse(raw)).getObjects()) {
+                        if (GITLINK_MODE.equals(entry.getOctalMode())) {
+                            continue;
+                        }
+                        pending.push(new Item(entry.getSha1(), entry.getName(),
+                                entry.isTree() ? GitObjectType.TREE : GitObjectType.BLOB));
+                    }
+                    break;
+                case TAG:
+                    pending.push(new Item(tagObject(raw), null, null));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private byte[] tagObject(GitRawObject raw) {
+        String header = new String(raw.getData(), 0, Math.min(raw.getSize(), 7 + git.getDigestLength() * 2), StandardCharsets.US_ASCII);
+        if (!header.startsWith("object ") || header.length() < 7 + git.getDigestLength() * 2) {
+            throw new GitException("corrupt tag");
+        }
+        return git.hexToBinary(header.substring(7));
+    }
+
+    private GitRawObject read(byte[] sha) {
+        GitRawObject raw = git.readRaw(objectsFolder, sha);
+        if (raw == null) {
+            throw new GitException("missing object " + git.binaryToHex(sha));
+        }
+        return raw;
+    }
+
+    private boolean isLoose(byte[] sha) {
+        String hex = git.binaryToHex(sha);
+        return new File(new File(objectsFolder, hex.substring(0, 2)), hex.substring(2)).isFile();
+    }
+
+    private void pruneLoose(GitObjectIdSet reachable, GitObjectIdSet packed, List<GitPack> keptPacks, long expire,
+            GitGcStats stats) throws IOException {
+        File[] dirs = objectsFolder.listFiles((dir, name) -> name.length() == 2 && isHex(name));
+        if (dirs == null) {
+            return;
+        }
+        int hexLength = git.getDigestLength() * 2;
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith("tmp_")) {
+                    if (file.lastModified() <= expire) {
+                        Files.deleteIfExists(file.toPath());
+                    }
+                    continue;
+                }
+                if (name.length() != hexLength - 2 || !isHex(name)) {
+                    continue;
+                }
+                byte[] sha = git.hexToBinary(dir.getName() + name);
+                if (packed.contains(sha) || contains(keptPacks, sha)) {
+                    Files.deleteIfExists(file.toPath());
+                    stats.setRemovedLooseCount(stats.getRemovedLooseCount() + 1);
+                } else if (!incremental && !reachable.contains(sha) && file.lastModified() <= expire) {
+                    Files.deleteIfExists(file.toPath());
+                    stats.setPrunedCount(stats.getPrunedCount() + 1);
+                } else {
+                    stats.setKeptLooseCount(stats.getKeptLooseCount() + 1);
+                }
+            }
+            String[] left = dir.list();
+            if (left != null && left.length == 0) {
+                Files.deleteIfExists(dir.toPath());
+            }
+        }
+    }
+
+    private static boolean isHex(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(List<GitPack> packs, byte[] sha) {
+        for (GitPack pack : packs) {
+            if (pack.has(sha)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean keep(File pack) {
+        return new File(pack.getParentFile(), pack.getName().replaceAll("\\.pack$", ".keep")).exists();
+    }
+
+    private static void delete(File pack) throws IOException {
+        String base = pack.getName().replaceAll("\\.pack$", "");
+        for (String extension : new String[]{".pack", ".idx", ".rev", ".bitmap"}) {
+            Files.deleteIfExists(new File(pack.getParentFile(), base + extension).toPath());
+        }
+    }
+
+    private static class Item {
+        private final byte[] sha;
+        private final String path;
+        private final GitObjectType type;
+
+        Item(byte[] sha, String path, GitObjectType type) {
+            this.sha = sha;
+            this.path = path;
+            this.type = type;
+        }
+    }
+}
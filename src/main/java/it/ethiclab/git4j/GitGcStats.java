@@ -0,0 +1,103 @@
+package it.ethiclab.git4j;
+
+public class GitGcStats {
+
+    private int reachableCount;
+    private int packedCount;
+    private int removedLooseCount;
+    private int prunedCount;
+    private int keptLooseCount;
+    private int removedPackCount;
+    private byte[] packChecksum;
+    private long walkNanos;
+    private long packNanos;
+    private long pruneNanos;
+
+    public int getReachableCount() {
+        return reachableCount;
+    }
+
+    void setReachableCount(int reachableCount) {
+        this.reachableCount = reachableCount;
+    }
+
+    public int getPackedCount() {
+        return packedCount;
+    }
+
+    void setPackedCount(int packedCount) {
+        this.packedCount = packedCount;
+    }
+
+    public int getRemovedLooseCount() {
+        return removedLooseCount;
+    }
+
+    void setRemovedLooseCount(int removedLooseCount) {
+        this.removedLooseCount = removedLooseCount;
+    }
+
+    public int getPrunedCount() {
+        return prunedCount;
+    }
+
+    void setPrunedCount(int prunedCount) {
+        this.prunedCount = prunedCount;
+    }
+
+    public int getKeptLooseCount() {
+        return keptLooseCount;
+    }
+
+    void setKeptLooseCount(int keptLooseCount) {
+        this.keptLooseCount = keptLooseCount;
+    }
+
+    public int getRemovedPackCount() {
+        return removedPackCount;
+    }
+
+    void setRemovedPackCount(int removedPackCount) {
+        this.removedPackCount = removedPackCount;
+    }
+
+    public byte[] getPackChecksum() {
+        return packChecksum;
+    }
+
+    void setPackChecksum(byte[] packChecksum) {
+        this.packChecksum = packChecksum;
+    }
+
+    public long getWalkNanos() {
+        return walkNanos;
+    }
+
+    void setWalkNanos(long walkNanos) {
+        this.walkNanos = walkNanos;
+    }
+
+    public long getPackNanos() {
+        return packNanos;
+    }
+
+    void setPackNanos(long packNanos) {
+        this.packNanos = packNanos;
+    }
+
+    public long getPruneNanos() {
+        return pruneNanos;
+    }
+
+    void setPruneNanos(long pruneNanos) {
+        this.pruneNanos = pruneNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "reachable " + reachableCount + ", packed " + packedCount + ", removed loose " + removedLooseCount
+                + ", pruned " + prunedCount + ", kept loose " + keptLooseCount + ", removed packs " + removedPackCount
+                + ", walk " + walkNanos / 1_000_000 + " ms, pack " + packNanos / 1_000_000 + " ms, prune "
+                + pruneNanos / 1_000_000 + " ms";
+    }
+}
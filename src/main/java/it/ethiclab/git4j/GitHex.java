@@ -0,0 +1,66 @@
+package it.ethiclab.git4j;
+
+import java.util.Arrays;
+
+final class GitHex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] PAIRS = new char[512];
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            PAIRS[2 * i] = DIGITS[i >>> 4];
+            PAIRS[2 * i + 1] = DIGITS[i & 0xf];
+        }
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private GitHex() {
+    }
+
+    static String encode(byte[] bytes) {
+        return encode(bytes, 0, bytes.length);
+    }
+
+    static String encode(byte[] bytes, int offset, int length) {
+        char[] chars = new char[2 * length];
+        encode(bytes, offset, length, chars, 0);
+        return new String(chars);
+    }
+
+    static void encode(byte[] bytes, int offset, int length, char[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            int b = (bytes[offset + i] & 0xff) << 1;
+            out[outOffset++] = PAIRS[b];
+            out[outOffset++] = PAIRS[b + 1];
+        }
+    }
+
+    static byte[] decode(CharSequence hex) {
+        if (hex.length() % 2 != 0) {
+            throw new GitException("invalid hex string " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0, j = 0; i < bytes.length; i++, j += 2) {
+            int hi = value(hex.charAt(j));
+            int lo = value(hex.charAt(j + 1));
+            if ((hi | lo) < 0) {
+                throw new GitException("invalid hex string " + hex);
+            }
+            bytes[i] = (byte) (hi << 4 | lo);
+        }
+        return bytes;
+    }
+
+    private static int value(char c) {
+        return c < 128 ? VALUES[c] : -1;
+    }
+}
@@ -0,0 +1,236 @@
+package it.ethiclab.git4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class GitIncrementalCheckout {
+
+    private static final int SPLIT = 64;
+
+    private final Git git;
+    private final GitObjectStore store;
+    private final Path root;
+    private final GitIndex index;
+    private final Map<Path, Throwable> failures = new ConcurrentSkipListMap<>();
+
+    GitIncrementalCheckout(Git git, GitObjectStore store, Path root, GitIndex index) {
+        this.git = git;
+        this.store = store;
+        this.root = root.toAbsolutePath().normalize();
+        this.index = index;
+    }
+
+    int run(GitTreeEntry from, GitTreeEntry to, int parallelism) {
+        if (parallelism < 1) {
+            throw new GitException("invalid parallelism " + parallelism);
+        }
+        GitTreeDiff diff = new GitTreeDiff(git, store);
+        diff.setVerifyNames(true);
+        List<GitChange> changes = diff.diff(from, to);
+        for (GitChange change : changes) {
+            verify(change);
+        }
+        fail();
+        List<GitChange> writes = new ArrayList<>();
+        for (GitChange change : changes) {
+            switch (change.getType()) {
+                case DELETE:
+                    delete(change.getPath());
+                    break;
+                case TYPE_CHANGE:
+                    delete(change.getPath());
+                    writes.add(change);
+                    break;
+                default:
+                    writes.add(change);
+                    break;
+            }
+        }
+        fail();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new WriteTask(writes, 0, writes.size()));
+        } finally {
+            pool.shutdown();
+        }
+        fail();
+        return changes.size();
+    }
+
+    private void fail() {
+        if (!failures.isEmpty()) {
+            throw new GitCheckoutException(failures);
+        }
+    }
+
+    private Path resolve(String path) {
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new GitException("path outside the work tree: " + path);
+        }
+        return file;
+    }
+
+    private void verify(GitChange change) {
+        Path file = resolve(change.getPath());
+        try {
+            if (change.getType() == GitChangeType.ADD) {
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)
+                        && !matches(change.getPath(), file, change.getNewMode(), change.getNewId())) {
+                    failures.put(file, new GitException("untracked file would be overwritten: " + change.getPath()));
+                }
+            } else if (Files.exists(file, LinkOption.NOFOLLOW_LINKS) && !matches(change.getPath(), file, change.getOldMode(), change.getOldId())) {
+                failures.put(file, new GitException("local changes would be overwritten: " + change.getPath()));
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.put(file, e);
+        }
+    }
+
+    private boolean matches(String path, Path file, String mode, byte[] sha) throws IOException {
+        if (isGitlink(mode)) {
+            return Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS);
+        }
+        String actual = GitSnapshot.mode(file);
+        if (!actual.equals(mode) && !(isSymlink(mode) && !supportsSymlinks())) {
+            return false;
+        }
+        if (index != null) {
+            GitIndexEntry entry = index.getEntry(path);
+            if (entry != null && Arrays.equals(entry.getSha1(), sha) && index.isUpToDate(entry, GitIndex.stat(path, file))) {
+                return true;
+            }
+        }
+        return Arrays.equals(git.getSha(GitSnapshot.blob(file, actual)), sha);
+    }
+
+    private void delete(String path) {
+        Path file = resolve(path);
+        try {
+            Files.deleteIfExists(file);
+            if (index != null) {
+                index.remove(path);
+            }
+            for (Path dir = file.getParent(); dir != null && !dir.equals(root) && dir.startsWith(root); dir = dir.getParent()) {
+                try {
+                    Files.delete(dir);
+                } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.put(file, e);
+        }
+    }
+
+    private void write(GitChange change) throws IOException {
+        Path file = resolve(change.getPath());
+        String mode = change.getNewMode();
+        if (change.getType() != GitChangeType.MODE_CHANGE) {
+            Files.createDirectories(file.getParent());
+            if (isGitlink(mode)) {
+                Files.createDirectories(file);
+            } else if (isSymlink(mode) && supportsSymlinks()) {
+                GitRawObject raw = store.get(change.getNewId());
+                if (raw == null) {
+                    throw new GitException("missing object " + git.binaryToHex(change.getNewId()));
+                }
+                Files.deleteIfExists(file);
+                Files.createSymbolicLink(file, Paths.get(new String(raw.getData(), StandardCharsets.UTF_8)));
+            } else if (!store.copy(change.getNewId(), file)) {
+                throw new GitException("missing object " + git.binaryToHex(change.getNewId()));
+            }
+        }
+        if (!isSymlink(mode) && !isGitlink(mode)) {
+            setExecutable(file, GitSnapshot.EXECUTABLE_MODE.equals(mode));
+        }
+        if (index != null && !isGitlink(mode)) {
+            index.put(GitIndex.stat(change.getPath(), file).withSha1(change.getNewId()));
+        }
+    }
+
+    private static void setExecutable(Path file, boolean executable) throws IOException {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            boolean changed = executable
+                    ? permissions.add(PosixFilePermission.OWNER_EXECUTE) | addReadable(permissions)
+                    : permissions.remove(PosixFilePermission.OWNER_EXECUTE)
+                    | permissions.remove(PosixFilePermission.GROUP_EXECUTE)
+                    | permissions.remove(PosixFilePermission.OTHERS_EXECUTE);
+            if (changed) {
+                Files.setPosixFilePermissions(file, permissions);
+            }
+        } catch (UnsupportedOperationException e) {
+            file.toFile().setExecutable(executable);
+        }
+    }
+
+    private static boolean addReadable(Set<PosixFilePermission> permissions) {
+        boolean changed = false;
+        if (permissions.contains(PosixFilePermission.GROUP_READ)) {
+            changed |= permissions.add(PosixFilePermission.GROUP_EXECUTE);
+        }
+        if (permissions.contains(PosixFilePermission.OTHERS_READ)) {
+            changed |= permissions.add(PosixFilePermission.OTHERS_EXECUTE);
+        }
+        return changed;
+    }
+
+    private static boolean isSymlink(String mode) {
+        return GitSnapshot.SYMLINK_MODE.equals(mode);
+    }
+
+    private static boolean isGitlink(String mode) {
+        return "160000".equals(mode);
+    }
+
+    private static boolean supportsSymlinks() {
+        return !System.getProperty("os.name").startsWith("Windows");
+    }
+
+    private class WriteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<GitChange> changes;
+        private final int from;
+        private final int to;
+
+        WriteTask(List<GitChange> changes, int from, int to) {
+            this.changes = changes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new WriteTask(changes, from, middle), new WriteTask(changes, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                GitChange change = changes.get(i);
+                try {
+                    write(change);
+                } catch (IOException | RuntimeException e) {
+                    failures.put(resolve(change.getPath()), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package it.ethiclab.git4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class GitIndex {
+
+    private static final int SIGNATURE = 0x44495243;
+    private static final int CACHED_TREE = 0x54524545;
+    private static final int RESOLVE_UNDO = 0x52455543;
+    private static final int UNTRACKED_CACHE = 0x554e5452;
+    private static final int FS_MONITOR = 0x46534d4e;
+    private static final int HEADER = 12;
+    private static final int STAT = 40;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final boolean UNIX = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private static final GitIndexEntry REMOVED = new GitIndexEntry("", 0, null);
+    private static final Comparator<GitIndexEntry> ORDER = (a, b) -> {
+        int c = compare(a.getPath().getBytes(StandardCharsets.UTF_8), b.getPath().getBytes(StandardCharsets.UTF_8));
+        return c != 0 ? c : Integer.compare(a.getStage(), b.getStage());
+    };
+
+    private final Git git;
+    private final File file;
+    private final int idLength;
+    private final Map<String, GitIndexEntry> changes = new ConcurrentHashMap<>();
+    private ByteBuffer buf;
+    private int[] offsets = new int[0];
+    private long timestamp;
+    private int extensions;
+
+    public GitIndex(Git git) {
+        this(git, null);
+    }
+
+    public GitIndex(Git git, File file) {
+        this.git = git;
+        this.file = file;
+        this.idLength = git.getDigestLength();
+        if (file != null && file.exists()) {
+            load();
+        }
+    }
+
+    private void load() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new GitException("index too large: " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            timestamp = Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        int end = buf.capacity() - idLength;
+        if (end < HEADER || buf.getInt(0) != SIGNATURE) {
+            throw new GitException("corrupt index " + file);
+        }
+        int version = buf.getInt(4);
+        if (version != 2 && version != 3) {
+            throw new GitException("unsupported index version " + version);
+        }
+        MessageDigest digest = git.getDigest();
+        ByteBuffer content = buf.duplicate();
+        ((Buffer) content).limit(end);
+        digest.update(content);
+        byte[] checksum = new byte[idLength];
+        ByteBuffer trailer = buf.duplicate();
+        ((Buffer) trailer).position(end);
+        trailer.get(checksum);
+        if (!Arrays.equals(digest.digest(), checksum)) {
+            throw new GitException("index checksum mismatch " + file);
+        }
+        int count = buf.getInt(8);
+        offsets = new int[count];
+        int pos = HEADER;
+        for (int i = 0; i < count; i++) {
+            if (pos + STAT + idLength + 2 > end) {
+                throw new GitException("truncated index " + file);
+            }
+            offsets[i] = pos;
+            int name = nameOffset(pos);
+            pos += (name - pos + nameLength(pos, name, end) + 8) & ~7;
+        }
+        if (pos > end) {
+            throw new GitException("truncated index " + file);
+        }
+        extensions = pos;
+        while (pos + 8 <= end) {
+            int size = buf.getInt(pos + 4);
+            if (size < 0 || size > end - pos - 8) {
+                throw new GitException("corrupt index " + file);
+            }
+            byte first = buf.get(pos);
+            if (first < 'A' || first > 'Z') {
+                byte[] signature = new byte[4];
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = buf.get(pos + i);
+                }
+                throw new GitException("unsupported index extension " + new String(signature, StandardCharsets.ISO_8859_1) + " in " + file);
+            }
+            pos += 8 + size;
+        }
+        if (pos != end) {
+            throw new GitException("corrupt index " + file);
+        }
+    }
+
+    List<byte[]> getCachedTrees() {
+        List<byte[]> trees = new ArrayList<>();
+        if (buf == null) {
+            return trees;
+        }
+        int end = buf.capacity() - idLength;
+        int pos = extensions;
+        while (pos < end) {
+            int signature = buf.getInt(pos);
+            int size = buf.getInt(pos + 4);
+            pos += 8;
+            if (signature == CACHED_TREE) {
+                int limit = pos + size;
+                int p = pos;
+                while (p < limit) {
+                    p = skip(p, limit, (byte) 0);
+                    int count = p;
+                    p = skip(p, limit, (byte) ' ');
+                    boolean valid = buf.get(count) != '-';
+                    p = skip(p, limit, (byte) '\n');
+                    if (valid) {
+                        if (p + idLength > limit) {
+                            throw new GitException("corrupt index " + file);
+                        }
+                        byte[] sha = new byte[idLength];
+                        ByteBuffer b = buf.duplicate();
+                        ((Buffer) b).position(p);
+                        b.get(sha);
+                        trees.add(sha);
+                        p += idLength;
+                    }
+                }
+            }
+            pos += size;
+        }
+        return trees;
+    }
+
+    private int skip(int pos, int limit, byte terminator) {
+        while (pos < limit && buf.get(pos) != terminator) {
+            pos++;
+        }
+        if (pos >= limit) {
+            throw new GitException("corrupt index " + file);
+        }
+        return pos + 1;
+    }
+
+    private int flags(int pos) {
+        return buf.getShort(pos + STAT + idLength) & 0xffff;
+    }
+
+    private int nameOffset(int pos) {
+        return pos + STAT + idLength + 2 + ((flags(pos) & GitIndexEntry.EXTENDED_FLAG) != 0 ? 2 : 0);
+    }
+
+    private int nameLength(int pos, int name, int end) {
+        int length = flags(pos) & 0xfff;
+        if (length < 0xfff) {
+            return length;
+        }
+        length = 0;
+        while (name + length < end && buf.get(name + length) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private String path(int pos) {
+        int name = nameOffset(pos);
+        byte[] bytes = new byte[nameLength(pos, name, buf.capacity())];
+        ByteBuffer b = buf.duplicate();
+        ((Buffer) b).position(name);
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private GitIndexEntry decode(int pos) {
+        int flags = flags(pos);
+        byte[] sha = new byte[idLength];
+        ByteBuffer b = buf.duplicate();
+        ((Buffer) b).position(pos + STAT);
+        b.get(sha);
+        int extended = (flags & GitIndexEntry.EXTENDED_FLAG) != 0 ? buf.getShort(pos + STAT + idLength + 2) & 0xffff : 0;
+        return new GitIndexEntry(path(pos), buf.getInt(pos), buf.getInt(pos + 4), buf.getInt(pos + 8), buf.getInt(pos + 12),
+                buf.getInt(pos + 16), buf.getInt(pos + 20), buf.getInt(pos + 24), buf.getInt(pos + 28),
+                buf.getInt(pos + 32), buf.getInt(pos + 36), sha, flags, extended);
+    }
+
+    private int find(byte[] path) {
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareName(offsets[mid], path);
+            if (c < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low < offsets.length && compareName(offsets[low], path) == 0 ? low : -1;
+    }
+
+    private int compareName(int pos, byte[] path) {
+        int name = nameOffset(pos);
+        int length = nameLength(pos, name, buf.capacity());
+        for (int i = 0; i < length && i < path.length; i++) {
+            int c = (buf.get(name + i) & 0xff) - (path[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - path.length;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isChanged() {
+        return !changes.isEmpty();
+    }
+
+    public GitIndexEntry getEntry(String path) {
+        GitIndexEntry entry = changes.get(path);
+        if (entry != null) {
+            return entry == REMOVED ? null : entry;
+        }
+        int i = find(path.getBytes(StandardCharsets.UTF_8));
+        return i < 0 ? null : decode(offsets[i]);
+    }
+
+    public List<GitIndexEntry> getEntries() {
+        List<GitIndexEntry> changed = new ArrayList<>(changes.size());
+        for (GitIndexEntry entry : changes.values()) {
+            if (entry != REMOVED) {
+                changed.add(entry);
+            }
+        }
+        changed.sort(ORDER);
+        List<GitIndexEntry> entries = new ArrayList<>(offsets.length + changed.size());
+        int j = 0;
+        for (int offset : offsets) {
+            if (changes.isEmpty() || !changes.containsKey(path(offset))) {
+                GitIndexEntry entry = decode(offset);
+                while (j < changed.size() && ORDER.compare(changed.get(j), entry) < 0) {
+                    entries.add(changed.get(j++));
+                }
+                entries.add(entry);
+            }
+        }
+        while (j < changed.size()) {
+            entries.add(changed.get(j++));
+        }
+        return entries;
+    }
+
+    public void put(GitIndexEntry entry) {
+        changes.put(entry.getPath(), entry);
+    }
+
+    public boolean remove(String path) {
+        if (getEntry(path) == null) {
+            return false;
+        }
+        changes.put(path, REMOVED);
+        return true;
+    }
+
+    public void retainAll(Collection<String> paths) {
+        for (int offset : offsets) {
+            String path = path(offset);
+            if (!paths.contains(path)) {
+                changes.put(path, REMOVED);
+            }
+        }
+        for (Map.Entry<String, GitIndexEntry> entry : changes.entrySet()) {
+            if (!paths.contains(entry.getKey())) {
+                entry.setValue(REMOVED);
+            }
+        }
+    }
+
+    public boolean isUpToDate(GitIndexEntry entry, GitIndexEntry stat) {
+        if (entry.isAssumeValid()) {
+            return true;
+        }
+        return entry.getStage() == 0 && entry.isStatEqual(stat) && !isRacy(entry);
+    }
+
+    private boolean isRacy(GitIndexEntry entry) {
+        if (timestamp == 0) {
+            return false;
+        }
+        long mtime = (entry.getMtimeSeconds() & 0xffffffffL) * 1_000_000_000L + entry.getMtimeNanos();
+        return mtime >= timestamp;
+    }
+
+    public void write() {
+        if (file == null) {
+            throw new GitException("index has no file");
+        }
+        write(file);
+        changes.clear();
+        load();
+    }
+
+    public void write(File dest) {
+        List<GitIndexEntry> entries = getEntries();
+        int version = 2;
+        for (GitIndexEntry entry : entries) {
+            if (entry.getExtendedFlags() != 0) {
+                version = 3;
+            }
+        }
+        Path lock = new File(dest.getPath() + ".lock").toPath();
+        try {
+            try (OutputStream fos = Files.newOutputStream(lock, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                MessageDigest digest = git.getDigest();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(fos, digest), BUFFER_SIZE));
+                out.writeInt(SIGNATURE);
+                out.writeInt(version);
+                out.writeInt(entries.size());
+                for (GitIndexEntry entry : entries) {
+                    writeEntry(out, entry);
+                }
+                writeExtensions(out);
+                out.flush();
+                fos.write(digest.digest());
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new GitException("index is locked: " + lock);
+        } catch (IOException e) {
+            deleteQuietly(lock);
+            throw new GitException(e);
+        }
+        try {
+            Files.move(lock, dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(lock);
+            throw new GitException(e);
+        }
+    }
+
+    private void writeExtensions(DataOutputStream out) throws IOException {
+        if (buf == null) {
+            return;
+        }
+        int end = buf.capacity() - idLength;
+        for (int pos = extensions; pos < end; pos += 8 + buf.getInt(pos + 4)) {
+            int signature = buf.getInt(pos);
+            if (signature == RESOLVE_UNDO
+                    || changes.isEmpty() && (signature == CACHED_TREE || signature == UNTRACKED_CACHE || signature == FS_MONITOR)) {
+                byte[] extension = new byte[8 + buf.getInt(pos + 4)];
+                ByteBuffer b = buf.duplicate();
+                ((Buffer) b).position(pos);
+                b.get(extension);
+                out.write(extension);
+            }
+        }
+    }
+
+    private void writeEntry(DataOutputStream out, GitIndexEntry entry) throws IOException {
+        byte[] name = entry.getPath().getBytes(StandardCharsets.UTF_8);
+        boolean extended = entry.getExtendedFlags() != 0;
+        out.writeInt(entry.getCtimeSeconds());
+        out.writeInt(entry.getCtimeNanos());
+        out.writeInt(entry.getMtimeSeconds());
+        out.writeInt(entry.getMtimeNanos());
+        out.writeInt(entry.getDev());
+        out.writeInt(entry.getIno());
+        out.writeInt(entry.getMode());
+        out.writeInt(entry.getUid());
+        out.writeInt(entry.getGid());
+        out.writeInt(entry.getSize());
+        out.write(entry.getSha1());
+        out.writeShort(entry.getFlags() | (extended ? GitIndexEntry.EXTENDED_FLAG : 0) | Math.min(name.length, 0xfff));
+        int fixed = STAT + idLength + 2;
+        if (extended) {
+            out.writeShort(entry.getExtendedFlags());
+            fixed += 2;
+        }
+        out.write(name);
+        int padding = ((fixed + name.length + 8) & ~7) - fixed - name.length;
+        for (int i = 0; i < padding; i++) {
+            out.write(0);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // the original error is more useful
+        }
+    }
+
+    public static GitIndexEntry stat(String path, Path file) throws IOException {
+        if (UNIX) {
+            Map<String, Object> a = Files.readAttributes(file, "unix:mode,ino,dev,uid,gid,size,lastModifiedTime,ctime", LinkOption.NOFOLLOW_LINKS);
+            FileTime ctime = (FileTime) a.get("ctime");
+            FileTime mtime = (FileTime) a.get("lastModifiedTime");
+            return new GitIndexEntry(path, seconds(ctime), nanos(ctime), seconds(mtime), nanos(mtime),
+                    (int) (long) (Long) a.get("dev"), (int) (long) (Long) a.get("ino"), gitMode((Integer) a.get("mode")),
+                    (Integer) a.get("uid"), (Integer) a.get("gid"), (int) (long) (Long) a.get("size"), null, 0, 0);
+        }
+        BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        int mode;
+        if (a.isSymbolicLink()) {
+            mode = 0120000;
+        } else if (a.isDirectory()) {
+            mode = 0040000;
+        } else if (a.isRegularFile()) {
+            mode = GitSnapshot.EXECUTABLE_MODE.equals(GitSnapshot.mode(file)) ? 0100755 : 0100644;
+        } else {
+            mode = 0;
+        }
+        return new GitIndexEntry(path, seconds(a.creationTime()), nanos(a.creationTime()),
+                seconds(a.lastModifiedTime()), nanos(a.lastModifiedTime()), 0, 0, mode, 0, 0, (int) a.size(), null, 0, 0);
+    }
+
+    private static int gitMode(int mode) {
+        switch (mode & 0170000) {
+            case 0120000:
+                return 0120000;
+            case 0040000:
+                return 0040000;
+            case 0100000:
+                return (mode & 0100) != 0 ? 0100755 : 0100644;
+            default:
+                return 0;
+        }
+    }
+
+    private static int seconds(FileTime time) {
+        return (int) time.to(TimeUnit.SECONDS);
+    }
+
+    private static int nanos(FileTime time) {
+        return (int) (time.to(TimeUnit.NANOSECONDS) % 1_000_000_000L);
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+}
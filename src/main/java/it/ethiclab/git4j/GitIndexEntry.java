@@ -0,0 +1,135 @@
+package it.ethiclab.git4j;
+
+public class GitIndexEntry {
+
+    public static final int STAGE_MASK = 0x3000;
+    public static final int EXTENDED_FLAG = 0x4000;
+    public static final int ASSUME_VALID_FLAG = 0x8000;
+
+    private final String path;
+    private final int ctimeSeconds;
+    private final int ctimeNanos;
+    private final int mtimeSeconds;
+    private final int mtimeNanos;
+    private final int dev;
+    private final int ino;
+    private final int mode;
+    private final int uid;
+    private final int gid;
+    private final int size;
+    private final byte[] sha1;
+    private final int flags;
+    private final int extendedFlags;
+
+    public GitIndexEntry(String path, int mode, byte[] sha1) {
+        this(path, 0, 0, 0, 0, 0, 0, mode, 0, 0, 0, sha1, 0, 0);
+    }
+
+    public GitIndexEntry(String path, int ctimeSeconds, int ctimeNanos, int mtimeSeconds, int mtimeNanos,
+                         int dev, int ino, int mode, int uid, int gid, int size, byte[] sha1, int flags, int extendedFlags) {
+        this.path = path;
+        this.ctimeSeconds = ctimeSeconds;
+        this.ctimeNanos = ctimeNanos;
+        this.mtimeSeconds = mtimeSeconds;
+        this.mtimeNanos = mtimeNanos;
+        this.dev = dev;
+        this.ino = ino;
+        this.mode = mode;
+        this.uid = uid;
+        this.gid = gid;
+        this.size = size;
+        this.sha1 = sha1;
+        this.flags = flags & (STAGE_MASK | ASSUME_VALID_FLAG);
+        this.extendedFlags = extendedFlags;
+    }
+
+    GitIndexEntry withSha1(byte[] sha1) {
+        return new GitIndexEntry(path, ctimeSeconds, ctimeNanos, mtimeSeconds, mtimeNanos,
+                dev, ino, mode, uid, gid, size, sha1, flags, extendedFlags);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getCtimeSeconds() {
+        return ctimeSeconds;
+    }
+
+    public int getCtimeNanos() {
+        return ctimeNanos;
+    }
+
+    public int getMtimeSeconds() {
+        return mtimeSeconds;
+    }
+
+    public int getMtimeNanos() {
+        return mtimeNanos;
+    }
+
+    public int getDev() {
+        return dev;
+    }
+
+    public int getIno() {
+        return ino;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    public String getOctalMode() {
+        return Integer.toOctalString(mode);
+    }
+
+    public int getUid() {
+        return uid;
+    }
+
+    public int getGid() {
+        return gid;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public byte[] getSha1() {
+        return sha1;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public int getExtendedFlags() {
+        return extendedFlags;
+    }
+
+    public int getStage() {
+        return (flags & STAGE_MASK) >> 12;
+    }
+
+    public boolean isAssumeValid() {
+        return (flags & ASSUME_VALID_FLAG) != 0;
+    }
+
+    public boolean isDirectory() {
+        return (mode & 0170000) == 0040000;
+    }
+
+    public boolean isStatEqual(GitIndexEntry other) {
+        return mode == other.mode
+                && mtimeSeconds == other.mtimeSeconds
+                && mtimeNanos == other.mtimeNanos
+                && ctimeSeconds == other.ctimeSeconds
+                && ctimeNanos == other.ctimeNanos
+                && size == other.size
+                && ino == other.ino
+                && dev == other.dev
+                && uid == other.uid
+                && gid == other.gid;
+    }
+}
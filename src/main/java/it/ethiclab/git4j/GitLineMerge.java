@@ -0,0 +1,233 @@
+package it.ethiclab.git4j;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class GitLineMerge {
+
+    private static final int MAX_EDITS = 2000;
+
+    private final byte[][] base;
+    private final byte[][] ours;
+    private final byte[][] theirs;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private byte last = '\n';
+    private int conflicts;
+
+    GitLineMerge(byte[] base, byte[] ours, byte[] theirs) {
+        this.base = lines(base);
+        this.ours = lines(ours);
+        this.theirs = lines(theirs);
+    }
+
+    static boolean isBinary(byte[] data) {
+        int n = Math.min(data.length, 8000);
+        for (int i = 0; i < n; i++) {
+            if (data[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static byte[][] lines(byte[] data) {
+        List<byte[]> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                lines.add(Arrays.copyOfRange(data, start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < data.length) {
+            lines.add(Arrays.copyOfRange(data, start, data.length));
+        }
+        return lines.toArray(new byte[0][]);
+    }
+
+    int getConflictCount() {
+        return conflicts;
+    }
+
+    byte[] merge(String ourLabel, String theirLabel) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] b = ids(base, ids);
+        int[] o = ids(ours, ids);
+        int[] t = ids(theirs, ids);
+        int[] mo = match(b, o);
+        int[] mt = match(b, t);
+        int i = 0;
+        int a = 0;
+        int c = 0;
+        while (true) {
+            while (i < b.length && mo[i] == a && mt[i] == c) {
+                write(base[i]);
+                i++;
+                a++;
+                c++;
+            }
+            if (i == b.length && a == o.length && c == t.length) {
+                break;
+            }
+            int j = i;
+            while (j < b.length && (mo[j] < 0 || mt[j] < 0)) {
+                j++;
+            }
+            int a2 = j < b.length ? mo[j] : o.length;
+            int c2 = j < b.length ? mt[j] : t.length;
+            chunk(i, j, a, a2, c, c2, ourLabel, theirLabel);
+            i = j;
+            a = a2;
+            c = c2;
+        }
+        return out.toByteArray();
+    }
+
+    private void chunk(int i, int j, int a, int a2, int c, int c2, String ourLabel, String theirLabel) {
+        if (same(ours, a, a2, base, i, j)) {
+            write(theirs, c, c2);
+        } else if (same(theirs, c, c2, base, i, j) || same(ours, a, a2, theirs, c, c2)) {
+            write(ours, a, a2);
+        } else {
+            conflicts++;
+            marker("<<<<<<< " + ourLabel);
+            write(ours, a, a2);
+            marker("=======");
+            write(theirs, c, c2);
+            marker(">>>>>>> " + theirLabel);
+        }
+    }
+
+    private void marker(String marker) {
+        if (last != '\n') {
+            out.write('\n');
+        }
+        write((marker + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(byte[][] lines, int from, int to) {
+        for (int k = from; k < to; k++) {
+            write(lines[k]);
+        }
+    }
+
+    private void write(byte[] line) {
+        out.write(line, 0, line.length);
+        if (line.length > 0) {
+            last = line[line.length - 1];
+        }
+    }
+
+    private static boolean same(byte[][] x, int xFrom, int xTo, byte[][] y, int yFrom, int yTo) {
+        if (xTo - xFrom != yTo - yFrom) {
+            return false;
+        }
+        for (int k = 0; k < xTo - xFrom; k++) {
+            if (!Arrays.equals(x[xFrom + k], y[yFrom + k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] ids(byte[][] lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int k = 0; k < lines.length; k++) {
+            String key = new String(lines[k], StandardCharsets.ISO_8859_1);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            result[k] = id;
+        }
+        return result;
+    }
+
+    static int[] match(int[] x, int[] y) {
+        int[] result = new int[x.length];
+        Arrays.fill(result, -1);
+        int prefix = 0;
+        while (prefix < x.length && prefix < y.length && x[prefix] == y[prefix]) {
+            result[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < x.length - prefix && suffix < y.length - prefix
+                && x[x.length - 1 - suffix] == y[y.length - 1 - suffix]) {
+            result[x.length - 1 - suffix] = y.length - 1 - suffix;
+            suffix++;
+        }
+        myers(x, prefix, x.length - suffix, y, prefix, y.length - suffix, result);
+        return result;
+    }
+
+    private static void myers(int[] x, int x0, int x1, int[] y, int y0, int y1, int[] result) {
+        int n = x1 - x0;
+        int m = y1 - y0;
+        if (n == 0 || m == 0) {
+            return;
+        }
+        int max = n + m;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        int found = -1;
+        for (int d = 0; d <= Math.min(max, MAX_EDITS) && found < 0; d++) {
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int px;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    px = v[offset + k + 1];
+                } else {
+                    px = v[offset + k - 1] + 1;
+                }
+                int py = px - k;
+                while (px < n && py < m && x[x0 + px] == y[y0 + py]) {
+                    px++;
+                    py++;
+                }
+                v[offset + k] = px;
+                if (px >= n && py >= m) {
+                    found = d;
+                    break;
+                }
+            }
+        }
+        if (found < 0) {
+            return;
+        }
+        int px = n;
+        int py = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace.get(d);
+            int k = px - py;
+            int base = d + 1;
+            int prevK;
+            if (k == -d || (k != d && prev[base + k - 1] < prev[base + k + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = prev[base + prevK];
+            int prevY = prevX - prevK;
+            while (px > prevX && py > prevY) {
+                px--;
+                py--;
+                result[x0 + px] = y0 + py;
+            }
+            px = prevX;
+            py = prevY;
+        }
+        while (px > 0 && py > 0) {
+            px--;
+            py--;
+            result[x0 + px] = y0 + py;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class GitLooseObjectStore implements GitObjectStore {
+
+    private final Git git;
+    private final File objectsFolder;
+    private final GitObjectWriter writer;
+
+    public GitLooseObjectStore(Git git, File objectsFolder) {
+        this.git = git;
+        this.objectsFolder = objectsFolder;
+        this.writer = new GitObjectWriter(git, objectsFolder);
+    }
+
+    public File getObjectsFolder() {
+        return objectsFolder;
+    }
+
+    public GitObjectWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public boolean has(byte[] sha) {
+        return git.has(objectsFolder, sha);
+    }
+
+    @Override
+    public GitRawObject get(byte[] sha) {
+        return git.readRaw(objectsFolder, sha);
+    }
+
+    @Override
+    public void put(byte[] sha, GitRawObject object) throws IOException {
+        writer.write(sha, object);
+    }
+
+    @Override
+    public boolean copy(byte[] sha, Path dest) throws IOException {
+        if (git.getCache() == null) {
+            String hex = git.binaryToHex(sha);
+            File loose = new File(new File(objectsFolder, hex.substring(0, 2)), hex.substring(2));
+            if (loose.isFile()) {
+                git.uncompress(dest.toFile(), loose);
+                return true;
+            }
+        }
+        return GitObjectStore.super.copy(sha, dest);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
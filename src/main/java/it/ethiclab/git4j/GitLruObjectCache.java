@@ -0,0 +1,119 @@
+package it.ethiclab.git4j;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GitLruObjectCache implements GitObjectCache {
+
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final Segment small;
+    private final Segment large;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GitLruObjectCache(long smallObjectBudget, long blobBudget) {
+        this.small = new Segment(smallObjectBudget);
+        this.large = new Segment(blobBudget);
+    }
+
+    private Segment segment(GitObjectType type) {
+        return type == GitObjectType.BLOB ? large : small;
+    }
+
+    @Override
+    public GitRawObject get(byte[] sha) {
+        ByteBuffer key = ByteBuffer.wrap(sha);
+        GitRawObject object = small.get(key);
+        if (object == null) {
+            object = large.get(key);
+        }
+        if (object == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return object;
+    }
+
+    @Override
+    public void put(byte[] sha, GitRawObject object) {
+        segment(object.getType()).put(ByteBuffer.wrap(sha.clone()), object);
+    }
+
+    @Override
+    public void clear() {
+        small.clear();
+        large.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getSmallObjectBytes() {
+        return small.bytes();
+    }
+
+    public long getBlobBytes() {
+        return large.bytes();
+    }
+
+    private static long weight(GitRawObject object) {
+        return object.getSize() + ENTRY_OVERHEAD;
+    }
+
+    private class Segment {
+        private final long budget;
+        private final LinkedHashMap<ByteBuffer, GitRawObject> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        Segment(long budget) {
+            this.budget = budget;
+        }
+
+        synchronized GitRawObject get(ByteBuffer key) {
+            return map.get(key);
+        }
+
+        synchronized void put(ByteBuffer key, GitRawObject object) {
+            long weight = weight(object);
+            if (weight > budget) {
+                return;
+            }
+            GitRawObject previous = map.put(key, object);
+            if (previous != null) {
+                bytes -= weight(previous);
+            }
+            bytes += weight;
+            Iterator<Map.Entry<ByteBuffer, GitRawObject>> it = map.entrySet().iterator();
+            while (bytes > budget && it.hasNext()) {
+                Map.Entry<ByteBuffer, GitRawObject> eldest = it.next();
+                bytes -= weight(eldest.getValue());
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+            bytes = 0;
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package it.ethiclab.git4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class GitMerge {
+
+    private static final int SPLIT = 8;
+
+    private final Git git;
+    private final GitObjectStore store;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String ourLabel = "ours";
+    private String theirLabel = "theirs";
+
+    public GitMerge(Git git) {
+        this(git, null);
+    }
+
+    public GitMerge(Git git, GitObjectStore store) {
+        this.git = git;
+        this.store = store;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new GitException("invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public String getOurLabel() {
+        return ourLabel;
+    }
+
+    public void setOurLabel(String ourLabel) {
+        this.ourLabel = ourLabel;
+    }
+
+    public String getTheirLabel() {
+        return theirLabel;
+    }
+
+    public void setTheirLabel(String theirLabel) {
+        this.theirLabel = theirLabel;
+    }
+
+    public GitMergeResult merge(GitTreeEntry base, GitTreeEntry ours, GitTreeEntry theirs) {
+        Merge merge = new Merge();
+        Object resolved = merge.resolve("", base, ours, theirs);
+        if (resolved instanceof BlobMerge) {
+            throw new GitException("not a tree");
+        }
+        if (!merge.blobs.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new BlobTask(merge.blobs, 0, merge.blobs.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        GitTreeEntry tree;
+        if (resolved instanceof Dir) {
+            tree = build((Dir) resolved);
+        } else {
+            tree = (GitTreeEntry) resolved;
+        }
+        if (tree == null) {
+            tree = tree("", new ArrayList<>());
+        }
+        List<GitMergeConflict> conflicts = new ArrayList<>(merge.conflicts);
+        for (BlobMerge blob : merge.blobs) {
+            if (blob.conflict != null) {
+                conflicts.add(blob.conflict);
+            }
+        }
+        conflicts.sort(Comparator.comparing(GitMergeConflict::getPath));
+        return new GitMergeResult(tree, tree.getSha1(), Collections.unmodifiableList(conflicts), merge.blobs.size());
+    }
+
+    private GitTreeEntry build(Dir dir) {
+        List<GitTreeEntry> entries = new ArrayList<>();
+        for (Object child : dir.children) {
+            GitTreeEntry entry;
+            if (child instanceof Dir) {
+                entry = build((Dir) child);
+            } else if (child instanceof BlobMerge) {
+                entry = ((BlobMerge) child).result;
+            } else {
+                entry = (GitTreeEntry) child;
+            }
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        entries.sort(GitTreeEntry.GIT_ORDER);
+        return tree(dir.name, entries);
+    }
+
+    private GitTreeEntry tree(String name, List<GitTreeEntry> entries) {
+        GitTreeEntry tree = new GitTreeEntry(entries);
+        byte[] sha;
+        try {
+            sha = store == null ? git.getTreeSha(tree) : git.write(store, tree);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        return new GitTreeEntry(GitSnapshot.TREE_MODE, name, sha, entries);
+    }
+
+    private List<GitTreeEntry> children(GitTreeEntry tree) {
+        if (tree == null) {
+            return Collections.emptyList();
+        }
+        if (!tree.getObjects().isEmpty() || tree.getSha1() == null) {
+            return tree.getObjects();
+        }
+        GitRawObject raw = store == null ? null : store.get(tree.getSha1());
+        if (raw == null || raw.getType() != GitObjectType.TREE) {
+            throw new GitException("missing tree " + git.binaryToHex(tree.getSha1()));
+        }
+        return ((GitTreeEntry) git.parse(raw)).getObjects();
+    }
+
+    private byte[] data(GitTreeEntry entry) {
+        GitRawObject raw = store == null ? null : store.get(entry.getSha1());
+        if (raw == null) {
+            throw new GitException("missing object " + git.binaryToHex(entry.getSha1()));
+        }
+        return raw.getData();
+    }
+
+    private static boolean same(GitTreeEntry x, GitTreeEntry y) {
+        if (x == null || y == null) {
+            return x == y;
+        }
+        return x.getSha1() != null && Arrays.equals(x.getSha1(), y.getSha1()) && x.getOctalMode().equals(y.getOctalMode());
+    }
+
+    private static boolean sameId(GitTreeEntry x, GitTreeEntry y) {
+        return x != null && y != null && Arrays.equals(x.getSha1(), y.getSha1());
+    }
+
+    private static boolean isTree(GitTreeEntry entry) {
+        return entry != null && entry.isTree();
+    }
+
+    private static boolean isRegular(GitTreeEntry entry) {
+        return entry == null || (Integer.parseInt(entry.getOctalMode(), 8) & 0170000) == 0100000;
+    }
+
+    private static GitTreeEntry rename(GitTreeEntry entry, String name) {
+        if (entry == null || name.equals(entry.getName())) {
+            return entry;
+        }
+        return new GitTreeEntry(entry.getOctalMode(), name, entry.getSha1(), entry.getObjects());
+    }
+
+    private class Merge {
+        private final List<GitMergeConflict> conflicts = new ArrayList<>();
+        private final List<BlobMerge> blobs = new ArrayList<>();
+
+        Object resolve(String path, GitTreeEntry b, GitTreeEntry o, GitTreeEntry t) {
+            if (same(o, t)) {
+                return o;
+            }
+            if (same(b, o)) {
+                return t;
+            }
+            if (same(b, t)) {
+                return o;
+            }
+            GitTreeEntry bt = isTree(b) ? b : null;
+            GitTreeEntry bb = isTree(b) ? null : b;
+            if (o == null || t == null) {
+                GitTreeEntry kept = o == null ? t : o;
+                if (isTree(kept)) {
+                    return bt == null ? kept : dir(path, bt, o, t);
+                }
+                if (bb == null) {
+                    return kept;
+                }
+                conflicts.add(new GitMergeConflict(GitConflictType.MODIFY_DELETE, path, b, o, t));
+                return kept;
+            }
+            if (isTree(o) && isTree(t)) {
+                return dir(path, bt, o, t);
+            }
+            if (isTree(o) || isTree(t)) {
+                conflicts.add(new GitMergeConflict(GitConflictType.FILE_DIRECTORY, path, b, o, t));
+                return o;
+            }
+            String mode;
+            if (o.getOctalMode().equals(t.getOctalMode())) {
+                mode = o.getOctalMode();
+            } else if (bb != null && bb.getOctalMode().equals(o.getOctalMode())) {
+                mode = t.getOctalMode();
+            } else if (bb != null && bb.getOctalMode().equals(t.getOctalMode())) {
+                mode = o.getOctalMode();
+            } else {
+                conflicts.add(new GitMergeConflict(GitConflictType.MODE, path, b, o, t));
+                mode = o.getOctalMode();
+            }
+            String name = o.getName();
+            if (sameId(o, t) || sameId(bb, t)) {
+                return new GitTreeEntry(mode, name, o.getSha1());
+            }
+            if (sameId(bb, o)) {
+                return new GitTreeEntry(mode, name, t.getSha1());
+            }
+            if (!isRegular(bb) || !isRegular(o) || !isRegular(t)) {
+                conflicts.add(new GitMergeConflict(GitConflictType.CONTENT, path, b, o, t));
+                return new GitTreeEntry(mode, name, o.getSha1());
+            }
+            BlobMerge blob = new BlobMerge(path, name, mode, bb, o, t);
+            blobs.add(blob);
+            return blob;
+        }
+
+        private Dir dir(String path, GitTreeEntry b, GitTreeEntry o, GitTreeEntry t) {
+            Map<String, GitTreeEntry[]> names = new TreeMap<>();
+            add(names, children(b), 0);
+            add(names, children(o), 1);
+            add(names, children(t), 2);
+            String prefix = path.isEmpty() ? "" : path + "/";
+            Dir dir = new Dir(path.substring(path.lastIndexOf('/') + 1));
+            for (Map.Entry<String, GitTreeEntry[]> e : names.entrySet()) {
+                GitTreeEntry[] entries = e.getValue();
+                Object resolved = resolve(prefix + e.getKey(), entries[0], entries[1], entries[2]);
+                if (resolved instanceof GitTreeEntry) {
+                    resolved = rename((GitTreeEntry) resolved, e.getKey());
+                }
+                if (resolved != null) {
+                    dir.children.add(resolved);
+                }
+            }
+            return dir;
+        }
+
+        private void add(Map<String, GitTreeEntry[]> names, List<GitTreeEntry> entries, int side) {
+            for (GitTreeEntry entry : entries) {
+                names.computeIfAbsent(entry.getName(), k -> new GitTreeEntry[3])[side] = entry;
+            }
+        }
+    }
+
+    private static class Dir {
+        private final String name;
+        private final List<Object> children = new ArrayList<>();
+
+        Dir(String name) {
+            this.name = name;
+        }
+    }
+
+    private class BlobMerge {
+        private final String path;
+        private final String name;
+        private final String mode;
+        private final GitTreeEntry base;
+        private final GitTreeEntry ours;
+        private final GitTreeEntry theirs;
+        private GitTreeEntry result;
+        private GitMergeConflict conflict;
+
+        BlobMerge(String path, String name, String mode, GitTreeEntry base, GitTreeEntry ours, GitTreeEntry theirs) {
+            this.path = path;
+            this.name = name;
+            this.mode = mode;
+            this.base = base;
+            this.ours = ours;
+            this.theirs = theirs;
+        }
+
+        void run() throws IOException {
+            byte[] b = base == null ? new byte[0] : data(base);
+            byte[] o = data(ours);
+            byte[] t = data(theirs);
+            if (GitLineMerge.isBinary(b) || GitLineMerge.isBinary(o) || GitLineMerge.isBinary(t)) {
+                conflict = new GitMergeConflict(GitConflictType.BINARY, path, base, ours, theirs);
+                result = new GitTreeEntry(mode, name, ours.getSha1());
+                return;
+            }
+            GitLineMerge merge = new GitLineMerge(b, o, t);
+            byte[] merged = merge.merge(ourLabel, theirLabel);
+            if (merge.getConflictCount() > 0) {
+                conflict = new GitMergeConflict(base == null ? GitConflictType.ADD_ADD : GitConflictType.CONTENT,
+                        path, base, ours, theirs);
+            }
+            byte[] sha = store == null ? git.getSha(new GitBlob(merged)) : git.write(store, new GitBlob(merged));
+            result = new GitTreeEntry(mode, name, sha);
+        }
+    }
+
+    private class BlobTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<BlobMerge> blobs;
+        private final int from;
+        private final int to;
+
+        BlobTask(List<BlobMerge> blobs, int from, int to) {
+            this.blobs = blobs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlobTask(blobs, from, middle), new BlobTask(blobs, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    blobs.get(i).run();
+                } catch (IOException e) {
+                    throw new GitException(e);
+                }
+            }
+        }
+    }
+}
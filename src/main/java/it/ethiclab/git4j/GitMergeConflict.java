@@ -0,0 +1,43 @@
+package it.ethiclab.git4j;
+
+public class GitMergeConflict {
+
+    private final GitConflictType type;
+    private final String path;
+    private final GitTreeEntry base;
+    private final GitTreeEntry ours;
+    private final GitTreeEntry theirs;
+
+    public GitMergeConflict(GitConflictType type, String path, GitTreeEntry base, GitTreeEntry ours, GitTreeEntry theirs) {
+        this.type = type;
+        this.path = path;
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+    }
+
+    public GitConflictType getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public GitTreeEntry getBase() {
+        return base;
+    }
+
+    public GitTreeEntry getOurs() {
+        return ours;
+    }
+
+    public GitTreeEntry getTheirs() {
+        return theirs;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + path;
+    }
+}
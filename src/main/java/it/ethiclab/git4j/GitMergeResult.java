@@ -0,0 +1,38 @@
+package it.ethiclab.git4j;
+
+import java.util.List;
+
+public class GitMergeResult {
+
+    private final GitTreeEntry tree;
+    private final byte[] treeSha;
+    private final List<GitMergeConflict> conflicts;
+    private final int mergedBlobCount;
+
+    public GitMergeResult(GitTreeEntry tree, byte[] treeSha, List<GitMergeConflict> conflicts, int mergedBlobCount) {
+        this.tree = tree;
+        this.treeSha = treeSha;
+        this.conflicts = conflicts;
+        this.mergedBlobCount = mergedBlobCount;
+    }
+
+    public GitTreeEntry getTree() {
+        return tree;
+    }
+
+    public byte[] getTreeSha() {
+        return treeSha;
+    }
+
+    public List<GitMergeConflict> getConflicts() {
+        return conflicts;
+    }
+
+    public boolean isClean() {
+        return conflicts.isEmpty();
+    }
+
+    public int getMergedBlobCount() {
+        return mergedBlobCount;
+    }
+}
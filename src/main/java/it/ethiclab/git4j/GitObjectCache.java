@@ -0,0 +1,10 @@
+package it.ethiclab.git4j;
+
+public interface GitObjectCache {
+
+    GitRawObject get(byte[] sha);
+
+    void put(byte[] sha, GitRawObject object);
+
+    void clear();
+}
@@ -0,0 +1,151 @@
+package it.ethiclab.git4j;
+
+import java.util.Arrays;
+
+public final class GitObjectId implements Comparable<GitObjectId> {
+
+    private final int w0;
+    private final int w1;
+    private final int w2;
+    private final int w3;
+    private final int w4;
+    private final int[] tail;
+
+    private GitObjectId(int[] words) {
+        w0 = words[0];
+        w1 = words[1];
+        w2 = words[2];
+        w3 = words[3];
+        w4 = words[4];
+        if (words.length > 5) {
+            tail = new int[words.length - 5];
+            System.arraycopy(words, 5, tail, 0, tail.length);
+        } else {
+            tail = null;
+        }
+    }
+
+    public static GitObjectId fromBytes(byte[] sha) {
+        return fromBytes(sha, 0, sha.length);
+    }
+
+    public static GitObjectId fromBytes(byte[] sha, int offset, int length) {
+        int[] words = new int[words(length)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = word(sha, offset + 4 * i);
+        }
+        return new GitObjectId(words);
+    }
+
+    public static GitObjectId fromHex(String hex) {
+        return fromBytes(GitHex.decode(hex));
+    }
+
+    static GitObjectId fromWords(int[] words, int offset, int count) {
+        int[] copy = new int[count];
+        System.arraycopy(words, offset, copy, 0, count);
+        return new GitObjectId(copy);
+    }
+
+    static int words(int length) {
+        if (length < 20 || length % 4 != 0) {
+            throw new GitException("invalid id length " + length);
+        }
+        return length / 4;
+    }
+
+    static int word(byte[] b, int offset) {
+        return (b[offset] & 0xff) << 24 | (b[offset + 1] & 0xff) << 16 | (b[offset + 2] & 0xff) << 8 | b[offset + 3] & 0xff;
+    }
+
+    public int getLength() {
+        return 20 + (tail == null ? 0 : 4 * tail.length);
+    }
+
+    int word(int i) {
+        switch (i) {
+            case 0:
+                return w0;
+            case 1:
+                return w1;
+            case 2:
+                return w2;
+            case 3:
+                return w3;
+            case 4:
+                return w4;
+            default:
+                return tail[i - 5];
+        }
+    }
+
+    public byte[] toBytes() {
+        byte[] sha = new byte[getLength()];
+        copyTo(sha, 0);
+        return sha;
+    }
+
+    public void copyTo(byte[] out, int offset) {
+        int words = getLength() / 4;
+        for (int i = 0; i < words; i++) {
+            int w = word(i);
+            out[offset++] = (byte) (w >>> 24);
+            out[offset++] = (byte) (w >>> 16);
+            out[offset++] = (byte) (w >>> 8);
+            out[offset++] = (byte) w;
+        }
+    }
+
+    public String toHex() {
+        return GitHex.encode(toBytes());
+    }
+
+    public boolean equals(byte[] sha) {
+        if (sha.length != getLength()) {
+            return false;
+        }
+        for (int i = 0; i < sha.length / 4; i++) {
+            if (word(sha, 4 * i) != word(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GitObjectId)) {
+            return false;
+        }
+        GitObjectId other = (GitObjectId) o;
+        if (w0 != other.w0 || w1 != other.w1 || w2 != other.w2 || w3 != other.w3 || w4 != other.w4) {
+            return false;
+        }
+        return Arrays.equals(tail, other.tail);
+    }
+
+    @Override
+    public int hashCode() {
+        return w1;
+    }
+
+    @Override
+    public int compareTo(GitObjectId o) {
+        int n = Math.min(getLength(), o.getLength()) / 4;
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compareUnsigned(word(i), o.word(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(getLength(), o.getLength());
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
@@ -0,0 +1,97 @@
+package it.ethiclab.git4j;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class GitObjectIdMap<V> extends GitObjectIdTable {
+
+    public GitObjectIdMap() {
+        this(20, 16);
+    }
+
+    public GitObjectIdMap(int idLength, int expectedSize) {
+        super(idLength, expectedSize, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(byte[] sha) {
+        if (sha.length != getIdLength()) {
+            return null;
+        }
+        int slot = find(sha);
+        return slot < 0 ? null : (V) value(slot);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(GitObjectId id) {
+        if (id.getLength() != getIdLength()) {
+            return null;
+        }
+        int slot = find(id);
+        return slot < 0 ? null : (V) value(slot);
+    }
+
+    public boolean containsKey(byte[] sha) {
+        return sha.length == getIdLength() && find(sha) >= 0;
+    }
+
+    public boolean containsKey(GitObjectId id) {
+        return id.getLength() == getIdLength() && find(id) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(byte[] sha, V value) {
+        int slot = find(sha);
+        if (slot >= 0) {
+            return (V) setValue(slot, value);
+        }
+        insert(~slot, sha, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(GitObjectId id, V value) {
+        int slot = find(id);
+        if (slot >= 0) {
+            return (V) setValue(slot, value);
+        }
+        insert(~slot, id, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(byte[] sha, Function<byte[], ? extends V> function) {
+        int slot = find(sha);
+        if (slot >= 0) {
+            return (V) value(slot);
+        }
+        V value = function.apply(sha);
+        if (value != null) {
+            insert(~slot, sha, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(byte[] sha) {
+        if (sha.length != getIdLength()) {
+            return null;
+        }
+        int slot = find(sha);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) value(slot);
+        delete(slot);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<GitObjectId, ? super V> action) {
+        for (int slot = 0; slot < capacity(); slot++) {
+            if (isUsed(slot)) {
+                action.accept(key(slot), (V) value(slot));
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package it.ethiclab.git4j;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class GitObjectIdSet extends GitObjectIdTable implements Iterable<GitObjectId> {
+
+    public GitObjectIdSet() {
+        this(20, 16);
+    }
+
+    public GitObjectIdSet(int idLength, int expectedSize) {
+        super(idLength, expectedSize, false);
+    }
+
+    public boolean add(byte[] sha) {
+        int slot = find(sha);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(~slot, sha, null);
+        return true;
+    }
+
+    public boolean add(GitObjectId id) {
+        int slot = find(id);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(~slot, id, null);
+        return true;
+    }
+
+    public boolean contains(byte[] sha) {
+        return sha.length == getIdLength() && find(sha) >= 0;
+    }
+
+    public boolean contains(GitObjectId id) {
+        return id.getLength() == getIdLength() && find(id) >= 0;
+    }
+
+    public boolean remove(byte[] sha) {
+        if (sha.length != getIdLength()) {
+            return false;
+        }
+        int slot = find(sha);
+        if (slot < 0) {
+            return false;
+        }
+        delete(slot);
+        return true;
+    }
+
+    public boolean remove(GitObjectId id) {
+        if (id.getLength() != getIdLength()) {
+            return false;
+        }
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+        delete(slot);
+        return true;
+    }
+
+    @Override
+    public Iterator<GitObjectId> iterator() {
+        return new Iterator<GitObjectId>() {
+            private int slot = next(0);
+
+            private int next(int from) {
+                while (from < capacity() && !isUsed(from)) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < capacity();
+            }
+
+            @Override
+            public GitObjectId next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                GitObjectId id = key(slot);
+                slot = next(slot + 1);
+                return id;
+            }
+        };
+    }
+}
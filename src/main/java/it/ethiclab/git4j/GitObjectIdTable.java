@@ -0,0 +1,212 @@
+package it.ethiclab.git4j;
+
+import java.util.Arrays;
+
+abstract class GitObjectIdTable {
+
+    private static final int MAX_BITS = 30;
+
+    private final int idLength;
+    private final int width;
+    private final boolean withValues;
+    private int bits;
+    private int[] keys;
+    private boolean[] used;
+    private Object[] values;
+    private int size;
+
+    GitObjectIdTable(int idLength, int expectedSize, boolean withValues) {
+        this.idLength = idLength;
+        this.width = GitObjectId.words(idLength);
+        this.withValues = withValues;
+        if (expectedSize < 0) {
+            throw new GitException("invalid expected size " + expectedSize);
+        }
+        int bits = 4;
+        while (bits < MAX_BITS && (1L << bits) * 2 < (long) expectedSize * 3) {
+            bits++;
+        }
+        allocate(bits);
+    }
+
+    private void allocate(int bits) {
+        this.bits = bits;
+        keys = new int[(1 << bits) * width];
+        used = new boolean[1 << bits];
+        values = withValues ? new Object[1 << bits] : null;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        if (values != null) {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    private int home(int w1) {
+        return (w1 * 0x9e3779b9) >>> (32 - bits);
+    }
+
+    final int find(byte[] sha) {
+        if (sha.length != idLength) {
+            throw new GitException("invalid id length " + sha.length);
+        }
+        int mask = used.length - 1;
+        int i = home(GitObjectId.word(sha, 4));
+        while (used[i]) {
+            if (matches(i, sha)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return ~i;
+    }
+
+    final int find(GitObjectId id) {
+        if (id.getLength() != idLength) {
+            throw new GitException("invalid id length " + id.getLength());
+        }
+        int mask = used.length - 1;
+        int i = home(id.word(1));
+        while (used[i]) {
+            if (matches(i, id)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return ~i;
+    }
+
+    private boolean matches(int slot, byte[] sha) {
+        int base = slot * width;
+        for (int w = 0; w < width; w++) {
+            if (keys[base + w] != GitObjectId.word(sha, 4 * w)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int slot, GitObjectId id) {
+        int base = slot * width;
+        for (int w = 0; w < width; w++) {
+            if (keys[base + w] != id.word(w)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    final int insert(int free, byte[] sha, Object value) {
+        int base = free * width;
+        for (int w = 0; w < width; w++) {
+            keys[base + w] = GitObjectId.word(sha, 4 * w);
+        }
+        return added(free, value);
+    }
+
+    final int insert(int free, GitObjectId id, Object value) {
+        int base = free * width;
+        for (int w = 0; w < width; w++) {
+            keys[base + w] = id.word(w);
+        }
+        return added(free, value);
+    }
+
+    private int added(int slot, Object value) {
+        used[slot] = true;
+        if (values != null) {
+            values[slot] = value;
+        }
+        size++;
+        if ((long) size * 3 > (long) used.length * 2) {
+            grow();
+        }
+        return size;
+    }
+
+    private void grow() {
+        if (bits == MAX_BITS) {
+            throw new GitException("object id table is full, " + size + " entries");
+        }
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        Object[] oldValues = values;
+        allocate(bits + 1);
+        int mask = used.length - 1;
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (oldUsed[slot]) {
+                int i = home(oldKeys[slot * width + 1]);
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                System.arraycopy(oldKeys, slot * width, keys, i * width, width);
+                used[i] = true;
+                if (values != null) {
+                    values[i] = oldValues[slot];
+                }
+            }
+        }
+    }
+
+    final void delete(int slot) {
+        int mask = used.length - 1;
+        int hole = slot;
+        int j = slot;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) {
+                break;
+            }
+            int k = home(keys[j * width + 1]);
+            boolean movable = hole <= j ? k <= hole || k > j : k <= hole && k > j;
+            if (movable) {
+                System.arraycopy(keys, j * width, keys, hole * width, width);
+                if (values != null) {
+                    values[hole] = values[j];
+                }
+                hole = j;
+            }
+        }
+        used[hole] = false;
+        if (values != null) {
+            values[hole] = null;
+        }
+        size--;
+    }
+
+    final Object value(int slot) {
+        return values[slot];
+    }
+
+    final Object setValue(int slot, Object value) {
+        Object previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    final int capacity() {
+        return used.length;
+    }
+
+    final boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    final GitObjectId key(int slot) {
+        return GitObjectId.fromWords(keys, slot * width, width);
+    }
+}
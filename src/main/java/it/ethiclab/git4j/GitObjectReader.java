@@ -0,0 +1,179 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class GitObjectReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private final byte[] typeName = new byte[16];
+    private final ByteBuffer inputBuffer = ByteBuffer.wrap(input);
+    private final ByteBuffer outputBuffer = ByteBuffer.wrap(output);
+    private final GitZipPool zipPool;
+
+    private GitObjectType type;
+    private long size;
+
+    public GitObjectReader() {
+        this(GitZipPool.SHARED);
+    }
+
+    GitObjectReader(GitZipPool zipPool) {
+        this.zipPool = zipPool;
+    }
+
+    public GitObjectType getType() {
+        return type;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long copy(File object, File dest) {
+        try (FileChannel in = FileChannel.open(object.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dest.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return copy(in, out);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public long readHeader(File object) {
+        try (FileChannel in = FileChannel.open(object.toPath(), StandardOpenOption.READ)) {
+            return inflate(in, null);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public GitRawObject read(File object) {
+        try (FileChannel in = FileChannel.open(object.toPath(), StandardOpenOption.READ)) {
+            return read(in);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public GitRawObject read(ReadableByteChannel in) throws IOException {
+        ArrayChannel out = new ArrayChannel();
+        copy(in, out);
+        return new GitRawObject(type, out.data == null ? new byte[0] : out.data);
+    }
+
+    public long copy(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        return inflate(in, out);
+    }
+
+    private long inflate(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        Inflater inflater = zipPool.inflater();
+        try {
+            return inflate(in, out, inflater);
+        } finally {
+            zipPool.release(inflater);
+        }
+    }
+
+    private long inflate(ReadableByteChannel in, WritableByteChannel out, Inflater inflater) throws IOException {
+        type = null;
+        size = 0;
+        int typeLength = 0;
+        boolean header = true;
+        long written = 0;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    ((Buffer) inputBuffer).clear();
+                    int n = in.read(inputBuffer);
+                    if (n < 0) {
+                        throw new GitException("truncated object");
+                    }
+                    inflater.setInput(input, 0, n);
+                    continue;
+                }
+                if (inflater.needsDictionary()) {
+                    throw new GitException("corrupt object: preset dictionary not supported");
+                }
+                int n = inflater.inflate(output);
+                int off = 0;
+                while (header && off < n) {
+                    byte b = output[off++];
+                    if (type == null) {
+                        if (b == ' ') {
+                            type = GitObjectType.fromName(typeName, 0, typeLength);
+                        } else if (typeLength < typeName.length) {
+                            typeName[typeLength++] = b;
+                        } else {
+                            throw new GitException("corrupt object header");
+                        }
+                    } else if (b == 0) {
+                        header = false;
+                    } else if (b >= '0' && b <= '9') {
+                        size = size * 10 + (b - '0');
+                    } else {
+                        throw new GitException("corrupt object header");
+                    }
+                }
+                if (!header && out == null) {
+                    return size;
+                }
+                written += n - off;
+                if (written > size && !header) {
+                    throw new GitException("corrupt object: more than " + size + " bytes");
+                }
+                if (!header && out instanceof ArrayChannel && ((ArrayChannel) out).data == null) {
+                    if (size > Integer.MAX_VALUE) {
+                        throw new GitException("object too large: " + size);
+                    }
+                    ((ArrayChannel) out).data = new byte[(int) size];
+                }
+                ((Buffer) outputBuffer).limit(n);
+                ((Buffer) outputBuffer).position(off);
+                while (outputBuffer.hasRemaining()) {
+                    out.write(outputBuffer);
+                }
+                ((Buffer) outputBuffer).clear();
+            }
+        } catch (DataFormatException e) {
+            throw new GitException(e);
+        }
+        if (header || written != size) {
+            throw new GitException("corrupt object: expected " + size + " bytes but found " + written);
+        }
+        return size;
+    }
+
+    private static class ArrayChannel implements WritableByteChannel {
+        private byte[] data;
+        private int position;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.get(data, position, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
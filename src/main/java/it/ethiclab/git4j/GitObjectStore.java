@@ -0,0 +1,32 @@
+package it.ethiclab.git4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public interface GitObjectStore extends Closeable {
+
+    boolean has(byte[] sha);
+
+    GitRawObject get(byte[] sha);
+
+    void put(byte[] sha, GitRawObject object) throws IOException;
+
+    default boolean copy(byte[] sha, Path dest) throws IOException {
+        GitRawObject object = get(sha);
+        if (object == null) {
+            return false;
+        }
+        Files.write(dest, object.getData());
+        return true;
+    }
+
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+        flush();
+    }
+}
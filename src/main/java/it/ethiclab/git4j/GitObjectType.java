@@ -0,0 +1,52 @@
+package it.ethiclab.git4j;
+
+import java.nio.charset.StandardCharsets;
+
+public enum GitObjectType {
+    COMMIT("commit", 1),
+    TREE("tree", 2),
+    BLOB("blob", 3),
+    TAG("tag", 4);
+
+    private final String name;
+    private final int packType;
+
+    GitObjectType(String name, int packType) {
+        this.name = name;
+        this.packType = packType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPackType() {
+        return packType;
+    }
+
+    public static GitObjectType fromPackType(int packType) {
+        for (GitObjectType type : values()) {
+            if (type.packType == packType) {
+                return type;
+            }
+        }
+        throw new GitException("unknown pack object type " + packType);
+    }
+
+    public static GitObjectType fromName(byte[] buf, int offset, int length) {
+        for (GitObjectType type : values()) {
+            String name = type.name;
+            if (name.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && buf[offset + i] == name.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return type;
+            }
+        }
+        throw new GitException("unknown object type " + new String(buf, offset, length, StandardCharsets.US_ASCII));
+    }
+}
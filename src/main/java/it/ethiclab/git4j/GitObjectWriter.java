@@ -0,0 +1,305 @@
+package it.ethiclab.git4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class GitObjectWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BUFFER = 1024 * 1024;
+
+    private final Git git;
+    private final File objectsFolder;
+    private final Set<ByteBuffer> known = ConcurrentHashMap.newKeySet();
+    private final AtomicIntegerArray folders = new AtomicIntegerArray(256);
+    private final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private final List<Pending> pending = new ArrayList<>();
+    private final Set<File> touched = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private GitDurability durability = GitDurability.NONE;
+    private int batchSize = 1000;
+
+    public GitObjectWriter(Git git, File objectsFolder) {
+        this.git = git;
+        this.objectsFolder = objectsFolder;
+    }
+
+    public File getObjectsFolder() {
+        return objectsFolder;
+    }
+
+    public GitDurability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(GitDurability durability) {
+        this.durability = durability;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new GitException("invalid batch size " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getWrittenCount() {
+        return written.get();
+    }
+
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    public byte[] write(GitObject object) throws IOException {
+        if (object instanceof GitBlob && ((GitBlob) object).isStreaming()) {
+            GitBlob blob = (GitBlob) object;
+            if (blob.getData() == null && blob.getPath() == null) {
+                return writeStream(blob);
+            }
+            byte[] sha = git.getSha(blob);
+            if (!claim(sha)) {
+                return sha;
+            }
+            store(sha, () -> writeTemp(git.getCompressionLevel(blob), out -> git.streamBlob(blob, out, true)));
+            return sha;
+        }
+        byte[] data = git.serialize(object);
+        byte[] sha = git.getBinarySha1(data);
+        if (!claim(sha)) {
+            return sha;
+        }
+        int level = object instanceof GitBlob
+                ? git.getCompressionLevel(data, GitPackWriter.headerLength(data), data.length - GitPackWriter.headerLength(data))
+                : git.getCompressionLevel();
+        byte[] buf = buffer.get();
+        if (buf.length < Git.compressBound(data.length)) {
+            buf = new byte[Git.compressBound(data.length)];
+            if (buf.length <= MAX_BUFFER) {
+                buffer.set(buf);
+            }
+        }
+        int length = git.compress(data, 0, data.length, buf, 0, level);
+        byte[] compressed = buf;
+        store(sha, () -> writeTemp(out -> out.write(compressed, 0, length)));
+        return sha;
+    }
+
+    void write(byte[] sha, GitRawObject object) throws IOException {
+        if (!claim(sha)) {
+            return;
+        }
+        byte[] header = git.getBytes(object.getType().getName() + " " + object.getSize() + "\000");
+        int level = object.getType() == GitObjectType.BLOB
+                ? git.getCompressionLevel(object.getData(), 0, object.getSize())
+                : git.getCompressionLevel();
+        store(sha, () -> writeTemp(level, out -> {
+            out.write(header);
+            out.write(object.getData());
+        }));
+    }
+
+    private byte[] writeStream(GitBlob blob) throws IOException {
+        byte[][] sha = new byte[1][];
+        File tmp = writeTemp(git.getCompressionLevel(), out -> sha[0] = git.streamBlob(blob, out, true));
+        if (!claim(sha[0])) {
+            Files.deleteIfExists(tmp.toPath());
+            return sha[0];
+        }
+        store(sha[0], () -> tmp);
+        return sha[0];
+    }
+
+    private boolean claim(byte[] sha) {
+        if (!known.add(ByteBuffer.wrap(sha))) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        if (git.has(objectsFolder, sha)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void store(byte[] sha, Temp temp) throws IOException {
+        try {
+            commit(temp.write(), sha);
+        } catch (IOException | RuntimeException e) {
+            known.remove(ByteBuffer.wrap(sha));
+            throw e;
+        }
+    }
+
+    private File writeTemp(int level, Content content) throws IOException {
+        Deflater deflater = git.acquireDeflater(level);
+        try {
+            return writeTemp(out -> {
+                DeflaterOutputStream zip = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+                content.write(zip);
+                zip.finish();
+            });
+        } finally {
+            git.releaseDeflater(deflater);
+        }
+    }
+
+    private File writeTemp(Content content) throws IOException {
+        File tmp = File.createTempFile("tmp_obj_", null, objectsFolder);
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            content.write(fos);
+            if (durability == GitDurability.OBJECT) {
+                fos.getChannel().force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        return tmp;
+    }
+
+    private void commit(File tmp, byte[] sha) throws IOException {
+        String hex = git.binaryToHex(sha);
+        File folder = folder(sha[0] & 0xff, hex);
+        File target = new File(folder, hex.substring(2));
+        if (durability == GitDurability.BATCH) {
+            boolean full;
+            synchronized (pending) {
+                pending.add(new Pending(tmp, target, sha));
+                full = pending.size() >= batchSize;
+            }
+            if (full) {
+                flush();
+            }
+            return;
+        }
+        move(tmp, target);
+        written.incrementAndGet();
+        if (durability == GitDurability.OBJECT) {
+            syncDirectory(folder);
+        }
+    }
+
+    private File folder(int index, String hex) throws IOException {
+        File folder = new File(objectsFolder, hex.substring(0, 2));
+        if (folders.get(index) == 0) {
+            if (!folder.isDirectory()) {
+                Files.createDirectories(folder.toPath());
+                if (durability == GitDurability.OBJECT) {
+                    syncDirectory(objectsFolder);
+                } else if (durability == GitDurability.BATCH) {
+                    touched.add(objectsFolder);
+                }
+            }
+            folders.set(index, 1);
+        }
+        return folder;
+    }
+
+    private static void move(File tmp, File target) throws IOException {
+        try {
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                if (!tmp.exists()) {
+                    throw e;
+                }
+                Files.createDirectories(target.getParentFile().toPath());
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    public void flush() throws IOException {
+        List<Pending> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            for (Pending p : batch) {
+                try (FileChannel channel = FileChannel.open(p.tmp.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            for (Pending p : batch) {
+                move(p.tmp, p.target);
+                touched.add(p.target.getParentFile());
+                written.incrementAndGet();
+            }
+        } finally {
+            for (Pending p : batch) {
+                if (Files.deleteIfExists(p.tmp.toPath())) {
+                    known.remove(ByteBuffer.wrap(p.sha));
+                }
+            }
+        }
+        List<File> dirs = new ArrayList<>(touched);
+        touched.removeAll(dirs);
+        for (File dir : dirs) {
+            syncDirectory(dir);
+        }
+    }
+
+    private static void syncDirectory(File dir) throws IOException {
+        Path path = dir.toPath();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            if (Files.isDirectory(path) && System.getProperty("os.name").startsWith("Windows")) {
+                return;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private interface Content {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private interface Temp {
+        File write() throws IOException;
+    }
+
+    private static class Pending {
+        private final File tmp;
+        private final File target;
+        private final byte[] sha;
+
+        Pending(File tmp, File target, byte[] sha) {
+            this.tmp = tmp;
+            this.target = target;
+            this.sha = sha;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class GitPack {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int CHUNK = 8192;
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+    private static final int MAX_DELTA_HEADER = 20;
+
+    private final File file;
+    private final GitPackIndex index;
+    private final MappedByteBuffer[] segments;
+    private final long length;
+    private final GitZipPool zipPool;
+
+    public GitPack(File file) {
+        this(file, new GitPackIndex(indexFile(file)));
+    }
+
+    public GitPack(File file, GitPackIndex index) {
+        this(file, index, GitZipPool.SHARED);
+    }
+
+    GitPack(File file, GitPackIndex index, GitZipPool zipPool) {
+        this.file = file;
+        this.index = index;
+        this.zipPool = zipPool;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            length = channel.size();
+            segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+            }
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        if (length < 12 || get(0) != 'P' || get(1) != 'A' || get(2) != 'C' || get(3) != 'K') {
+            throw new GitException("not a pack file " + file);
+        }
+    }
+
+    static File indexFile(File pack) {
+        String name = pack.getName();
+        if (!name.endsWith(".pack")) {
+            throw new GitException("not a pack file " + pack);
+        }
+        return new File(pack.getParentFile(), name.substring(0, name.length() - 5) + ".idx");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public GitPackIndex getIndex() {
+        return index;
+    }
+
+    public boolean has(byte[] sha) {
+        return index.has(sha);
+    }
+
+    public GitRawObject read(byte[] sha) {
+        long offset = index.findOffset(sha);
+        return offset < 0 ? null : read(offset);
+    }
+
+    public GitRawObject read(long offset) {
+        Inflater inflater = zipPool.inflater();
+        try {
+            return read(offset, inflater);
+        } finally {
+            zipPool.release(inflater);
+        }
+    }
+
+    private GitRawObject read(long offset, Inflater inflater) {
+        long pos = offset;
+        int b = get(pos++);
+        int type = (b >>> 4) & 0x07;
+        long size = b & 0x0f;
+        int shift = 4;
+        while ((b & 0x80) != 0) {
+            b = get(pos++);
+            size |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new GitException("object too large: " + size);
+        }
+        if (type == OFS_DELTA) {
+            b = get(pos++);
+            long distance = b & 0x7f;
+            while ((b & 0x80) != 0) {
+                b = get(pos++);
+                distance = ((distance + 1) << 7) | (b & 0x7f);
+            }
+            GitRawObject base = read(offset - distance, inflater);
+            byte[] delta = inflate(pos, (int) size, inflater);
+            return new GitRawObject(base.getType(), GitDelta.apply(base.getData(), delta));
+        } else if (type == REF_DELTA) {
+            byte[] baseSha = new byte[index.getIdLength()];
+            for (int i = 0; i < baseSha.length; i++) {
+                baseSha[i] = (byte) get(pos++);
+            }
+            long baseOffset = index.findOffset(baseSha);
+            if (baseOffset < 0) {
+                throw new GitException("missing delta base in " + file);
+            }
+            GitRawObject base = read(baseOffset, inflater);
+            byte[] delta = inflate(pos, (int) size, inflater);
+            return new GitRawObject(base.getType(), GitDelta.apply(base.getData(), delta));
+        }
+        return new GitRawObject(GitObjectType.fromPackType(type), inflate(pos, (int) size, inflater));
+    }
+
+    public GitObjectType getType(long offset) {
+        long pos = offset;
+        while (true) {
+            int b = get(pos);
+            int type = (b >>> 4) & 0x07;
+            long header = pos;
+            while ((get(pos++) & 0x80) != 0) {
+                // skip the size
+            }
+            if (type == OFS_DELTA) {
+                b = get(pos++);
+                long distance = b & 0x7f;
+                while ((b & 0x80) != 0) {
+                    b = get(pos++);
+                    distance = ((distance + 1) << 7) | (b & 0x7f);
+                }
+                pos = header - distance;
+            } else if (type == REF_DELTA) {
+                byte[] baseSha = new byte[index.getIdLength()];
+                for (int i = 0; i < baseSha.length; i++) {
+                    baseSha[i] = (byte) get(pos++);
+                }
+                pos = index.findOffset(baseSha);
+                if (pos < 0) {
+                    throw new GitException("missing delta base in " + file);
+                }
+            } else {
+                return GitObjectType.fromPackType(type);
+            }
+        }
+    }
+
+    public long getSize(long offset) {
+        long pos = offset;
+        int b = get(pos++);
+        int type = (b >>> 4) & 0x07;
+        long size = b & 0x0f;
+        int shift = 4;
+        while ((b & 0x80) != 0) {
+            b = get(pos++);
+            size |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        }
+        if (type == OFS_DELTA) {
+            while ((get(pos++) & 0x80) != 0) {
+                // skip the base distance
+            }
+        } else if (type == REF_DELTA) {
+            pos += index.getIdLength();
+        } else {
+            return size;
+        }
+        Inflater inflater = zipPool.inflater();
+        try {
+            return GitDelta.targetSize(inflate(pos, (int) Math.min(size, MAX_DELTA_HEADER), false, inflater));
+        } finally {
+            zipPool.release(inflater);
+        }
+    }
+
+    private int get(long pos) {
+        return segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & (SEGMENT_SIZE - 1))) & 0xff;
+    }
+
+    private byte[] inflate(long pos, int size, Inflater inflater) {
+        return inflate(pos, size, true, inflater);
+    }
+
+    private byte[] inflate(long pos, int size, boolean complete, Inflater inflater) {
+        byte[] data = new byte[size];
+        byte[] input = new byte[CHUNK];
+        inflater.reset();
+        int written = 0;
+        try {
+            while (!inflater.finished() && (complete || written < size)) {
+                if (inflater.needsInput()) {
+                    if (pos >= length) {
+                        throw new GitException("truncated pack " + file);
+                    }
+                    int segment = (int) (pos >>> SEGMENT_SHIFT);
+                    int start = (int) (pos & (SEGMENT_SIZE - 1));
+                    int n = Math.min(CHUNK, segments[segment].capacity() - start);
+                    ByteBuffer view = segments[segment].duplicate();
+                    ((Buffer) view).position(start);
+                    view.get(input, 0, n);
+                    inflater.setInput(input, 0, n);
+                    pos += n;
+                }
+                int n;
+                if (written < size) {
+                    n = inflater.inflate(data, written, size - written);
+                    written += n;
+                } else {
+                    n = inflater.inflate(new byte[1]);
+                    if (n > 0) {
+                        throw new GitException("corrupt pack entry in " + file + ": more than " + size + " bytes");
+                    }
+                }
+                if (n == 0 && !inflater.finished() && !inflater.needsInput()) {
+                    throw new GitException("corrupt pack entry in " + file);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new GitException(e);
+        }
+        if (written != size) {
+            throw new GitException("corrupt pack entry in " + file + ": expected " + size + " bytes but found " + written);
+        }
+        return data;
+    }
+}
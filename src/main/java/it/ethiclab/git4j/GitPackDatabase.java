@@ -0,0 +1,94 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GitPackDatabase {
+
+    private final File packFolder;
+    private final int idLength;
+    private final GitZipPool zipPool;
+    private volatile List<GitPack> packs = Collections.emptyList();
+
+    public GitPackDatabase(File packFolder) {
+        this(packFolder, 20);
+    }
+
+    public GitPackDatabase(File packFolder, int idLength) {
+        this(packFolder, idLength, GitZipPool.SHARED);
+    }
+
+    GitPackDatabase(File packFolder, int idLength, GitZipPool zipPool) {
+        this.packFolder = packFolder;
+        this.idLength = idLength;
+        this.zipPool = zipPool;
+        rescan();
+    }
+
+    public File getPackFolder() {
+        return packFolder;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public List<GitPack> getPacks() {
+        return packs;
+    }
+
+    public void rescan() {
+        File[] files = packFolder.listFiles((dir, name) -> name.endsWith(".pack"));
+        List<GitPack> found = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (GitPack.indexFile(file).exists()) {
+                    found.add(findOrOpen(file));
+                }
+            }
+        }
+        packs = Collections.unmodifiableList(found);
+    }
+
+    private GitPack findOrOpen(File file) {
+        for (GitPack pack : packs) {
+            if (pack.getFile().equals(file)) {
+                return pack;
+            }
+        }
+        return new GitPack(file, new GitPackIndex(GitPack.indexFile(file), idLength), zipPool);
+    }
+
+    public boolean has(byte[] sha) {
+        for (GitPack pack : packs) {
+            if (pack.has(sha)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getSize(byte[] sha) {
+        for (GitPack pack : packs) {
+            long offset = pack.getIndex().findOffset(sha);
+            if (offset >= 0) {
+                return pack.getSize(offset);
+            }
+        }
+        return -1;
+    }
+
+    public GitRawObject read(byte[] sha) {
+        for (GitPack pack : packs) {
+            long offset = pack.getIndex().findOffset(sha);
+            if (offset >= 0) {
+                return pack.read(offset);
+            }
+        }
+        return null;
+    }
+}
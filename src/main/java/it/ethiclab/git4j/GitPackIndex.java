@@ -0,0 +1,122 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class GitPackIndex {
+
+    private static final int SIGNATURE = 0xff744f63;
+    private static final int VERSION = 2;
+    private static final int FANOUT = 8;
+    private static final int NAMES = FANOUT + 256 * 4;
+
+    private final File file;
+    private final MappedByteBuffer buf;
+    private final int idLength;
+    private final int count;
+    private final int crcs;
+    private final int offsets;
+    private final int largeOffsets;
+
+    public GitPackIndex(File file) {
+        this(file, 20);
+    }
+
+    public GitPackIndex(File file, int idLength) {
+        this.file = file;
+        this.idLength = idLength;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new GitException("pack index too large: " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        if (buf.capacity() < NAMES + 2 * idLength || buf.getInt(0) != SIGNATURE || buf.getInt(4) != VERSION) {
+            throw new GitException("unsupported pack index " + file);
+        }
+        count = buf.getInt(FANOUT + 255 * 4);
+        crcs = NAMES + count * idLength;
+        offsets = crcs + count * 4;
+        largeOffsets = offsets + count * 4;
+        if (largeOffsets + 2 * idLength > buf.capacity()) {
+            throw new GitException("truncated pack index " + file);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public int getObjectCount() {
+        return count;
+    }
+
+    public int find(byte[] sha) {
+        int first = sha[0] & 0xff;
+        int lo = first == 0 ? 0 : buf.getInt(FANOUT + (first - 1) * 4);
+        int hi = buf.getInt(FANOUT + first * 4);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, sha);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int position, byte[] sha) {
+        int base = NAMES + position * idLength;
+        for (int i = 0; i < idLength; i++) {
+            int diff = (buf.get(base + i) & 0xff) - (sha[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    public boolean has(byte[] sha) {
+        return find(sha) >= 0;
+    }
+
+    public long findOffset(byte[] sha) {
+        int position = find(sha);
+        return position < 0 ? -1 : getOffset(position);
+    }
+
+    public long getOffset(int position) {
+        int offset = buf.getInt(offsets + position * 4);
+        if ((offset & 0x80000000) == 0) {
+            return offset;
+        }
+        return buf.getLong(largeOffsets + (offset & 0x7fffffff) * 8);
+    }
+
+    public int getCrc(int position) {
+        return buf.getInt(crcs + position * 4);
+    }
+
+    public byte[] getObjectId(int position) {
+        byte[] sha = new byte[idLength];
+        ByteBuffer view = buf.duplicate();
+        ((Buffer) view).position(NAMES + position * idLength);
+        view.get(sha);
+        return sha;
+    }
+}
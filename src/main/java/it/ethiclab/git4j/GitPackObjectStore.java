@@ -0,0 +1,67 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GitPackObjectStore implements GitObjectStore {
+
+    private final Git git;
+    private final File packFolder;
+    private final GitPackDatabase database;
+    private final Map<ByteBuffer, GitRawObject> pending = new ConcurrentHashMap<>();
+    private GitPackWriter writer;
+
+    public GitPackObjectStore(Git git, File packFolder) {
+        this.git = git;
+        this.packFolder = packFolder;
+        this.database = new GitPackDatabase(packFolder, git.getDigestLength());
+        this.writer = new GitPackWriter(git);
+    }
+
+    public File getPackFolder() {
+        return packFolder;
+    }
+
+    public GitPackDatabase getDatabase() {
+        return database;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public boolean has(byte[] sha) {
+        return pending.containsKey(ByteBuffer.wrap(sha)) || database.has(sha);
+    }
+
+    @Override
+    public GitRawObject get(byte[] sha) {
+        GitRawObject object = pending.get(ByteBuffer.wrap(sha));
+        return object != null ? object : database.read(sha);
+    }
+
+    @Override
+    public synchronized void put(byte[] sha, GitRawObject object) {
+        if (!database.has(sha) && pending.putIfAbsent(ByteBuffer.wrap(sha), object) == null) {
+            writer.add(sha, object);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        writer.write(packFolder);
+        database.rescan();
+        pending.clear();
+        GitPackWriter next = new GitPackWriter(git);
+        next.setDeltaWindow(writer.getDeltaWindow());
+        next.setDeltaDepth(writer.getDeltaDepth());
+        writer = next;
+    }
+}
@@ -0,0 +1,478 @@
+package it.ethiclab.git4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class GitPackWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] PACK_SIGNATURE = {'P', 'A', 'C', 'K'};
+    private static final byte[] IDX_SIGNATURE = {(byte) 0xff, 't', 'O', 'c'};
+    private static final int VERSION = 2;
+    private static final int OFS_DELTA = 6;
+
+    private final Git git;
+    private final List<GitObject> objects = new ArrayList<>();
+    private final List<String> paths = new ArrayList<>();
+    private int deltaWindow = 10;
+    private int deltaDepth = 50;
+
+    public GitPackWriter(Git git) {
+        this.git = git;
+    }
+
+    public int getDeltaWindow() {
+        return deltaWindow;
+    }
+
+    public void setDeltaWindow(int deltaWindow) {
+        this.deltaWindow = deltaWindow;
+    }
+
+    public int getDeltaDepth() {
+        return deltaDepth;
+    }
+
+    public void setDeltaDepth(int deltaDepth) {
+        this.deltaDepth = deltaDepth;
+    }
+
+    public void add(GitObject object) {
+        add(object, null);
+    }
+
+    public void add(GitObject object, String path) {
+        objects.add(object);
+        paths.add(path);
+    }
+
+    public void add(byte[] sha, GitRawObject object) {
+        add(new RawObject(sha, object), null);
+    }
+
+    public void add(byte[] sha, String path, GitObjectType type, long size, Supplier<GitRawObject> loader) {
+        add(new LazyObject(sha, type, size, loader), path);
+    }
+
+    public void add(byte[] sha, GitBlob blob, String path) {
+        add(new HashedBlob(sha, blob), path);
+    }
+
+    public void addAll(Iterable<? extends GitObject> objects) {
+        for (GitObject object : objects) {
+            add(object);
+        }
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    public byte[] write(File packFolder) throws IOException {
+        packFolder.mkdirs();
+        File tmpPack = File.createTempFile("tmp_pack_", null, packFolder);
+        File tmpIdx = File.createTempFile("tmp_idx_", null, packFolder);
+        try {
+            List<Entry> entries = new ArrayList<>();
+            byte[] checksum = writePack(tmpPack, entries);
+            writeIndex(tmpIdx, entries, checksum);
+            String name = "pack-" + git.binaryToHex(checksum);
+            Files.move(tmpPack.toPath(), packFolder.toPath().resolve(name + ".pack"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmpIdx.toPath(), packFolder.toPath().resolve(name + ".idx"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return checksum;
+        } finally {
+            Files.deleteIfExists(tmpPack.toPath());
+            Files.deleteIfExists(tmpIdx.toPath());
+        }
+    }
+
+    private List<Prepared> prepare(GitObjectIdSet seen) {
+        List<Prepared> prepared = new ArrayList<>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            GitObject object = objects.get(i);
+            Prepared p = new Prepared();
+            p.path = paths.get(i);
+            byte[] known = null;
+            if (object instanceof HashedBlob) {
+                known = ((HashedBlob) object).sha;
+                object = ((HashedBlob) object).blob;
+            }
+            if (object instanceof RawObject) {
+                GitRawObject raw = ((RawObject) object).raw;
+                p.type = raw.getType();
+                p.data = raw.getData();
+                p.size = p.data.length;
+                p.sha = ((RawObject) object).sha;
+            } else if (object instanceof LazyObject) {
+                LazyObject lazy = (LazyObject) object;
+                p.type = lazy.type;
+                p.size = lazy.size;
+                p.sha = lazy.sha;
+                p.loader = lazy.loader;
+            } else if (object instanceof GitBlob && ((GitBlob) object).isStreaming() && ((GitBlob) object).getData() == null) {
+                GitBlob blob = (GitBlob) object;
+                p.type = GitObjectType.BLOB;
+                p.size = blob.getSize();
+                p.blob = blob;
+                if (known != null) {
+                    p.sha = known;
+                } else if (blob.getPath() != null) {
+                    p.sha = git.getSha(blob);
+                }
+            } else {
+                p.type = git.getType(object);
+                p.data = git.serialize(object);
+                p.offset = headerLength(p.data);
+                p.size = p.data.length - p.offset;
+                p.sha = known != null ? known : git.getBinarySha1(p.data);
+            }
+            // stdin-backed blobs can be read only once, they are hashed and deduplicated while they are packed
+            if (p.sha == null || seen.add(p.sha)) {
+                prepared.add(p);
+            }
+        }
+        if (deltaWindow > 0) {
+            prepared.sort(Comparator.comparing((Prepared p) -> p.type)
+                    .thenComparing(p -> p.path, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Comparator.comparingLong((Prepared p) -> p.size).reversed()));
+            findDeltas(prepared);
+        }
+        return prepared;
+    }
+
+    private void findDeltas(List<Prepared> prepared) {
+        Deque<Prepared> window = new ArrayDeque<>();
+        for (Prepared p : prepared) {
+            if (p.data == null && p.loader != null) {
+                p.data = p.loader.get().getData();
+            }
+            if (p.data == null) {
+                continue;
+            }
+            byte[] target = Arrays.copyOfRange(p.data, p.offset, p.data.length);
+            int maxSize = target.length / 2 - 20;
+            for (Prepared candidate : window) {
+                if (candidate.type != p.type || candidate.depth >= deltaDepth || maxSize <= 0) {
+                    continue;
+                }
+                if (candidate.index == null) {
+                    candidate.index = new GitDelta.Index(Arrays.copyOfRange(candidate.data, candidate.offset, candidate.data.length));
+                }
+                byte[] delta = candidate.index.encode(target, maxSize);
+                if (delta != null) {
+                    p.base = candidate;
+                    p.delta = delta;
+                    p.depth = candidate.depth + 1;
+                    maxSize = delta.length - 1;
+                }
+            }
+            window.addFirst(p);
+            if (window.size() > deltaWindow) {
+                window.removeLast().release();
+            }
+        }
+        for (Prepared p : window) {
+            p.release();
+        }
+    }
+
+    static int headerLength(byte[] serialized) {
+        for (int i = 0; i < serialized.length; i++) {
+            if (serialized[i] == 0) {
+                return i + 1;
+            }
+        }
+        throw new GitException("corrupt object header");
+    }
+
+    private byte[] writePack(File pack, List<Entry> entries) throws IOException {
+        GitObjectIdSet seen = new GitObjectIdSet(git.getDigestLength(), objects.size());
+        List<Prepared> prepared = prepare(seen);
+        MessageDigest packDigest = git.newMessageDigest();
+        Deflater deflater = git.acquireDeflater(git.getCompressionLevel());
+        try (FileChannel channel = FileChannel.open(pack.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+             PackOutputStream out = new PackOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), packDigest)) {
+            out.write(PACK_SIGNATURE);
+            out.writeInt(VERSION);
+            out.writeInt(prepared.size());
+            for (Prepared p : prepared) {
+                Entry entry = new Entry();
+                entry.offset = out.count;
+                p.packOffset = out.count;
+                out.crc.reset();
+                byte[] data = p.data;
+                if (data == null && p.delta == null && p.loader != null) {
+                    data = p.loader.get().getData();
+                }
+                deflater.reset();
+                deflater.setLevel(level(p, data));
+                DeflaterOutputStream zip = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, BUFFER_SIZE);
+                if (p.delta != null) {
+                    out.writeEntryHeader(OFS_DELTA, p.delta.length);
+                    out.writeOffset(p.packOffset - p.base.packOffset);
+                    zip.write(p.delta);
+                    entry.sha = p.sha;
+                } else if (data != null) {
+                    out.writeEntryHeader(p.type.getPackType(), p.size);
+                    zip.write(data, p.offset, data.length - p.offset);
+                    entry.sha = p.sha;
+                } else {
+                    out.writeEntryHeader(p.type.getPackType(), p.size);
+                    entry.sha = git.streamBlob(p.blob, zip, false);
+                }
+                zip.finish();
+                if (p.sha == null && !seen.add(entry.sha)) {
+                    out.flush();
+                    channel.truncate(entry.offset);
+                    out.count = entry.offset;
+                    continue;
+                }
+                entry.crc = (int) out.crc.getValue();
+                entries.add(entry);
+            }
+            if (entries.size() != prepared.size()) {
+                out.flush();
+                return rewriteCount(channel, entries.size());
+            }
+            byte[] checksum = packDigest.digest();
+            out.write(checksum);
+            return checksum;
+        } finally {
+            git.releaseDeflater(deflater);
+        }
+    }
+
+    private byte[] rewriteCount(FileChannel channel, int count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, count);
+        channel.write(header, 8);
+        MessageDigest digest = git.newMessageDigest();
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        long size = channel.size();
+        for (long pos = 0; pos < size; ) {
+            ((Buffer) buf).clear();
+            int n = channel.read(buf, pos);
+            ((Buffer) buf).flip();
+            digest.update(buf);
+            pos += n;
+        }
+        byte[] checksum = digest.digest();
+        channel.write(ByteBuffer.wrap(checksum), size);
+        return checksum;
+    }
+
+    private int level(Prepared p, byte[] data) {
+        if (p.type != GitObjectType.BLOB || p.delta != null) {
+            return git.getCompressionLevel();
+        }
+        return data != null ? git.getCompressionLevel(data, p.offset, data.length - p.offset) : git.getCompressionLevel(p.blob);
+    }
+
+    private void writeIndex(File idx, List<Entry> entries, byte[] packChecksum) throws IOException {
+        entries.sort((a, b) -> compare(a.sha, b.sha));
+        MessageDigest idxDigest = git.newMessageDigest();
+        try (PackOutputStream out = new PackOutputStream(
+                new BufferedOutputStream(new FileOutputStream(idx), BUFFER_SIZE), idxDigest)) {
+            out.write(IDX_SIGNATURE);
+            out.writeInt(VERSION);
+            int[] fanout = new int[256];
+            for (Entry entry : entries) {
+                fanout[entry.sha[0] & 0xff]++;
+            }
+            int total = 0;
+            for (int count : fanout) {
+                total += count;
+                out.writeInt(total);
+            }
+            for (Entry entry : entries) {
+                out.write(entry.sha);
+            }
+            for (Entry entry : entries) {
+                out.writeInt(entry.crc);
+            }
+            List<Long> largeOffsets = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.offset < 0x80000000L) {
+                    out.writeInt((int) entry.offset);
+                } else {
+                    out.writeInt(0x80000000 | largeOffsets.size());
+                    largeOffsets.add(entry.offset);
+                }
+            }
+            for (long offset : largeOffsets) {
+                out.writeInt((int) (offset >>> 32));
+                out.writeInt((int) offset);
+            }
+            out.write(packChecksum);
+            out.write(idxDigest.digest());
+        }
+    }
+
+    static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static class Prepared {
+        GitObjectType type;
+        long size;
+        byte[] sha;
+        byte[] data;
+        int offset;
+        GitBlob blob;
+        String path;
+        Prepared base;
+        byte[] delta;
+        int depth;
+        GitDelta.Index index;
+        long packOffset;
+        Supplier<GitRawObject> loader;
+
+        void release() {
+            index = null;
+            if (loader != null) {
+                data = null;
+            }
+        }
+    }
+
+    private static class Entry {
+        byte[] sha;
+        long offset;
+        int crc;
+    }
+
+    private static class PackOutputStream extends FilterOutputStream {
+        private final MessageDigest digest;
+        private final CRC32 crc = new CRC32();
+        private long count;
+
+        PackOutputStream(OutputStream out, MessageDigest digest) {
+            super(out);
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            crc.update(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            crc.update(b, off, len);
+            count += len;
+        }
+
+        void writeInt(int value) throws IOException {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeEntryHeader(int type, long size) throws IOException {
+            int b = (type << 4) | (int) (size & 0x0f);
+            size >>>= 4;
+            while (size != 0) {
+                write(b | 0x80);
+                b = (int) (size & 0x7f);
+                size >>>= 7;
+            }
+            write(b);
+        }
+
+        void writeOffset(long offset) throws IOException {
+            byte[] buf = new byte[10];
+            int pos = buf.length - 1;
+            buf[pos] = (byte) (offset & 0x7f);
+            while ((offset >>>= 7) != 0) {
+                buf[--pos] = (byte) (0x80 | (--offset & 0x7f));
+            }
+            write(buf, pos, buf.length - pos);
+        }
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class LazyObject implements GitObject {
+        private final byte[] sha;
+        private final GitObjectType type;
+        private final long size;
+        private final Supplier<GitRawObject> loader;
+
+        LazyObject(byte[] sha, GitObjectType type, long size, Supplier<GitRawObject> loader) {
+            this.sha = sha;
+            this.type = type;
+            this.size = size;
+            this.loader = loader;
+        }
+    }
+
+    private static class HashedBlob implements GitObject {
+        private final byte[] sha;
+        private final GitBlob blob;
+
+        HashedBlob(byte[] sha, GitBlob blob) {
+            this.sha = sha;
+            this.blob = blob;
+        }
+    }
+
+    private static class RawObject implements GitObject {
+        private final byte[] sha;
+        private final GitRawObject raw;
+
+        RawObject(byte[] sha, GitRawObject raw) {
+            this.sha = sha;
+            this.raw = raw;
+        }
+    }
+}
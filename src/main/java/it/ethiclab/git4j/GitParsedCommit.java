@@ -0,0 +1,234 @@
+package it.ethiclab.git4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+class GitParsedCommit extends GitCommit {
+
+    private static final byte[] TREE = {'t', 'r', 'e', 'e', ' '};
+    private static final byte[] PARENT = {'p', 'a', 'r', 'e', 'n', 't', ' '};
+    private static final byte[] AUTHOR = {'a', 'u', 't', 'h', 'o', 'r', ' '};
+    private static final byte[] COMMITTER = {'c', 'o', 'm', 'm', 'i', 't', 't', 'e', 'r', ' '};
+
+    private final byte[] data;
+    private int tree = -1;
+    private int[] parents = new int[2];
+    private int parentCount;
+    private int author = -1;
+    private int committer = -1;
+    private int message = -1;
+
+    private boolean treeDecoded;
+    private boolean parentsDecoded;
+    private boolean authorDecoded;
+    private boolean committerDecoded;
+    private boolean messageDecoded;
+
+    GitParsedCommit(byte[] data) {
+        this.data = data;
+        int pos = 0;
+        while (pos < data.length && data[pos] != '\n') {
+            int end = lineEnd(pos);
+            if (startsWith(pos, TREE)) {
+                tree = pos + TREE.length;
+            } else if (startsWith(pos, PARENT)) {
+                if (parentCount == parents.length) {
+                    parents = Arrays.copyOf(parents, parentCount * 2);
+                }
+                parents[parentCount++] = pos + PARENT.length;
+            } else if (startsWith(pos, AUTHOR)) {
+                author = pos + AUTHOR.length;
+            } else if (startsWith(pos, COMMITTER)) {
+                committer = pos + COMMITTER.length;
+            }
+            pos = end + 1;
+        }
+        message = Math.min(pos + 1, data.length);
+        if (tree < 0) {
+            throw new GitException("corrupt commit: missing tree");
+        }
+    }
+
+    private boolean startsWith(int pos, byte[] prefix) {
+        if (pos + prefix.length > data.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lineEnd(int pos) {
+        while (pos < data.length && data[pos] != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private String line(int pos) {
+        return new String(data, pos, lineEnd(pos) - pos, StandardCharsets.UTF_8);
+    }
+
+    private int identityEnd(int pos) {
+        int end = lineEnd(pos);
+        int close = end;
+        while (close > pos && data[close - 1] != '>') {
+            close--;
+        }
+        return close;
+    }
+
+    private void decodeIdentity(int pos, boolean isAuthor) {
+        if (pos < 0) {
+            return;
+        }
+        int nameEnd = identityEnd(pos);
+        String identity = new String(data, pos, nameEnd - pos, StandardCharsets.UTF_8);
+        String[] stamp = new String(data, nameEnd, lineEnd(pos) - nameEnd, StandardCharsets.US_ASCII).trim().split(" ");
+        Date date = stamp.length > 0 && !stamp[0].isEmpty() ? new Date(Long.parseLong(stamp[0])) : null;
+        String timezone = stamp.length > 1 ? "GMT" + stamp[1] : null;
+        if (isAuthor) {
+            super.setAuthor(identity);
+            super.setAuthoringDate(date);
+            super.setAuthoringTimezone(timezone);
+        } else {
+            super.setCommitter(identity);
+            super.setCommitDate(date);
+            super.setCommitTimezone(timezone);
+        }
+    }
+
+    private void decodeAuthor() {
+        if (!authorDecoded) {
+            authorDecoded = true;
+            decodeIdentity(author, true);
+        }
+    }
+
+    private void decodeCommitter() {
+        if (!committerDecoded) {
+            committerDecoded = true;
+            decodeIdentity(committer, false);
+        }
+    }
+
+    @Override
+    public String getMessage() {
+        if (!messageDecoded) {
+            messageDecoded = true;
+            int end = data.length > message && data[data.length - 1] == '\n' ? data.length - 1 : data.length;
+            super.setMessage(new String(data, message, end - message, StandardCharsets.UTF_8));
+        }
+        return super.getMessage();
+    }
+
+    @Override
+    public void setMessage(String message) {
+        messageDecoded = true;
+        super.setMessage(message);
+    }
+
+    @Override
+    public String getCommitter() {
+        decodeCommitter();
+        return super.getCommitter();
+    }
+
+    @Override
+    public void setCommitter(String committer) {
+        decodeCommitter();
+        super.setCommitter(committer);
+    }
+
+    @Override
+    public Date getCommitDate() {
+        decodeCommitter();
+        return super.getCommitDate();
+    }
+
+    @Override
+    public void setCommitDate(Date commitDate) {
+        decodeCommitter();
+        super.setCommitDate(commitDate);
+    }
+
+    @Override
+    public String getCommitTimezone() {
+        decodeCommitter();
+        return super.getCommitTimezone();
+    }
+
+    @Override
+    public void setCommitTimezone(String commitTimezone) {
+        decodeCommitter();
+        super.setCommitTimezone(commitTimezone);
+    }
+
+    @Override
+    public String getAuthor() {
+        decodeAuthor();
+        return super.getAuthor();
+    }
+
+    @Override
+    public void setAuthor(String author) {
+        decodeAuthor();
+        super.setAuthor(author);
+    }
+
+    @Override
+    public Date getAuthoringDate() {
+        decodeAuthor();
+        return super.getAuthoringDate();
+    }
+
+    @Override
+    public void setAuthoringDate(Date authoringDate) {
+        decodeAuthor();
+        super.setAuthoringDate(authoringDate);
+    }
+
+    @Override
+    public String getAuthoringTimezone() {
+        decodeAuthor();
+        return super.getAuthoringTimezone();
+    }
+
+    @Override
+    public void setAuthoringTimezone(String authoringTimezone) {
+        decodeAuthor();
+        super.setAuthoringTimezone(authoringTimezone);
+    }
+
+    @Override
+    public String getTree() {
+        if (!treeDecoded) {
+            treeDecoded = true;
+            super.setTree(line(tree));
+        }
+        return super.getTree();
+    }
+
+    @Override
+    public void setTree(String tree) {
+        treeDecoded = true;
+        super.setTree(tree);
+    }
+
+    @Override
+    public List<String> getParentCommits() {
+        List<String> list = super.getParentCommits();
+        if (!parentsDecoded) {
+            parentsDecoded = true;
+            for (int i = 0; i < parentCount; i++) {
+                list.add(line(parents[i]));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,69 @@
+package it.ethiclab.git4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+class GitParsedTreeEntries extends AbstractList<GitTreeEntry> implements RandomAccess {
+
+    private final byte[] data;
+    private final int idLength;
+    private int[] offsets;
+    private GitTreeEntry[] entries;
+
+    GitParsedTreeEntries(byte[] data, int idLength) {
+        this.data = data;
+        this.idLength = idLength;
+    }
+
+    private int[] offsets() {
+        if (offsets == null) {
+            int[] found = new int[16];
+            int count = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = pos;
+                while (pos < data.length && data[pos] != 0) {
+                    pos++;
+                }
+                pos += 1 + idLength;
+                if (pos > data.length) {
+                    throw new GitException("corrupt tree: truncated entry");
+                }
+            }
+            offsets = Arrays.copyOf(found, count);
+            entries = new GitTreeEntry[count];
+        }
+        return offsets;
+    }
+
+    @Override
+    public GitTreeEntry get(int index) {
+        int[] offsets = offsets();
+        if (entries[index] == null) {
+            int pos = offsets[index];
+            int space = pos;
+            while (data[space] != ' ') {
+                space++;
+            }
+            int nul = space + 1;
+            while (data[nul] != 0) {
+                nul++;
+            }
+            String mode = new String(data, pos, space - pos, StandardCharsets.US_ASCII);
+            String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+            byte[] sha = Arrays.copyOfRange(data, nul + 1, nul + 1 + idLength);
+            entries[index] = new GitTreeEntry(mode, name, sha);
+        }
+        return entries[index];
+    }
+
+    @Override
+    public int size() {
+        return offsets().length;
+    }
+}
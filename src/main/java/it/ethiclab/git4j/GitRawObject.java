@@ -0,0 +1,23 @@
+package it.ethiclab.git4j;
+
+public class GitRawObject {
+    private final GitObjectType type;
+    private final byte[] data;
+
+    public GitRawObject(GitObjectType type, byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    public GitObjectType getType() {
+        return type;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getSize() {
+        return data.length;
+    }
+}
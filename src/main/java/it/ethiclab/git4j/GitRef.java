@@ -0,0 +1,47 @@
+package it.ethiclab.git4j;
+
+public class GitRef {
+
+    private final String name;
+    private final byte[] id;
+    private final String target;
+    private final byte[] peeled;
+    private final boolean packed;
+
+    public GitRef(String name, byte[] id, String target, byte[] peeled, boolean packed) {
+        this.name = name;
+        this.id = id;
+        this.target = target;
+        this.peeled = peeled;
+        this.packed = packed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getId() {
+        return id;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public byte[] getPeeled() {
+        return peeled;
+    }
+
+    public boolean isSymbolic() {
+        return target != null;
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    @Override
+    public String toString() {
+        return (target != null ? "ref: " + target : GitHex.encode(id)) + " " + name;
+    }
+}
@@ -0,0 +1,665 @@
+package it.ethiclab.git4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class GitRefDatabase {
+
+    public static final Comparator<String> NAME_ORDER = (a, b) -> GitTreeEntry.compareNames(a, false, b, false);
+
+    private static final String PACKED_REFS = "packed-refs";
+    private static final String LOCK = ".lock";
+    private static final String HEADER = "# pack-refs with:";
+    private static final int MAX_SYMBOLIC_DEPTH = 5;
+
+    private final Path gitDir;
+    private final int hexLength;
+    private long lockTimeout = 1000;
+    private volatile Snapshot packed = Snapshot.EMPTY;
+
+    public GitRefDatabase(Git git, File gitDir) {
+        this.gitDir = gitDir.toPath().toAbsolutePath();
+        this.hexLength = git.getDigestLength() * 2;
+    }
+
+    public long getLockTimeout() {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(long lockTimeout) {
+        if (lockTimeout < 0) {
+            throw new GitException("invalid lock timeout " + lockTimeout);
+        }
+        this.lockTimeout = lockTimeout;
+    }
+
+    public GitRef exactRef(String name) {
+        checkName(name);
+        GitRef ref = loose(name);
+        return ref != null ? ref : snapshot().find(name);
+    }
+
+    public byte[] resolve(String name) {
+        String current = name;
+        for (int depth = 0; depth <= MAX_SYMBOLIC_DEPTH; depth++) {
+            GitRef ref = exactRef(current);
+            if (ref == null) {
+                return null;
+            }
+            if (!ref.isSymbolic()) {
+                return ref.getId();
+            }
+            current = ref.getTarget();
+        }
+        throw new GitException("symbolic ref loop " + name);
+    }
+
+    public Map<String, GitRef> getRefs(String prefix) {
+        Map<String, GitRef> refs = new TreeMap<>(NAME_ORDER);
+        Snapshot snapshot = snapshot();
+        byte[] start = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int rec = snapshot.lowerBound(start); rec < snapshot.end && snapshot.startsWith(rec, start); rec = snapshot.next(rec)) {
+            GitRef ref = snapshot.ref(rec);
+            refs.put(ref.getName(), ref);
+        }
+        String dirName = prefix.substring(0, prefix.lastIndexOf('/') + 1);
+        Path dir = dirName.startsWith("refs/") ? gitDir.resolve(dirName) : gitDir.resolve("refs");
+        if (!Files.isDirectory(dir)) {
+            return refs;
+        }
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = name(file);
+                    if (attrs.isRegularFile() && name.startsWith(prefix) && !name.endsWith(LOCK)) {
+                        GitRef ref = loose(name);
+                        if (ref != null) {
+                            refs.put(name, ref);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        return refs;
+    }
+
+    public boolean compareAndSet(String name, byte[] expected, byte[] id) {
+        return newTransaction().update(name, expected, id).commit();
+    }
+
+    public void setSymbolicRef(String name, String target) {
+        checkName(name);
+        checkName(target);
+        Path file = gitDir.resolve(name);
+        Path lock = lock(name, file, lockTimeout);
+        try {
+            Files.write(lock, ("ref: " + target + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(lock, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(lock);
+            throw new GitException(e);
+        }
+    }
+
+    public GitRefTransaction newTransaction() {
+        return new GitRefTransaction(this);
+    }
+
+    public int pack() {
+        Path packedFile = gitDir.resolve(PACKED_REFS);
+        Path packedLock = lock(PACKED_REFS, packedFile, lockTimeout);
+        List<String> names = new ArrayList<>();
+        List<Path> locks = new ArrayList<>();
+        try {
+            Snapshot snapshot = snapshot();
+            Map<String, GitRef> refs = new TreeMap<>(NAME_ORDER);
+            for (int rec = snapshot.start; rec < snapshot.end; rec = snapshot.next(rec)) {
+                GitRef ref = snapshot.ref(rec);
+                refs.put(ref.getName(), ref);
+            }
+            for (String name : getRefs("refs/").keySet()) {
+                Path file = gitDir.resolve(name);
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                Path lock = tryLock(name, file);
+                if (lock == null) {
+                    continue;
+                }
+                locks.add(lock);
+                GitRef ref = loose(name);
+                if (ref == null || ref.isSymbolic()) {
+                    locks.remove(locks.size() - 1);
+                    deleteQuietly(lock);
+                    continue;
+                }
+                names.add(name);
+                refs.put(name, ref);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out, HEADER + " sorted \n");
+            for (GitRef ref : refs.values()) {
+                write(out, GitHex.encode(ref.getId()) + " " + ref.getName() + "\n");
+                if (ref.getPeeled() != null) {
+                    write(out, "^" + GitHex.encode(ref.getPeeled()) + "\n");
+                }
+            }
+            Files.write(packedLock, out.toByteArray());
+            Files.move(packedLock, packedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            packedLock = null;
+            for (int i = 0; i < names.size(); i++) {
+                Path file = gitDir.resolve(names.get(i));
+                Files.deleteIfExists(file);
+                deleteQuietly(locks.set(i, null));
+                prune(file.getParent());
+            }
+            return names.size();
+        } catch (IOException e) {
+            throw new GitException(e);
+        } finally {
+            if (packedLock != null) {
+                deleteQuietly(packedLock);
+            }
+            for (Path lock : locks) {
+                if (lock != null) {
+                    deleteQuietly(lock);
+                }
+            }
+        }
+    }
+
+    boolean commit(List<GitRefTransaction.Update> updates) {
+        if (updates.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < updates.size(); i++) {
+            GitRefTransaction.Update update = updates.get(i);
+            String target = dereference(update.name);
+            if (!target.equals(update.name)) {
+                updates.set(i, new GitRefTransaction.Update(target, update.checked, update.expected, update.id));
+            }
+        }
+        updates.sort((a, b) -> NAME_ORDER.compare(a.name, b.name));
+        for (int i = 1; i < updates.size(); i++) {
+            if (updates.get(i).name.equals(updates.get(i - 1).name)) {
+                throw new GitException("duplicate ref update " + updates.get(i).name);
+            }
+        }
+        Path[] locks = new Path[updates.size()];
+        Path packedLock = null;
+        try {
+            for (int i = 0; i < locks.length; i++) {
+                String name = updates.get(i).name;
+                locks[i] = lock(name, gitDir.resolve(name), lockTimeout);
+            }
+            Set<String> packedDeletes = new HashSet<>();
+            Snapshot snapshot = snapshot();
+            for (GitRefTransaction.Update update : updates) {
+                GitRef current = loose(update.name);
+                if (current == null) {
+                    current = snapshot.find(update.name);
+                }
+                if (current != null && current.isSymbolic()) {
+                    return false;
+                }
+                byte[] currentId = current == null ? null : current.getId();
+                if (update.checked && !Arrays.equals(currentId, update.expected)) {
+                    return false;
+                }
+                if (update.id == null && snapshot.find(update.name) != null) {
+                    packedDeletes.add(update.name);
+                }
+                if (current == null && update.id != null) {
+                    checkConflicts(update.name);
+                }
+            }
+            if (!packedDeletes.isEmpty()) {
+                Path packedFile = gitDir.resolve(PACKED_REFS);
+                packedLock = lock(PACKED_REFS, packedFile, lockTimeout);
+                Files.write(packedLock, snapshot().without(packedDeletes));
+                Files.move(packedLock, packedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                packedLock = null;
+            }
+            for (int i = 0; i < locks.length; i++) {
+                GitRefTransaction.Update update = updates.get(i);
+                Path file = gitDir.resolve(update.name);
+                if (update.id != null) {
+                    Files.write(locks[i], (GitHex.encode(update.id) + "\n").getBytes(StandardCharsets.US_ASCII));
+                    Files.move(locks[i], file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    locks[i] = null;
+                } else {
+                    Files.deleteIfExists(file);
+                    deleteQuietly(locks[i]);
+                    locks[i] = null;
+                    prune(file.getParent());
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new GitException(e);
+        } finally {
+            if (packedLock != null) {
+                deleteQuietly(packedLock);
+            }
+            for (Path lock : locks) {
+                if (lock != null) {
+                    deleteQuietly(lock);
+                }
+            }
+        }
+    }
+
+    private String dereference(String name) {
+        String current = name;
+        for (int depth = 0; depth <= MAX_SYMBOLIC_DEPTH; depth++) {
+            GitRef ref = exactRef(current);
+            if (ref == null || !ref.isSymbolic()) {
+                return current;
+            }
+            current = ref.getTarget();
+        }
+        throw new GitException("symbolic ref loop " + name);
+    }
+
+    private void checkConflicts(String name) {
+        for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+            String parent = name.substring(0, i);
+            if (parent.startsWith("refs/") && exactRef(parent) != null) {
+                throw new GitException("ref " + name + " conflicts with " + parent);
+            }
+        }
+        Map<String, GitRef> children = getRefs(name + "/");
+        if (!children.isEmpty()) {
+            throw new GitException("ref " + name + " conflicts with " + children.keySet().iterator().next());
+        }
+    }
+
+    private Path lock(String name, Path file, long timeout) {
+        long deadline = System.nanoTime() + timeout * 1_000_000;
+        long wait = 1;
+        while (true) {
+            Path lock = tryLock(name, file);
+            if (lock != null) {
+                return lock;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new GitException("ref is locked: " + name);
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(wait) + 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GitException(e);
+            }
+            wait = Math.min(wait * 2, 16);
+        }
+    }
+
+    private Path tryLock(String name, Path file) {
+        Path lock = file.resolveSibling(file.getFileName() + LOCK);
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (FileAlreadyExistsException | NotDirectoryException e) {
+            for (Path dir = file.getParent(); dir.startsWith(gitDir) && !dir.equals(gitDir); dir = dir.getParent()) {
+                if (Files.isRegularFile(dir)) {
+                    throw new GitException("ref " + name + " conflicts with " + name(dir));
+                }
+            }
+            throw new GitException("cannot lock ref " + name + ": " + e);
+        } catch (IOException e) {
+            throw new GitException("cannot lock ref " + name + ": " + e);
+        }
+        try {
+            Files.newOutputStream(lock, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+            return lock;
+        } catch (FileAlreadyExistsException e) {
+            return null;
+        } catch (IOException e) {
+            throw new GitException("cannot lock ref " + name + ": " + e);
+        }
+    }
+
+    private void prune(Path dir) {
+        Path refs = gitDir.resolve("refs");
+        for (; dir != null && dir.startsWith(refs) && !dir.equals(refs) && !dir.getParent().equals(refs); dir = dir.getParent()) {
+            try {
+                Files.delete(dir);
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private GitRef loose(String name) {
+        Path file = gitDir.resolve(name);
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (IOException e) {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            throw new GitException(e);
+        }
+        String content = new String(data, StandardCharsets.UTF_8);
+        if (content.startsWith("ref: ")) {
+            return new GitRef(name, null, content.substring(5).trim(), null, false);
+        }
+        if (content.length() < hexLength) {
+            throw new GitException("corrupt ref " + name);
+        }
+        return new GitRef(name, GitHex.decode(content.substring(0, hexLength)), null, null, false);
+    }
+
+    private String name(Path file) {
+        return gitDir.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private Snapshot snapshot() {
+        Path file = gitDir.resolve(PACKED_REFS);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Snapshot.EMPTY;
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+        Snapshot current = packed;
+        if (current.matches(attrs)) {
+            return current;
+        }
+        current = new Snapshot(map(file), hexLength, attrs);
+        packed = current;
+        return current;
+    }
+
+    private static ByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new GitException("packed refs too large: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return ByteBuffer.allocate(0);
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    private static void write(ByteArrayOutputStream out, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // the original error is more useful
+        }
+    }
+
+    void checkId(byte[] id) {
+        if (id != null && id.length * 2 != hexLength) {
+            throw new GitException("invalid id length " + id.length);
+        }
+    }
+
+    static void checkName(String name) {
+        if (name == null || name.isEmpty() || name.startsWith("/") || name.endsWith("/") || name.endsWith(".")
+                || name.endsWith(LOCK) || name.contains("..") || name.contains("//") || name.contains("@{")
+                || name.contains("/.") || name.startsWith(".") || name.contains(LOCK + "/") || name.equals("@")) {
+            throw new GitException("invalid ref name " + name);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x20 || c == 0x7f || " ~^:?*[\\".indexOf(c) >= 0) {
+                throw new GitException("invalid ref name " + name);
+            }
+        }
+        if (!name.startsWith("refs/") && !name.matches("[A-Z_]+")) {
+            throw new GitException("invalid ref name " + name);
+        }
+    }
+
+    private static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(ByteBuffer.allocate(0), 0, null);
+
+        private final ByteBuffer buf;
+        private final int hexLength;
+        private final Object fileKey;
+        private final long modified;
+        private final long size;
+        private final int start;
+        private final int end;
+
+        Snapshot(ByteBuffer buf, int hexLength, BasicFileAttributes attrs) {
+            this.hexLength = hexLength;
+            this.fileKey = attrs == null ? null : attrs.fileKey();
+            this.modified = attrs == null ? 0 : attrs.lastModifiedTime().toMillis();
+            this.size = attrs == null ? -1 : attrs.size();
+            int headerEnd = 0;
+            boolean sorted = false;
+            if (startsWith(buf, 0, HEADER.getBytes(StandardCharsets.US_ASCII))) {
+                headerEnd = lineEnd(buf, 0, buf.capacity()) + 1;
+                byte[] header = new byte[headerEnd];
+                buf.duplicate().get(header);
+                sorted = new String(header, StandardCharsets.US_ASCII).contains(" sorted ");
+            }
+            if (sorted) {
+                this.buf = buf;
+                this.start = headerEnd;
+            } else {
+                this.buf = sort(buf, headerEnd);
+                this.start = lineEnd(this.buf, 0, this.buf.capacity()) + 1;
+            }
+            this.end = this.buf.capacity();
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return fileKey != null && fileKey.equals(attrs.fileKey()) && modified == attrs.lastModifiedTime().toMillis()
+                    && size == attrs.size();
+        }
+
+        private ByteBuffer sort(ByteBuffer unsorted, int from) {
+            int to = unsorted.capacity();
+            List<byte[]> records = new ArrayList<>();
+            for (int rec = from; rec < to; ) {
+                int next = lineEnd(unsorted, rec, to) + 1;
+                while (next < to && unsorted.get(next) == '^') {
+                    next = lineEnd(unsorted, next, to) + 1;
+                }
+                byte[] record = new byte[Math.min(next, to) - rec];
+                ByteBuffer b = unsorted.duplicate();
+                ((Buffer) b).position(rec);
+                b.get(record);
+                if (record.length > 0 && record[0] != '#') {
+                    records.add(record);
+                }
+                rec = next;
+            }
+            records.sort((a, b) -> compareNames(a, b, hexLength + 1));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out, HEADER + " sorted \n");
+            for (byte[] record : records) {
+                out.write(record, 0, record.length);
+                if (record[record.length - 1] != '\n') {
+                    out.write('\n');
+                }
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+
+        private static int compareNames(byte[] a, byte[] b, int offset) {
+            for (int i = offset; ; i++) {
+                int x = i < a.length && a[i] != '\n' ? a[i] & 0xff : -1;
+                int y = i < b.length && b[i] != '\n' ? b[i] & 0xff : -1;
+                if (x != y || x < 0) {
+                    return x - y;
+                }
+            }
+        }
+
+        GitRef find(String name) {
+            byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            int rec = lowerBound(key);
+            return rec < end && compare(rec, key) == 0 ? ref(rec) : null;
+        }
+
+        int lowerBound(byte[] key) {
+            int lo = start;
+            int hi = end;
+            while (lo < hi) {
+                int rec = recordStart((lo + hi) >>> 1, lo);
+                if (compare(rec, key) < 0) {
+                    lo = next(rec);
+                } else {
+                    hi = rec;
+                }
+            }
+            return lo;
+        }
+
+        private int recordStart(int pos, int lo) {
+            pos = lineStart(pos, lo);
+            while (pos > lo && buf.get(pos) == '^') {
+                pos = lineStart(pos - 1, lo);
+            }
+            return pos;
+        }
+
+        private int lineStart(int pos, int lo) {
+            while (pos > lo && buf.get(pos - 1) != '\n') {
+                pos--;
+            }
+            return pos;
+        }
+
+        int next(int rec) {
+            int pos = lineEnd(buf, rec, end) + 1;
+            while (pos < end && buf.get(pos) == '^') {
+                pos = lineEnd(buf, pos, end) + 1;
+            }
+            return Math.min(pos, end);
+        }
+
+        private int nameStart(int rec) {
+            int pos = rec + hexLength;
+            if (pos >= end || buf.get(pos) != ' ') {
+                throw new GitException("corrupt packed refs at offset " + rec);
+            }
+            return pos + 1;
+        }
+
+        private int compare(int rec, byte[] key) {
+            int pos = nameStart(rec);
+            for (int i = 0; ; i++, pos++) {
+                int x = pos < end && buf.get(pos) != '\n' ? buf.get(pos) & 0xff : -1;
+                int y = i < key.length ? key[i] & 0xff : -1;
+                if (x != y || x < 0) {
+                    return x - y;
+                }
+            }
+        }
+
+        boolean startsWith(int rec, byte[] prefix) {
+            return startsWith(buf, nameStart(rec), prefix);
+        }
+
+        private static boolean startsWith(ByteBuffer buf, int pos, byte[] prefix) {
+            if (pos + prefix.length > buf.capacity()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buf.get(pos + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        GitRef ref(int rec) {
+            int nameStart = nameStart(rec);
+            int lineEnd = lineEnd(buf, nameStart, end);
+            byte[] id = GitHex.decode(string(rec, rec + hexLength));
+            byte[] peeled = null;
+            if (lineEnd + 1 < end && buf.get(lineEnd + 1) == '^') {
+                peeled = GitHex.decode(string(lineEnd + 2, lineEnd + 2 + hexLength));
+            }
+            return new GitRef(new String(bytes(nameStart, lineEnd), StandardCharsets.UTF_8), id, null, peeled, true);
+        }
+
+        byte[] without(Set<String> names) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] header = bytes(0, start);
+            out.write(header, 0, header.length);
+            for (int rec = start; rec < end; ) {
+                int next = next(rec);
+                int nameStart = nameStart(rec);
+                String name = new String(bytes(nameStart, lineEnd(buf, nameStart, end)), StandardCharsets.UTF_8);
+                if (!names.contains(name)) {
+                    byte[] record = bytes(rec, next);
+                    out.write(record, 0, record.length);
+                }
+                rec = next;
+            }
+            return out.toByteArray();
+        }
+
+        private String string(int from, int to) {
+            if (to > end) {
+                throw new GitException("corrupt packed refs at offset " + from);
+            }
+            return new String(bytes(from, to), StandardCharsets.US_ASCII);
+        }
+
+        private byte[] bytes(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buf.get(from + i);
+            }
+            return bytes;
+        }
+
+        private static int lineEnd(ByteBuffer buf, int pos, int end) {
+            while (pos < end && buf.get(pos) != '\n') {
+                pos++;
+            }
+            return pos;
+        }
+    }
+}
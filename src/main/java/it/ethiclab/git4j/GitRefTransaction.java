@@ -0,0 +1,56 @@
+package it.ethiclab.git4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GitRefTransaction {
+
+    private final GitRefDatabase refs;
+    private final List<Update> updates = new ArrayList<>();
+
+    GitRefTransaction(GitRefDatabase refs) {
+        this.refs = refs;
+    }
+
+    public GitRefTransaction update(String name, byte[] expected, byte[] id) {
+        return add(name, true, expected, id);
+    }
+
+    public GitRefTransaction set(String name, byte[] id) {
+        return add(name, false, null, id);
+    }
+
+    public GitRefTransaction delete(String name, byte[] expected) {
+        return add(name, true, expected, null);
+    }
+
+    public int size() {
+        return updates.size();
+    }
+
+    public boolean commit() {
+        return refs.commit(new ArrayList<>(updates));
+    }
+
+    private GitRefTransaction add(String name, boolean checked, byte[] expected, byte[] id) {
+        GitRefDatabase.checkName(name);
+        refs.checkId(expected);
+        refs.checkId(id);
+        updates.add(new Update(name, checked, expected, id));
+        return this;
+    }
+
+    static class Update {
+        final String name;
+        final boolean checked;
+        final byte[] expected;
+        final byte[] id;
+
+        Update(String name, boolean checked, byte[] expected, byte[] id) {
+            this.name = name;
+            this.checked = checked;
+            this.expected = expected;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GitSnapshot {
+
+    public static final String FILE_MODE = "100644";
+    public static final String EXECUTABLE_MODE = "100755";
+    public static final String SYMLINK_MODE = "120000";
+    public static final String TREE_MODE = "40000";
+
+    private final Git git;
+    private final AtomicInteger hashed = new AtomicInteger();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private GitIndex index;
+    private Set<String> seen;
+
+    public GitSnapshot(Git git) {
+        this.git = git;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new GitException("invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public GitIndex getIndex() {
+        return index;
+    }
+
+    public void setIndex(GitIndex index) {
+        this.index = index;
+    }
+
+    public int getLastHashedCount() {
+        return hashed.get();
+    }
+
+    public GitTreeEntry writeTree(Path dir) {
+        return writeTree(dir, new Sink() {
+            @Override
+            public byte[] blob(GitBlob blob) {
+                return git.getSha(blob);
+            }
+
+            @Override
+            public byte[] tree(GitTreeEntry tree) {
+                return git.getTreeSha(tree);
+            }
+        });
+    }
+
+    public GitTreeEntry writeTree(Path dir, File objectsFolder) {
+        try {
+            Files.createDirectories(objectsFolder.toPath());
+            try (GitObjectWriter writer = new GitObjectWriter(git, objectsFolder)) {
+                return writeTree(dir, writer);
+            }
+        } catch (IOException e) {
+            throw new GitException(e);
+        }
+    }
+
+    public GitTreeEntry writeTree(Path dir, GitObjectWriter writer) {
+        return writeTree(dir, new Sink() {
+            @Override
+            public byte[] blob(GitBlob blob) throws IOException {
+                return writer.write(blob);
+            }
+
+            @Override
+            public byte[] tree(GitTreeEntry tree) throws IOException {
+                return writer.write(tree);
+            }
+        });
+    }
+
+    public GitTreeEntry writeTree(Path dir, GitObjectStore store) {
+        return writeTree(dir, new Sink() {
+            @Override
+            public byte[] blob(GitBlob blob) throws IOException {
+                return git.write(store, blob);
+            }
+
+            @Override
+            public byte[] tree(GitTreeEntry tree) throws IOException {
+                return git.write(store, tree);
+            }
+        });
+    }
+
+    public GitTreeEntry writeTree(Path dir, GitPackWriter packWriter) {
+        return writeTree(dir, new Sink() {
+            @Override
+            public byte[] blob(GitBlob blob) {
+                byte[] sha = git.getSha(blob);
+                synchronized (packWriter) {
+                    packWriter.add(sha, blob, blob.getPath() == null ? null : blob.getPath().getFileName().toString());
+                }
+                return sha;
+            }
+
+            @Override
+            public byte[] tree(GitTreeEntry tree) {
+                byte[] data = git.serialize(tree);
+                byte[] sha = git.getBinarySha1(data);
+                GitRawObject raw = new GitRawObject(GitObjectType.TREE, Arrays.copyOfRange(data, GitPackWriter.headerLength(data), data.length));
+                synchronized (packWriter) {
+                    packWriter.add(sha, raw);
+                }
+                return sha;
+            }
+        });
+    }
+
+    private GitTreeEntry writeTree(Path dir, Sink sink) {
+        hashed.set(0);
+        seen = index == null ? null : ConcurrentHashMap.newKeySet();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            GitTreeEntry root = new GitTreeEntry(pool.invoke(new DirectoryTask(dir, "", sink)));
+            sink.tree(root);
+            if (index != null) {
+                index.retainAll(seen);
+            }
+            return root;
+        } catch (IOException e) {
+            throw new GitException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static String mode(Path path) throws IOException {
+        if (Files.isSymbolicLink(path)) {
+            return SYMLINK_MODE;
+        }
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            return TREE_MODE;
+        }
+        try {
+            return Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS).contains(PosixFilePermission.OWNER_EXECUTE)
+                    ? EXECUTABLE_MODE : FILE_MODE;
+        } catch (UnsupportedOperationException e) {
+            return Files.isExecutable(path) ? EXECUTABLE_MODE : FILE_MODE;
+        }
+    }
+
+    static GitBlob blob(Path path, String mode) throws IOException {
+        if (SYMLINK_MODE.equals(mode)) {
+            return new GitBlob(Files.readSymbolicLink(path).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return new GitBlob(path);
+    }
+
+    private interface Sink {
+        byte[] blob(GitBlob blob) throws IOException;
+
+        byte[] tree(GitTreeEntry tree) throws IOException;
+    }
+
+    private class DirectoryTask extends RecursiveTask<List<GitTreeEntry>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final String prefix;
+        private final Sink sink;
+
+        DirectoryTask(Path dir, String prefix, Sink sink) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.sink = sink;
+        }
+
+        @Override
+        protected List<GitTreeEntry> compute() {
+            List<EntryTask> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    if (!child.getFileName().toString().equals(".git")) {
+                        tasks.add(new EntryTask(child, prefix, sink));
+                    }
+                }
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+            invokeAll(tasks);
+            List<GitTreeEntry> entries = new ArrayList<>(tasks.size());
+            for (EntryTask task : tasks) {
+                GitTreeEntry entry = task.join();
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort(GitTreeEntry.GIT_ORDER);
+            return entries;
+        }
+    }
+
+    private class EntryTask extends RecursiveTask<GitTreeEntry> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final String prefix;
+        private final Sink sink;
+
+        EntryTask(Path path, String prefix, Sink sink) {
+            this.path = path;
+            this.prefix = prefix;
+            this.sink = sink;
+        }
+
+        @Override
+        protected GitTreeEntry compute() {
+            try {
+                String name = path.getFileName().toString();
+                GitIndexEntry stat = index == null ? null : GitIndex.stat(prefix + name, path);
+                if (stat != null && stat.getMode() == 0) {
+                    return null;
+                }
+                String mode = stat == null ? mode(path) : stat.getOctalMode();
+                if (TREE_MODE.equals(mode)) {
+                    List<GitTreeEntry> children = new DirectoryTask(path, prefix + name + "/", sink).compute();
+                    if (children.isEmpty()) {
+                        return null;
+                    }
+                    return new GitTreeEntry(TREE_MODE, name, sink.tree(new GitTreeEntry(children)), children);
+                }
+                return new GitTreeEntry(mode, name, stat == null ? hash(mode) : hash(mode, stat));
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+        }
+
+        private byte[] hash(String mode) throws IOException {
+            hashed.incrementAndGet();
+            return sink.blob(blob(path, mode));
+        }
+
+        private byte[] hash(String mode, GitIndexEntry stat) throws IOException {
+            seen.add(stat.getPath());
+            GitIndexEntry cached = index.getEntry(stat.getPath());
+            if (cached != null && index.isUpToDate(cached, stat)) {
+                return cached.getSha1();
+            }
+            byte[] sha = hash(mode);
+            index.put(stat.withSha1(sha));
+            return sha;
+        }
+    }
+}
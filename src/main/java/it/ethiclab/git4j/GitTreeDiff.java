@@ -0,0 +1,381 @@
+package it.ethiclab.git4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class GitTreeDiff {
+
+    private static final int MAX_SCORE = 100;
+    private static final int CHUNK = 64;
+
+    private final Git git;
+    private final GitObjectStore store;
+    private boolean detectRenames;
+    private int renameScore = 50;
+    private int renameLimit = 1000;
+    private boolean verifyNames;
+    private volatile int lastVisitedTreeCount;
+
+    public GitTreeDiff(Git git) {
+        this(git, null);
+    }
+
+    public GitTreeDiff(Git git, GitObjectStore store) {
+        this.git = git;
+        this.store = store;
+    }
+
+    public boolean isDetectRenames() {
+        return detectRenames;
+    }
+
+    public void setDetectRenames(boolean detectRenames) {
+        this.detectRenames = detectRenames;
+    }
+
+    public int getRenameScore() {
+        return renameScore;
+    }
+
+    public void setRenameScore(int renameScore) {
+        if (renameScore < 0 || renameScore > MAX_SCORE) {
+            throw new GitException("invalid rename score " + renameScore);
+        }
+        this.renameScore = renameScore;
+    }
+
+    public int getRenameLimit() {
+        return renameLimit;
+    }
+
+    public void setRenameLimit(int renameLimit) {
+        if (renameLimit < 0) {
+            throw new GitException("invalid rename limit " + renameLimit);
+        }
+        this.renameLimit = renameLimit;
+    }
+
+    void setVerifyNames(boolean verifyNames) {
+        this.verifyNames = verifyNames;
+    }
+
+    public int getLastVisitedTreeCount() {
+        return lastVisitedTreeCount;
+    }
+
+    public List<GitChange> diff(GitTreeEntry a, GitTreeEntry b) {
+        List<GitChange> changes = new ArrayList<>();
+        diff(a, b, changes::add);
+        return changes;
+    }
+
+    public List<GitChange> diff(byte[] a, byte[] b) {
+        List<GitChange> changes = new ArrayList<>();
+        diff(a, b, changes::add);
+        return changes;
+    }
+
+    public void diff(byte[] a, byte[] b, Consumer<GitChange> consumer) {
+        diff(a == null ? null : new GitTreeEntry(GitSnapshot.TREE_MODE, "", a),
+                b == null ? null : new GitTreeEntry(GitSnapshot.TREE_MODE, "", b), consumer);
+    }
+
+    public void diff(GitTreeEntry a, GitTreeEntry b, Consumer<GitChange> consumer) {
+        Walk walk = new Walk(consumer);
+        try {
+            if (a != null && b != null && a.getSha1() != null && Arrays.equals(a.getSha1(), b.getSha1())) {
+                return;
+            }
+            walk.trees("", a, b);
+            if (detectRenames) {
+                walk.renames();
+            }
+        } finally {
+            lastVisitedTreeCount = walk.visited;
+        }
+    }
+
+    private List<GitTreeEntry> children(GitTreeEntry tree) {
+        if (tree == null) {
+            return Collections.emptyList();
+        }
+        if (!tree.getObjects().isEmpty() || tree.getSha1() == null) {
+            return tree.getObjects();
+        }
+        GitRawObject raw = store == null ? null : store.get(tree.getSha1());
+        if (raw == null || raw.getType() != GitObjectType.TREE) {
+            throw new GitException("missing tree " + git.binaryToHex(tree.getSha1()));
+        }
+        return ((GitTreeEntry) git.parse(raw)).getObjects();
+    }
+
+    private static int format(String mode) {
+        return Integer.parseInt(mode, 8) & 0170000;
+    }
+
+    private class Walk {
+        private final Consumer<GitChange> consumer;
+        private final List<GitChange> added = new ArrayList<>();
+        private final List<GitChange> deleted = new ArrayList<>();
+        private int visited;
+
+        Walk(Consumer<GitChange> consumer) {
+            this.consumer = consumer;
+        }
+
+        void trees(String prefix, GitTreeEntry a, GitTreeEntry b) {
+            visited++;
+            List<GitTreeEntry> x = children(a);
+            List<GitTreeEntry> y = children(b);
+            int i = 0;
+            int j = 0;
+            while (i < x.size() || j < y.size()) {
+                GitTreeEntry e = i < x.size() ? x.get(i) : null;
+                GitTreeEntry f = j < y.size() ? y.get(j) : null;
+                int c = e == null ? 1 : f == null ? -1 : GitTreeEntry.GIT_ORDER.compare(e, f);
+                if (c < 0) {
+                    deleted(prefix, e);
+                    i++;
+                } else if (c > 0) {
+                    added(prefix, f);
+                    j++;
+                } else {
+                    changed(prefix, e, f);
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        private String path(String prefix, GitTreeEntry entry) {
+            if (verifyNames) {
+                Git.verifyName(entry.getName());
+            }
+            return prefix + entry.getName();
+        }
+
+        private void changed(String prefix, GitTreeEntry e, GitTreeEntry f) {
+            String path = path(prefix, e);
+            boolean sameId = e.getSha1() != null && Arrays.equals(e.getSha1(), f.getSha1());
+            if (e.isTree()) {
+                if (!sameId) {
+                    trees(path + "/", e, f);
+                }
+                return;
+            }
+            GitChangeType type;
+            if (format(e.getOctalMode()) != format(f.getOctalMode())) {
+                type = GitChangeType.TYPE_CHANGE;
+            } else if (!sameId) {
+                type = GitChangeType.MODIFY;
+            } else if (!e.getOctalMode().equals(f.getOctalMode())) {
+                type = GitChangeType.MODE_CHANGE;
+            } else {
+                return;
+            }
+            consumer.accept(new GitChange(type, path, path, e.getOctalMode(), f.getOctalMode(), e.getSha1(), f.getSha1(), 0));
+        }
+
+        private void deleted(String prefix, GitTreeEntry e) {
+            String path = path(prefix, e);
+            if (e.isTree()) {
+                trees(path + "/", e, null);
+                return;
+            }
+            GitChange change = new GitChange(GitChangeType.DELETE, path, null, e.getOctalMode(), null, e.getSha1(), null, 0);
+            if (detectRenames) {
+                deleted.add(change);
+            } else {
+                consumer.accept(change);
+            }
+        }
+
+        private void added(String prefix, GitTreeEntry f) {
+            String path = path(prefix, f);
+            if (f.isTree()) {
+                trees(path + "/", null, f);
+                return;
+            }
+            GitChange change = new GitChange(GitChangeType.ADD, null, path, null, f.getOctalMode(), null, f.getSha1(), 0);
+            if (detectRenames) {
+                added.add(change);
+            } else {
+                consumer.accept(change);
+            }
+        }
+
+        void renames() {
+            boolean[] pairedAdd = new boolean[added.size()];
+            boolean[] pairedDelete = new boolean[deleted.size()];
+            if (!added.isEmpty() && !deleted.isEmpty()) {
+                exactRenames(pairedAdd, pairedDelete);
+                similarRenames(pairedAdd, pairedDelete);
+            }
+            for (int i = 0; i < deleted.size(); i++) {
+                if (!pairedDelete[i]) {
+                    consumer.accept(deleted.get(i));
+                }
+            }
+            for (int i = 0; i < added.size(); i++) {
+                if (!pairedAdd[i]) {
+                    consumer.accept(added.get(i));
+                }
+            }
+        }
+
+        private void exactRenames(boolean[] pairedAdd, boolean[] pairedDelete) {
+            GitObjectIdMap<List<Integer>> sources = new GitObjectIdMap<>(git.getDigestLength(), deleted.size());
+            for (int i = 0; i < deleted.size(); i++) {
+                sources.computeIfAbsent(deleted.get(i).getOldId(), id -> new ArrayList<>()).add(i);
+            }
+            for (int i = 0; i < added.size(); i++) {
+                List<Integer> candidates = sources.get(added.get(i).getNewId());
+                if (candidates == null) {
+                    continue;
+                }
+                for (int k = 0; k < candidates.size(); k++) {
+                    int source = candidates.get(k);
+                    if (sameFormat(deleted.get(source), added.get(i))) {
+                        candidates.remove(k);
+                        pairedAdd[i] = true;
+                        pairedDelete[source] = true;
+                        rename(deleted.get(source), added.get(i), MAX_SCORE);
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void similarRenames(boolean[] pairedAdd, boolean[] pairedDelete) {
+            List<Integer> targets = unpaired(pairedAdd);
+            List<Integer> sources = unpaired(pairedDelete);
+            if (store == null || targets.isEmpty() || sources.isEmpty()
+                    || (long) targets.size() * sources.size() > (long) renameLimit * renameLimit) {
+                return;
+            }
+            Signature[] sourceSignatures = new Signature[sources.size()];
+            for (int s = 0; s < sources.size(); s++) {
+                sourceSignatures[s] = signature(deleted.get(sources.get(s)).getOldId());
+            }
+            List<long[]> matches = new ArrayList<>();
+            for (int t = 0; t < targets.size(); t++) {
+                Signature target = signature(added.get(targets.get(t)).getNewId());
+                for (int s = 0; s < sources.size(); s++) {
+                    if (!sameFormat(deleted.get(sources.get(s)), added.get(targets.get(t)))) {
+                        continue;
+                    }
+                    int score = score(sourceSignatures[s], target, renameScore);
+                    if (score >= renameScore) {
+                        matches.add(new long[]{score, t, s});
+                    }
+                }
+            }
+            matches.sort((m1, m2) -> m1[0] != m2[0] ? Long.compare(m2[0], m1[0])
+                    : m1[1] != m2[1] ? Long.compare(m1[1], m2[1]) : Long.compare(m1[2], m2[2]));
+            for (long[] match : matches) {
+                int target = targets.get((int) match[1]);
+                int source = sources.get((int) match[2]);
+                if (!pairedAdd[target] && !pairedDelete[source]) {
+                    pairedAdd[target] = true;
+                    pairedDelete[source] = true;
+                    rename(deleted.get(source), added.get(target), (int) match[0]);
+                }
+            }
+        }
+
+        private boolean sameFormat(GitChange source, GitChange target) {
+            return format(source.getOldMode()) == format(target.getNewMode());
+        }
+
+        private List<Integer> unpaired(boolean[] paired) {
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < paired.length; i++) {
+                if (!paired[i]) {
+                    result.add(i);
+                }
+            }
+            return result;
+        }
+
+        private void rename(GitChange source, GitChange target, int score) {
+            consumer.accept(new GitChange(GitChangeType.RENAME, source.getOldPath(), target.getNewPath(),
+                    source.getOldMode(), target.getNewMode(), source.getOldId(), target.getNewId(), score));
+        }
+    }
+
+    private Signature signature(byte[] sha) {
+        GitRawObject raw = store.get(sha);
+        return raw == null ? null : new Signature(raw.getData());
+    }
+
+    private static int score(Signature source, Signature target, int minimum) {
+        if (source == null || target == null) {
+            return 0;
+        }
+        int max = Math.max(source.size, target.size);
+        int delta = Math.abs(source.size - target.size);
+        if (max == 0) {
+            return MAX_SCORE;
+        }
+        if ((long) max * (MAX_SCORE - minimum) < (long) delta * MAX_SCORE) {
+            return 0;
+        }
+        long copied = 0;
+        int i = 0;
+        int j = 0;
+        while (i < source.hashes.length && j < target.hashes.length) {
+            if (source.hashes[i] < target.hashes[j]) {
+                i++;
+            } else if (source.hashes[i] > target.hashes[j]) {
+                j++;
+            } else {
+                copied += Math.min(source.counts[i++], target.counts[j++]);
+            }
+        }
+        return (int) (copied * MAX_SCORE / max);
+    }
+
+    private static class Signature {
+        private final int size;
+        private final int[] hashes;
+        private final int[] counts;
+
+        Signature(byte[] data) {
+            size = data.length;
+            long[] chunks = new long[16];
+            int count = 0;
+            int start = 0;
+            int hash = 0;
+            for (int i = 0; i < data.length; i++) {
+                hash = (hash << 7 | hash >>> 25) ^ (data[i] & 0xff);
+                if (data[i] == '\n' || i - start + 1 == CHUNK || i == data.length - 1) {
+                    if (count == chunks.length) {
+                        chunks = Arrays.copyOf(chunks, count * 2);
+                    }
+                    chunks[count++] = (long) hash << 32 | (i - start + 1);
+                    start = i + 1;
+                    hash = 0;
+                }
+            }
+            Arrays.sort(chunks, 0, count);
+            int[] hashes = new int[count];
+            int[] counts = new int[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int h = (int) (chunks[i] >> 32);
+                int length = (int) chunks[i];
+                if (n > 0 && hashes[n - 1] == h) {
+                    counts[n - 1] += length;
+                } else {
+                    hashes[n] = h;
+                    counts[n++] = length;
+                }
+            }
+            this.hashes = Arrays.copyOf(hashes, n);
+            this.counts = Arrays.copyOf(counts, n);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package it.ethiclab.git4j;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class GitTreeEntry implements GitObject {
 
+    public static final Comparator<GitTreeEntry> GIT_ORDER = (a, b) -> compareNames(a.getName(), a.isTree(), b.getName(), b.isTree());
+
     private final String octalMode;
     private final String name;
     private final byte[] sha1;
@@ -24,6 +28,13 @@ public class GitTreeEntry implements GitObject {
         this.objects = new ArrayList<>();
     }
 
+    public GitTreeEntry(String octalMode, String name, byte[] sha1, List<GitTreeEntry> objects) {
+        this.octalMode = octalMode;
+        this.name = name;
+        this.sha1 = sha1;
+        this.objects = objects;
+    }
+
     public String getOctalMode() {
         return octalMode;
     }
@@ -36,8 +47,29 @@ public class GitTreeEntry implements GitObject {
         return sha1;
     }
 
+    public boolean isTree() {
+        return octalMode == null || "40000".equals(octalMode) || !objects.isEmpty();
+    }
+
+    public static int compareNames(String a, boolean aIsTree, String b, boolean bIsTree) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca - cb;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        int ca = i < a.length() ? a.codePointAt(i) : aIsTree ? '/' : 0;
+        int cb = j < b.length() ? b.codePointAt(j) : bIsTree ? '/' : 0;
+        return ca - cb;
+    }
+
     public int length() {
-        return octalMode.length() + name.length() + 22;
+        return octalMode.length() + name.getBytes(StandardCharsets.UTF_8).length + sha1.length + 2;
     }
 
     public List<GitTreeEntry> getObjects() {
@@ -0,0 +1,250 @@
+package it.ethiclab.git4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class GitTreeIndex {
+
+    private static final String TREE_MODE = "40000";
+
+    private final Git git;
+    private final Function<byte[], GitTreeEntry> loader;
+    private final Node root = new Node(null, TREE_MODE, null);
+    private final AtomicInteger hashed = new AtomicInteger();
+
+    public GitTreeIndex(Git git) {
+        this(git, null, null);
+    }
+
+    public GitTreeIndex(Git git, GitTreeEntry tree) {
+        this(git, tree, null);
+    }
+
+    public GitTreeIndex(Git git, GitTreeEntry tree, Function<byte[], GitTreeEntry> loader) {
+        this.git = git;
+        this.loader = loader;
+        root.children = new HashMap<>();
+        root.dirty = true;
+        if (tree != null) {
+            load(root, tree);
+        }
+    }
+
+    private void load(Node node, GitTreeEntry tree) {
+        for (GitTreeEntry entry : tree.getObjects()) {
+            Node child = new Node(entry.getName(), entry.getOctalMode(), entry.getSha1());
+            if (entry.isTree()) {
+                child.mode = TREE_MODE;
+                if (!entry.getObjects().isEmpty() || child.sha == null) {
+                    child.children = new HashMap<>();
+                    load(child, entry);
+                }
+                child.dirty = child.sha == null;
+            }
+            node.children.put(child.name, child);
+        }
+    }
+
+    private Map<String, Node> children(Node node) {
+        if (node.children == null) {
+            node.children = new HashMap<>();
+            if (node.sha != null) {
+                if (loader == null) {
+                    throw new GitException("subtree " + node.name + " is not loaded");
+                }
+                GitTreeEntry tree = loader.apply(node.sha);
+                if (tree == null) {
+                    throw new GitException("missing tree " + git.binaryToHex(node.sha));
+                }
+                load(node, tree);
+            }
+        }
+        return node.children;
+    }
+
+    public void put(String path, String mode, byte[] sha) {
+        String[] names = split(path);
+        Node node = root;
+        List<Node> trail = new ArrayList<>();
+        trail.add(node);
+        for (int i = 0; i < names.length - 1; i++) {
+            Node child = children(node).get(names[i]);
+            if (child == null || !child.isTree()) {
+                child = new Node(names[i], TREE_MODE, null);
+                child.children = new HashMap<>();
+                children(node).put(child.name, child);
+            }
+            node = child;
+            trail.add(node);
+        }
+        String name = names[names.length - 1];
+        Node previous = children(node).get(name);
+        if (previous != null && !previous.isTree() && previous.mode.equals(mode) && Arrays.equals(previous.sha, sha)) {
+            return;
+        }
+        children(node).put(name, new Node(name, mode, sha));
+        for (Node n : trail) {
+            n.dirty = true;
+        }
+    }
+
+    public boolean remove(String path) {
+        String[] names = split(path);
+        List<Node> trail = new ArrayList<>();
+        Node node = root;
+        trail.add(node);
+        for (int i = 0; i < names.length - 1; i++) {
+            node = node.isTree() ? children(node).get(names[i]) : null;
+            if (node == null || !node.isTree()) {
+                return false;
+            }
+            trail.add(node);
+        }
+        if (children(node).remove(names[names.length - 1]) == null) {
+            return false;
+        }
+        for (int i = trail.size() - 1; i > 0 && trail.get(i).children.isEmpty(); i--) {
+            trail.get(i - 1).children.remove(trail.get(i).name);
+        }
+        for (Node n : trail) {
+            n.dirty = true;
+        }
+        return true;
+    }
+
+    public byte[] getSha(String path) {
+        Node node = root;
+        for (String name : split(path)) {
+            node = node.isTree() ? children(node).get(name) : null;
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.isTree() && node.dirty) {
+            hash(node);
+        }
+        return node.sha;
+    }
+
+    public byte[] getRootSha() {
+        return getRootSha(1);
+    }
+
+    public byte[] getRootSha(int parallelism) {
+        hashed.set(0);
+        if (!root.dirty) {
+            return root.sha;
+        }
+        if (parallelism <= 1) {
+            hash(root);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new HashTask(root));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return root.sha;
+    }
+
+    public int getLastHashedCount() {
+        return hashed.get();
+    }
+
+    public GitTreeEntry toTree() {
+        getRootSha();
+        return new GitTreeEntry(entries(root));
+    }
+
+    private List<GitTreeEntry> entries(Node node) {
+        List<GitTreeEntry> entries = new ArrayList<>(node.children.size());
+        for (Node child : node.children.values()) {
+            if (child.isTree()) {
+                List<GitTreeEntry> grandChildren = child.children == null ? new ArrayList<>() : entries(child);
+                entries.add(new GitTreeEntry(TREE_MODE, child.name, child.sha, grandChildren));
+            } else {
+                entries.add(new GitTreeEntry(child.mode, child.name, child.sha));
+            }
+        }
+        entries.sort(GitTreeEntry.GIT_ORDER);
+        return entries;
+    }
+
+    private void hash(Node node) {
+        for (Node child : node.children.values()) {
+            if (child.isTree() && child.dirty) {
+                hash(child);
+            }
+        }
+        rehash(node);
+    }
+
+    private void rehash(Node node) {
+        List<GitTreeEntry> entries = new ArrayList<>(node.children.size());
+        for (Node child : node.children.values()) {
+            entries.add(new GitTreeEntry(child.mode, child.name, child.sha));
+        }
+        entries.sort(GitTreeEntry.GIT_ORDER);
+        node.sha = git.getTreeSha(new GitTreeEntry(entries));
+        node.dirty = false;
+        hashed.incrementAndGet();
+    }
+
+    private static String[] split(String path) {
+        String[] names = path.split("/");
+        for (String name : names) {
+            if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+                throw new GitException("invalid path " + path);
+            }
+        }
+        return names;
+    }
+
+    private class HashTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+
+        HashTask(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            List<HashTask> tasks = new ArrayList<>();
+            for (Node child : node.children.values()) {
+                if (child.isTree() && child.dirty) {
+                    tasks.add(new HashTask(child));
+                }
+            }
+            invokeAll(tasks);
+            rehash(node);
+        }
+    }
+
+    private static class Node {
+        private final String name;
+        private String mode;
+        private byte[] sha;
+        private Map<String, Node> children;
+        private boolean dirty;
+
+        Node(String name, String mode, byte[] sha) {
+            this.name = name;
+            this.mode = mode;
+            this.sha = sha;
+        }
+
+        boolean isTree() {
+            return TREE_MODE.equals(mode);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package it.ethiclab.git4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class GitZipPool {
+
+    static final GitZipPool SHARED = new GitZipPool(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final int capacity;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleDeflaters = new AtomicInteger();
+    private final AtomicInteger idleInflaters = new AtomicInteger();
+    private final AtomicInteger createdDeflaters = new AtomicInteger();
+    private final AtomicInteger createdInflaters = new AtomicInteger();
+
+    GitZipPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    Deflater deflater(int level, int strategy) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            createdDeflaters.incrementAndGet();
+            deflater = new Deflater(level);
+        } else {
+            idleDeflaters.decrementAndGet();
+            deflater.setLevel(level);
+        }
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (idleDeflaters.incrementAndGet() <= capacity) {
+            deflaters.offer(deflater);
+        } else {
+            idleDeflaters.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    Inflater inflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            createdInflaters.incrementAndGet();
+            return new Inflater();
+        }
+        idleInflaters.decrementAndGet();
+        return inflater;
+    }
+
+    void release(Inflater inflater) {
+        inflater.reset();
+        if (idleInflaters.incrementAndGet() <= capacity) {
+            inflaters.offer(inflater);
+        } else {
+            idleInflaters.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    int getCreatedDeflaterCount() {
+        return createdDeflaters.get();
+    }
+
+    int getCreatedInflaterCount() {
+        return createdInflaters.get();
+    }
+}
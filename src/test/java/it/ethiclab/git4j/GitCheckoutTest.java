@@ -0,0 +1,192 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitCheckoutTest {
+
+    private static final String[] TREE_A = {
+            "100644 pippo Hello World!\n\n",
+            "100644 pluto Hello World!\nHello Master!\n\n",
+            "100644 run.sh #!/bin/sh\n",
+            "100644 link a/b/c\n",
+            "100644 x x\n",
+            "100644 y/z z\n",
+            "100644 gone/deep/file gone\n",
+            "100644 same/one 1\n",
+            "100644 same/two 2\n"};
+
+    private static final String[] TREE_B = {
+            "100644 pippo Hello World!\nHello Developer!\n\n",
+            "100644 pluto Hello World!\nHello Master!\n\n",
+            "100755 run.sh #!/bin/sh\n",
+            "120000 link a/b/c",
+            "100644 x/y y\n",
+            "100644 y z\n",
+            "100644 added/new new\n",
+            "100644 same/one 1\n",
+            "100644 same/two 2\n"};
+
+    private Git g = new Git();
+    private Path folder;
+    private Path work;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = GitFixtures.createFolder();
+        work = folder.resolve("work");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        GitFixtures.delete(folder);
+    }
+
+    private void setOld(Path dir) throws IOException {
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        Files.walk(dir).filter(p -> !Files.isSymbolicLink(p)).forEach(p -> {
+            try {
+                Files.setLastModifiedTime(p, old);
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testSwitchUpdatesOnlyChangedPaths() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        GitTreeEntry a = GitFixtures.tree(g, store, TREE_A);
+        GitTreeEntry b = GitFixtures.tree(g, store, TREE_B);
+        assertThat(g.checkout(null, a, store, work)).isEqualTo(TREE_A.length);
+        assertThat(g.getTreeSha(new GitSnapshot(g).writeTree(work))).isEqualTo(a.getSha1());
+        setOld(work);
+        FileTime untouched = Files.getLastModifiedTime(work.resolve("same/one"));
+
+        assertThat(g.checkout(a, b, store, work)).isEqualTo(9);
+        assertThat(g.getTreeSha(new GitSnapshot(g).writeTree(work))).isEqualTo(b.getSha1());
+        assertThat(Files.isSymbolicLink(work.resolve("link"))).isTrue();
+        assertThat(Files.isExecutable(work.resolve("run.sh"))).isTrue();
+        assertThat(work.resolve("gone")).doesNotExist();
+        assertThat(Files.getLastModifiedTime(work.resolve("same/one"))).isEqualTo(untouched);
+        assertThat(g.checkout(b, b, store, work)).isEqualTo(0);
+
+        assertThat(g.checkout(b, a, store, work, null, 4)).isEqualTo(9);
+        assertThat(g.getTreeSha(new GitSnapshot(g).writeTree(work))).isEqualTo(a.getSha1());
+        assertThat(Files.isRegularFile(work.resolve("link"), LinkOption.NOFOLLOW_LINKS)).isTrue();
+        assertThat(Files.isExecutable(work.resolve("run.sh"))).isFalse();
+        assertThat(work.resolve("added")).doesNotExist();
+    }
+
+    @Test
+    public void testSwitchRefusesToOverwriteLocalChanges() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        GitTreeEntry a = GitFixtures.tree(g, store, TREE_A);
+        GitTreeEntry b = GitFixtures.tree(g, store, TREE_B);
+        g.checkout(null, a, store, work);
+        Files.write(work.resolve("pippo"), "local\n".getBytes("utf-8"));
+        Files.createDirectories(work.resolve("added"));
+        Files.write(work.resolve("added/new"), "untracked\n".getBytes("utf-8"));
+
+        assertThatThrownBy(() -> g.checkout(a, b, store, work))
+                .isInstanceOf(GitCheckoutException.class)
+                .hasMessageStartingWith("2 paths could not be checked out");
+        assertThat(new String(Files.readAllBytes(work.resolve("pippo")), "utf-8")).isEqualTo("local\n");
+        assertThat(work.resolve("gone/deep/file")).exists();
+        assertThat(Files.isSymbolicLink(work.resolve("link"))).isFalse();
+
+        Files.write(work.resolve("pippo"), "Hello World!\n\n".getBytes("utf-8"));
+        Files.write(work.resolve("added/new"), "new\n".getBytes("utf-8"));
+        assertThat(g.checkout(a, b, store, work)).isEqualTo(9);
+        assertThat(g.getTreeSha(new GitSnapshot(g).writeTree(work))).isEqualTo(b.getSha1());
+    }
+
+    @Test
+    public void testSwitchKeepsIndexInSync() throws Exception {
+        File objects = work.resolve(".git/objects").toFile();
+        objects.mkdirs();
+        GitLooseObjectStore store = new GitLooseObjectStore(g, objects);
+        GitTreeEntry a = GitFixtures.tree(g, store, TREE_A);
+        GitTreeEntry b = GitFixtures.tree(g, store, TREE_B);
+        store.flush();
+        git("init", "-q");
+        g.checkout(null, a, store, work);
+        setOld(work);
+        GitIndex index = new GitIndex(g, work.resolve(".git/index").toFile());
+        GitSnapshot snapshot = new GitSnapshot(g);
+        snapshot.setIndex(index);
+        snapshot.writeTree(work);
+        index.write();
+
+        g.checkout(a, b, store, work, index, 2);
+        index.write();
+        assertThat(git("diff-files", "--name-only")).isEmpty();
+        assertThat(git("diff-index", "--cached", "--name-only", g.binaryToHex(b.getSha1()))).isEmpty();
+        assertThat(git("ls-files", "-s", "run.sh")).startsWith("100755 ");
+    }
+
+    @Test
+    public void testRejectsUnsafeTreeNames() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        byte[] blob = g.write(store, new GitBlob("escape\n"));
+        byte[] sub = g.write(store, new GitTreeEntry(Arrays.asList(new GitTreeEntry("100644", "escape", blob))));
+        for (String name : new String[] {"", ".", "..", ".git", ".GIT", "a/b"}) {
+            GitTreeEntry tree = new GitTreeEntry(GitSnapshot.TREE_MODE, "", g.write(store, new GitTreeEntry(Arrays.asList(
+                    new GitTreeEntry("100644", "a", blob),
+                    new GitTreeEntry(GitSnapshot.TREE_MODE, name, sub)))));
+            assertThatThrownBy(() -> g.checkout(tree, store, work))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("invalid path name " + name);
+            assertThatThrownBy(() -> g.checkout(tree, store, work, 2))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("invalid path name " + name);
+            assertThatThrownBy(() -> g.checkout(null, tree, store, work))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("invalid path name " + name);
+            assertThat(work).doesNotExist();
+            assertThat(folder.resolve("escape")).doesNotExist();
+        }
+        GitTreeEntry nul = new GitTreeEntry(Arrays.asList(new GitTreeEntry("100644", "a\0b", blob)));
+        assertThatThrownBy(() -> g.checkout(nul, store, work))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid path name a\0b");
+        assertThat(work).doesNotExist();
+    }
+
+    @Test
+    public void testSwitchOfLargeTree() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        List<String> specs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                specs.add("100644 dir" + i + "/file" + j + " content " + i + " " + j + "\n");
+            }
+        }
+        GitTreeEntry a = GitFixtures.tree(g, store, specs.toArray(new String[0]));
+        specs.set(4242, "100644 dir42/file42 changed\n");
+        GitTreeEntry b = GitFixtures.tree(g, store, specs.toArray(new String[0]));
+
+        g.checkout(null, a, store, work, null, 4);
+        assertThat(g.checkout(a, b, store, work, null, 4)).isEqualTo(1);
+        assertThat(new String(Files.readAllBytes(work.resolve("dir42/file42")), "utf-8")).isEqualTo("changed\n");
+        assertThat(new String(Files.readAllBytes(work.resolve("dir42/file43")), "utf-8")).isEqualTo("content 42 43\n");
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(work, args);
+    }
+}
@@ -0,0 +1,53 @@
+package it.ethiclab.git4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+final class GitCli {
+
+    private GitCli() {
+    }
+
+    static String git(Path dir, String... args) throws Exception {
+        return gitWithInput(dir, null, args);
+    }
+
+    static String gitWithInput(Path dir, String stdin, String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        Process process;
+        try {
+            process = new ProcessBuilder(command)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            assumeTrue("git is not installed", false);
+            return null;
+        }
+        try (OutputStream out = process.getOutputStream()) {
+            if (stdin != null) {
+                out.write(stdin.getBytes("utf-8"));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "utf-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+        }
+        assertThat(process.waitFor()).as(sb.toString()).isEqualTo(0);
+        return sb.toString();
+    }
+}
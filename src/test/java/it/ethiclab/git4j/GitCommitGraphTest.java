@@ -0,0 +1,204 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitCommitGraphTest {
+
+    private Git g = new Git();
+    private Path folder;
+    private File objects;
+    private String emptyTree;
+    private Map<String, byte[]> commits = new HashMap<>();
+    private long time = 1496830486;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j");
+        objects = folder.resolve(".git/objects").toFile();
+        objects.mkdirs();
+        GitTreeEntry tree = new GitTreeEntry(new ArrayList<>());
+        g.serializeGitObjectToFile(objects, tree);
+        emptyTree = g.binaryToHex(g.getTreeSha(tree));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(folder)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private byte[] commit(String name, String... parents) throws IOException {
+        GitCommit commit = new GitCommit();
+        commit.setMessage(name);
+        commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setAuthoringDate(new Date(time));
+        commit.setCommitDate(new Date(time));
+        commit.setAuthoringTimezone("GMT+2");
+        commit.setCommitTimezone("GMT+2");
+        commit.setTree(emptyTree);
+        for (String parent : parents) {
+            commit.getParentCommits().add(g.binaryToHex(commits.get(parent)));
+        }
+        time += 1000;
+        g.serializeGitObjectToFile(objects, commit);
+        byte[] sha = g.getSha(commit);
+        commits.put(name, sha);
+        return sha;
+    }
+
+    private void createHistory() throws IOException {
+        commit("c0");
+        commit("c1", "c0");
+        commit("c2", "c1");
+        commit("a1", "c2");
+        commit("b1", "c2");
+        commit("a2", "a1");
+        commit("b2", "b1");
+        commit("m", "a2", "b2");
+        commit("x1", "c1");
+        commit("x2", "c0");
+        commit("o", "m", "x1", "x2");
+        commit("q1", "a1", "b1");
+        commit("q2", "b1", "a1");
+    }
+
+    private List<String> names(List<byte[]> shas) {
+        List<String> names = new ArrayList<>();
+        for (byte[] sha : shas) {
+            for (Map.Entry<String, byte[]> e : commits.entrySet()) {
+                if (Arrays.equals(e.getValue(), sha)) {
+                    names.add(e.getKey());
+                }
+            }
+        }
+        return names;
+    }
+
+    private byte[] id(String name) {
+        return commits.get(name);
+    }
+
+    private GitCommitGraph buildAndReload() throws IOException {
+        GitCommitGraph built = GitCommitGraph.build(g, objects, Arrays.asList(id("o"), id("q1"), id("q2")));
+        File file = new File(objects, "info/commit-graph");
+        built.write(file);
+        return new GitCommitGraph(file);
+    }
+
+    @Test
+    public void testStructure() throws Exception {
+        createHistory();
+        GitCommitGraph graph = buildAndReload();
+        assertThat(graph.getCommitCount()).isEqualTo(13);
+        int o = graph.find(id("o"));
+        assertThat(graph.getId(o)).isEqualTo(id("o"));
+        assertThat(graph.getTree(o)).isEqualTo(g.hexToBinary(emptyTree));
+        assertThat(graph.getGeneration(o)).isEqualTo(7);
+        assertThat(graph.getGeneration(graph.find(id("c0")))).isEqualTo(1);
+        assertThat(graph.getCommitTime(graph.find(id("c0")))).isEqualTo(1496830486L);
+        List<byte[]> parents = new ArrayList<>();
+        for (int p : graph.getParents(o)) {
+            parents.add(graph.getId(p));
+        }
+        assertThat(names(parents)).containsExactly("m", "x1", "x2");
+        assertThat(graph.getParents(graph.find(id("c0")))).isEmpty();
+        assertThat(graph.find(g.getBlobSha1("missing"))).isEqualTo(-1);
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        createHistory();
+        GitCommitGraph graph = buildAndReload();
+        assertThat(names(graph.log(id("m")))).containsExactly("m", "b2", "a2", "b1", "a1", "c2", "c1", "c0");
+        assertThat(names(graph.log(id("o"), 3))).containsExactly("o", "x2", "x1");
+        assertThat(graph.isAncestor(id("c0"), id("m"))).isTrue();
+        assertThat(graph.isAncestor(id("m"), id("m"))).isTrue();
+        assertThat(graph.isAncestor(id("a1"), id("b2"))).isFalse();
+        assertThat(graph.isAncestor(id("m"), id("c0"))).isFalse();
+        assertThat(names(graph.getMergeBases(id("a2"), id("b2")))).containsExactly("c2");
+        assertThat(names(graph.getMergeBases(id("x1"), id("b2")))).containsExactly("c1");
+        assertThat(names(graph.getMergeBases(id("m"), id("a2")))).containsExactly("a2");
+        assertThat(names(graph.getMergeBases(id("q1"), id("q2")))).containsExactlyInAnyOrder("a1", "b1");
+        assertThatThrownBy(() -> graph.log(g.getBlobSha1("missing")))
+                .isInstanceOf(GitException.class)
+                .hasMessageStartingWith("commit not in graph");
+    }
+
+    @Test
+    public void testGitReadsCommitGraph() throws Exception {
+        createHistory();
+        GitCommitGraph graph = buildAndReload();
+        git("init", "-q");
+        git("commit-graph", "verify");
+        String expected = git("merge-base", "--all", g.binaryToHex(id("q1")), g.binaryToHex(id("q2")));
+        List<String> bases = new ArrayList<>();
+        for (byte[] sha : graph.getMergeBases(id("q1"), id("q2"))) {
+            bases.add(g.binaryToHex(sha));
+        }
+        Collections.sort(bases);
+        List<String> lines = new ArrayList<>(Arrays.asList(expected.trim().split("\n")));
+        Collections.sort(lines);
+        assertThat(bases).isEqualTo(lines);
+        List<String> log = new ArrayList<>();
+        for (byte[] sha : graph.log(id("o"))) {
+            log.add(g.binaryToHex(sha));
+        }
+        assertThat(String.join("\n", log)).isEqualTo(git("rev-list", g.binaryToHex(id("o"))).trim());
+    }
+
+    @Test
+    public void testLinearHistory() throws Exception {
+        GitCommit[] chain = new GitCommit[20_000];
+        Map<String, GitCommit> store = new HashMap<>();
+        String parent = null;
+        for (int i = 0; i < chain.length; i++) {
+            GitCommit commit = new GitCommit();
+            commit.setMessage("commit " + i);
+            commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+            commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+            commit.setAuthoringDate(new Date(time + i));
+            commit.setCommitDate(new Date(time + i));
+            commit.setAuthoringTimezone("GMT+2");
+            commit.setCommitTimezone("GMT+2");
+            commit.setTree(emptyTree);
+            if (parent != null) {
+                commit.getParentCommits().add(parent);
+            }
+            parent = g.binaryToHex(g.getSha(commit));
+            store.put(parent, commit);
+            chain[i] = commit;
+        }
+        byte[] head = g.hexToBinary(parent);
+        GitCommitGraph graph = GitCommitGraph.build(g, sha -> store.get(g.binaryToHex(sha)), Collections.singletonList(head));
+        byte[] root = g.getSha(chain[0]);
+        assertThat(graph.isAncestor(root, head)).isTrue();
+        assertThat(graph.isAncestor(head, root)).isFalse();
+        assertThat(graph.getMergeBases(head, root)).containsExactly(root);
+        assertThat(graph.log(head)).hasSize(chain.length);
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(folder, args);
+    }
+}
@@ -0,0 +1,60 @@
+package it.ethiclab.git4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class GitFixtures {
+
+    private GitFixtures() {
+    }
+
+    static Path createFolder() throws IOException {
+        return Files.createTempDirectory("git4j");
+    }
+
+    static void delete(Path folder) throws IOException {
+        Files.walk(folder)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    static GitTreeEntry tree(Git git, GitObjectStore store, String... specs) throws IOException {
+        Map<String, Object> root = new TreeMap<>();
+        for (String spec : specs) {
+            String[] parts = spec.split(" ", 3);
+            Map<String, Object> dir = root;
+            String[] names = parts[1].split("/");
+            for (int i = 0; i < names.length - 1; i++) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> child = (Map<String, Object>) dir.computeIfAbsent(names[i], k -> new TreeMap<>());
+                dir = child;
+            }
+            byte[] sha = git.write(store, new GitBlob(parts[2]));
+            dir.put(names[names.length - 1], new GitTreeEntry(parts[0], names[names.length - 1], sha));
+        }
+        return write(git, store, root);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GitTreeEntry write(Git git, GitObjectStore store, Map<String, Object> dir) throws IOException {
+        List<GitTreeEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, Object> e : dir.entrySet()) {
+            if (e.getValue() instanceof GitTreeEntry) {
+                entries.add((GitTreeEntry) e.getValue());
+            } else {
+                GitTreeEntry sub = write(git, store, (Map<String, Object>) e.getValue());
+                entries.add(new GitTreeEntry(GitSnapshot.TREE_MODE, e.getKey(), sub.getSha1()));
+            }
+        }
+        entries.sort(GitTreeEntry.GIT_ORDER);
+        return new GitTreeEntry(GitSnapshot.TREE_MODE, "", git.write(store, new GitTreeEntry(entries)));
+    }
+}
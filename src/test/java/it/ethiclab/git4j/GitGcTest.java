@@ -0,0 +1,239 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitGcTest {
+
+    private Git g = new Git();
+    private Path folder;
+    private File gitDir;
+    private GitLooseObjectStore store;
+    private GitRefDatabase refs;
+    private long time = 1496909724;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = GitFixtures.createFolder();
+        git("init", "-q");
+        gitDir = folder.resolve(".git").toFile();
+        store = new GitLooseObjectStore(g, new File(gitDir, "objects"));
+        refs = new GitRefDatabase(g, gitDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        GitFixtures.delete(folder);
+    }
+
+    private byte[] commit(byte[] parent, String... specs) throws IOException {
+        GitCommit commit = new GitCommit();
+        commit.setMessage("commit " + time);
+        commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setAuthoringDate(new Date(time));
+        commit.setCommitDate(new Date(time));
+        commit.setAuthoringTimezone("GMT+2");
+        commit.setCommitTimezone("GMT+2");
+        commit.setTree(g.binaryToHex(GitFixtures.tree(g, store, specs).getSha1()));
+        if (parent != null) {
+            commit.getParentCommits().add(g.binaryToHex(parent));
+        }
+        time += 60;
+        byte[] sha = g.write(store, commit);
+        store.flush();
+        return sha;
+    }
+
+    private List<String> specs(int files, String version) {
+        List<String> specs = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                content.append("file ").append(i).append(" line ").append(j).append(j == i % 20 ? version : "").append('\n');
+            }
+            specs.add("100644 dir" + i % 10 + "/file" + i + " " + content);
+        }
+        return specs;
+    }
+
+    private int count(String... args) throws Exception {
+        String out = git(args).trim();
+        return out.isEmpty() ? 0 : out.split("\n").length;
+    }
+
+    private Path loose(byte[] sha) {
+        String hex = g.binaryToHex(sha);
+        return gitDir.toPath().resolve("objects").resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+    }
+
+    private void age(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 30L * 24 * 60 * 60 * 1000));
+    }
+
+    @Test
+    public void testFullGc() throws Exception {
+        byte[] first = commit(null, specs(200, "").toArray(new String[0]));
+        byte[] second = commit(first, specs(200, " v2").toArray(new String[0]));
+        refs.compareAndSet("refs/heads/master", null, second);
+        refs.compareAndSet("refs/heads/old", null, first);
+        byte[] stale = g.write(store, new GitBlob("stale\n"));
+        byte[] fresh = g.write(store, new GitBlob("fresh\n"));
+        store.flush();
+        age(loose(stale));
+        int reachable = count("rev-list", "--objects", "--all");
+
+        List<String> phases = new ArrayList<>();
+        GitGc gc = new GitGc(g, gitDir);
+        gc.setProgress((phase, count) -> phases.add(phase + " " + count));
+        GitGcStats stats = gc.run();
+
+        assertThat(stats.getReachableCount()).isEqualTo(reachable);
+        assertThat(stats.getPackedCount()).isEqualTo(reachable);
+        assertThat(stats.getRemovedLooseCount()).isEqualTo(reachable);
+        assertThat(stats.getPrunedCount()).isEqualTo(1);
+        assertThat(stats.getKeptLooseCount()).isEqualTo(1);
+        assertThat(phases).containsExactly("walk " + reachable, "pack " + reachable, "prune 1");
+        assertThat(stats.getWalkNanos()).isPositive();
+        assertThat(stats.getPackNanos()).isPositive();
+        assertThat(stats.getPruneNanos()).isPositive();
+        assertThat(loose(stale)).doesNotExist();
+        assertThat(loose(fresh)).exists();
+        assertThat(loose(second)).doesNotExist();
+        assertThat(git("count-objects", "-v")).contains("count: 1\n", "in-pack: " + reachable + "\n", "packs: 1\n");
+        assertThat(git("fsck", "--strict", "--no-dangling")).doesNotContain("missing");
+        assertThat(folder.resolve(".git/refs/heads/master")).doesNotExist();
+        assertThat(refs.resolve("refs/heads/master")).isEqualTo(second);
+        assertThat(g.read(gitDir.toPath().resolve("objects").toFile(), first)).isInstanceOf(GitCommit.class);
+
+        GitGcStats again = new GitGc(g, gitDir).run();
+        assertThat(again.getPackedCount()).isEqualTo(reachable);
+        assertThat(again.getRemovedPackCount()).isEqualTo(0);
+        assertThat(again.getRemovedLooseCount()).isEqualTo(0);
+        assertThat(git("count-objects", "-v")).contains("packs: 1\n");
+    }
+
+    @Test
+    public void testIncrementalGc() throws Exception {
+        byte[] first = commit(null, specs(100, "").toArray(new String[0]));
+        refs.compareAndSet("refs/heads/master", null, first);
+        GitGc gc = new GitGc(g, gitDir);
+        gc.setIncremental(true);
+        int firstObjects = gc.run().getPackedCount();
+        assertThat(firstObjects).isEqualTo(count("rev-list", "--objects", "--all"));
+
+        List<String> changed = specs(100, "");
+        changed.set(42, "100644 dir2/file42 changed\n");
+        byte[] second = commit(first, changed.toArray(new String[0]));
+        refs.compareAndSet("refs/heads/master", first, second);
+        byte[] stale = g.write(store, new GitBlob("stale\n"));
+        store.flush();
+        age(loose(stale));
+
+        GitGcStats stats = gc.run();
+        assertThat(stats.getPackedCount()).isEqualTo(4);
+        assertThat(stats.getRemovedLooseCount()).isEqualTo(4);
+        assertThat(stats.getRemovedPackCount()).isEqualTo(0);
+        assertThat(stats.getPrunedCount()).isEqualTo(0);
+        assertThat(loose(stale)).exists();
+        assertThat(git("count-objects", "-v")).contains("count: 1\n", "packs: 2\n");
+        assertThat(git("fsck", "--strict", "--no-dangling")).doesNotContain("missing");
+
+        refs.compareAndSet("refs/heads/master", second, first);
+        gc.setIncremental(false);
+        stats = gc.run();
+        assertThat(stats.getRemovedPackCount()).isEqualTo(2);
+        assertThat(stats.getPackedCount()).isEqualTo(firstObjects + 4);
+        assertThat(stats.getPrunedCount()).isEqualTo(1);
+
+        gc.setGracePeriod(0);
+        stats = gc.run();
+        assertThat(stats.getPackedCount()).isEqualTo(firstObjects);
+        assertThat(stats.getPrunedCount()).isEqualTo(4);
+        assertThat(git("count-objects", "-v")).contains("count: 0\n", "in-pack: " + firstObjects + "\n", "packs: 1\n");
+        assertThat(g.read(gitDir.toPath().resolve("objects").toFile(), second)).isNull();
+        assertThatThrownBy(() -> gc.setGracePeriod(-1))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid grace period -1");
+    }
+
+    @Test
+    public void testIndexKeepsStagedObjects() throws Exception {
+        byte[] first = commit(null, "100644 pippo Hello World!\n\n");
+        refs.compareAndSet("refs/heads/master", null, first);
+        Files.createDirectories(folder.resolve("dir"));
+        Files.write(folder.resolve("dir/staged"), "staged\n".getBytes("utf-8"));
+        git("add", "dir/staged");
+        byte[] tree = g.hexToBinary(git("write-tree").trim());
+        byte[] staged = g.getBlobSha1("staged\n");
+
+        GitGc gc = new GitGc(g, gitDir);
+        gc.setGracePeriod(0);
+        GitGcStats stats = gc.run();
+        assertThat(stats.getPrunedCount()).isEqualTo(0);
+        assertThat(stats.getReachableCount()).isEqualTo(count("rev-list", "--objects", "--all") + 3);
+        assertThat(g.has(gitDir.toPath().resolve("objects").toFile(), staged)).isTrue();
+        assertThat(g.has(gitDir.toPath().resolve("objects").toFile(), tree)).isTrue();
+        git("fsck", "--strict", "--no-dangling");
+        git("-c", "user.name=Montoya Edu", "-c", "user.email=montoya.edu@gmail.com", "commit", "-q", "-m", "staged");
+    }
+
+    @Test
+    public void testKeptPackIsLeftAlone() throws Exception {
+        byte[] first = commit(null, specs(20, "").toArray(new String[0]));
+        refs.compareAndSet("refs/heads/master", null, first);
+        byte[] side = commit(first, "100644 side side\n");
+        refs.compareAndSet("refs/heads/side", null, side);
+        git("repack", "-a", "-d", "-q");
+        int keptObjects = count("rev-list", "--objects", "--all");
+        File packFolder = new File(gitDir, "objects/pack");
+        File[] kept = packFolder.listFiles((dir, name) -> name.endsWith(".pack"));
+        assertThat(kept).hasSize(1);
+        File keep = new File(packFolder, kept[0].getName().replace(".pack", ".keep"));
+        Files.write(keep.toPath(), new byte[0]);
+        refs.compareAndSet("refs/heads/side", side, null);
+        byte[] second = commit(first, specs(20, " v2").toArray(new String[0]));
+        refs.compareAndSet("refs/heads/master", first, second);
+
+        GitGc gc = new GitGc(g, gitDir);
+        gc.setGracePeriod(0);
+        GitGcStats stats = gc.run();
+        assertThat(stats.getReachableCount()).isEqualTo(count("rev-list", "--objects", "--all"));
+        assertThat(stats.getPackedCount()).isEqualTo(stats.getReachableCount() - (keptObjects - 3));
+        assertThat(stats.getRemovedLooseCount()).isEqualTo(stats.getPackedCount());
+        assertThat(stats.getPrunedCount()).isEqualTo(0);
+        assertThat(stats.getRemovedPackCount()).isEqualTo(0);
+        assertThat(kept[0]).exists();
+        assertThat(g.has(gitDir.toPath().resolve("objects").toFile(), side)).isTrue();
+        assertThat(git("count-objects", "-v")).contains("count: 0\n", "packs: 2\n");
+        git("fsck", "--strict", "--no-dangling");
+    }
+
+    @Test
+    public void testMissingObjectStopsGc() throws Exception {
+        byte[] first = commit(null, "100644 pippo Hello World!\n\n");
+        refs.compareAndSet("refs/heads/master", null, first);
+        Files.delete(loose(g.getBlobSha1("Hello World!\n\n")));
+        assertThatThrownBy(() -> new GitGc(g, gitDir).run())
+                .isInstanceOf(GitException.class)
+                .hasMessage("missing object " + g.binaryToHex(g.getBlobSha1("Hello World!\n\n")));
+        assertThat(loose(first)).exists();
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(folder, args);
+    }
+}
@@ -0,0 +1,223 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitMergeTest {
+
+    private Git g = new Git();
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = GitFixtures.createFolder();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        GitFixtures.delete(folder);
+    }
+
+    private GitTreeEntry file(String name, String content) {
+        return new GitTreeEntry("100644", name, g.getBlobSha1(content));
+    }
+
+    private String read(GitObjectStore store, GitTreeEntry tree, String path) throws IOException {
+        GitTreeIndex index = new GitTreeIndex(g, tree, sha -> (GitTreeEntry) g.parse(store.get(sha)));
+        return new String(store.get(index.getSha(path)).getData(), "utf-8");
+    }
+
+    private String lines(int count, int changed, String replacement) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == changed ? replacement : "line " + i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMergeCommitTree() {
+        List<GitTreeEntry> second = Arrays.asList(file("pippo", "Hello World!\n\n"), file("pluto", "Hello World!\n\n"));
+        List<GitTreeEntry> third = Arrays.asList(file("pippo", "Hello World!\nHello Developer!\n\n"), file("pluto", "Hello World!\n\n"));
+        List<GitTreeEntry> fourth = Arrays.asList(file("pippo", "Hello World!\n\n"), file("pluto", "Hello World!\nHello Master!\n\n"));
+
+        GitMergeResult result = new GitMerge(g).merge(new GitTreeEntry(second), new GitTreeEntry(fourth), new GitTreeEntry(third));
+        assertThat(result.isClean()).isTrue();
+        assertThat(result.getMergedBlobCount()).isEqualTo(0);
+        assertThat(g.binaryToHex(result.getTreeSha())).isEqualTo("bf1d6d1bc9c9ca5295959c67222228c145e174c9");
+        assertThat(result.getTree().getObjects()).extracting(GitTreeEntry::getName).containsExactly("pippo", "pluto");
+    }
+
+    @Test
+    public void testLineMerge() {
+        String base = lines(10, -1, null);
+        GitLineMerge clean = new GitLineMerge(g.getBytes(base), g.getBytes(lines(10, 2, "ours")), g.getBytes(lines(10, 7, "theirs")));
+        assertThat(new String(clean.merge("ours", "theirs"))).isEqualTo(lines(10, 2, "ours").replace("line 7\n", "theirs\n"));
+        assertThat(clean.getConflictCount()).isEqualTo(0);
+
+        GitLineMerge conflict = new GitLineMerge(g.getBytes(base), g.getBytes(lines(10, 4, "ours")), g.getBytes(lines(10, 4, "theirs")));
+        assertThat(new String(conflict.merge("master", "devel"))).isEqualTo(lines(10, 4,
+                "<<<<<<< master\nours\n=======\ntheirs\n>>>>>>> devel"));
+        assertThat(conflict.getConflictCount()).isEqualTo(1);
+
+        GitLineMerge noNewline = new GitLineMerge(g.getBytes("a\nb"), g.getBytes("a\nc"), g.getBytes("a\nd"));
+        assertThat(new String(noNewline.merge("ours", "theirs"))).isEqualTo("a\n<<<<<<< ours\nc\n=======\nd\n>>>>>>> theirs\n");
+        assertThat(GitLineMerge.isBinary(new byte[]{'a', 0, 'b'})).isTrue();
+    }
+
+    @Test
+    public void testLineMergeMatchesGitMergeFile() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        String base = sb.toString();
+        String ours = base.replace("line 10\n", "").replace("line 50\n", "line fifty\nline fifty-one\n")
+                .replace("line 120\n", "line 120\nline 120 and a half\n");
+        String theirs = base.replace("line 80\n", "line eighty\n").replace("line 150\n", "")
+                .replace("line 199\n", "line 199\nline 200\n");
+        Files.write(folder.resolve("base"), g.getBytes(base));
+        Files.write(folder.resolve("ours"), g.getBytes(ours));
+        Files.write(folder.resolve("theirs"), g.getBytes(theirs));
+
+        GitLineMerge merge = new GitLineMerge(g.getBytes(base), g.getBytes(ours), g.getBytes(theirs));
+        assertThat(new String(merge.merge("ours", "theirs"), "utf-8")).isEqualTo(git("merge-file", "-p", "ours", "base", "theirs"));
+        assertThat(merge.getConflictCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTreeConflicts() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        GitTreeEntry base = GitFixtures.tree(g, store,
+                "100644 same same\n",
+                "100644 edited " + lines(10, -1, null),
+                "100644 conflict " + lines(10, -1, null),
+                "100644 modified-deleted base\n",
+                "100644 mode script\n",
+                "100644 file-dir file\n",
+                "100644 binary a\0b",
+                "100644 deep/er/file " + lines(10, -1, null),
+                "100644 removed/file gone\n");
+        GitTreeEntry ours = GitFixtures.tree(g, store,
+                "100644 same same\n",
+                "100644 edited " + lines(10, 1, "ours"),
+                "100644 conflict " + lines(10, 5, "ours"),
+                "100644 modified-deleted ours\n",
+                "100755 mode script\n",
+                "100644 file-dir changed\n",
+                "100644 binary a\0c",
+                "100644 added-added ours\n",
+                "100644 deep/er/file " + lines(10, 0, "ours"));
+        GitTreeEntry theirs = GitFixtures.tree(g, store,
+                "100644 same same\n",
+                "100644 edited " + lines(10, 8, "theirs"),
+                "100644 conflict " + lines(10, 5, "theirs"),
+                "100644 mode script changed\n",
+                "100644 file-dir/nested file\n",
+                "100644 binary a\0d",
+                "100644 added-added theirs\n",
+                "100644 deep/er/file " + lines(10, 9, "theirs"),
+                "100644 removed/file gone\n");
+
+        GitMerge merge = new GitMerge(g, store);
+        merge.setOurLabel("master");
+        merge.setTheirLabel("devel");
+        GitMergeResult result = merge.merge(base, ours, theirs);
+        assertThat(result.isClean()).isFalse();
+        assertThat(result.getConflicts()).extracting(GitMergeConflict::toString).containsExactly(
+                "ADD_ADD added-added",
+                "BINARY binary",
+                "CONTENT conflict",
+                "FILE_DIRECTORY file-dir",
+                "MODIFY_DELETE modified-deleted");
+        assertThat(result.getMergedBlobCount()).isEqualTo(5);
+
+        GitTreeEntry tree = result.getTree();
+        assertThat(tree.getObjects()).extracting(GitTreeEntry::getName).containsExactly(
+                "added-added", "binary", "conflict", "deep", "edited", "file-dir", "mode", "modified-deleted", "same");
+        assertThat(read(store, tree, "edited")).isEqualTo(lines(10, 1, "ours").replace("line 8\n", "theirs\n"));
+        assertThat(read(store, tree, "conflict")).isEqualTo(lines(10, 5, "<<<<<<< master\nours\n=======\ntheirs\n>>>>>>> devel"));
+        assertThat(read(store, tree, "added-added")).isEqualTo("<<<<<<< master\nours\n=======\ntheirs\n>>>>>>> devel\n");
+        assertThat(read(store, tree, "binary")).isEqualTo("a\0c");
+        assertThat(read(store, tree, "modified-deleted")).isEqualTo("ours\n");
+        assertThat(read(store, tree, "mode")).isEqualTo("script changed\n");
+        assertThat(read(store, tree, "deep/er/file")).isEqualTo(lines(10, 0, "ours").replace("line 9\n", "theirs\n"));
+        assertThat(tree.getObjects()).filteredOn(e -> e.getName().equals("mode")).extracting(GitTreeEntry::getOctalMode)
+                .containsExactly("100755");
+        assertThat(read(store, tree, "file-dir")).isEqualTo("changed\n");
+
+        assertThatThrownBy(() -> merge.setParallelism(0))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid parallelism 0");
+    }
+
+    @Test
+    public void testMatchesGitMergeTree() throws Exception {
+        File objects = folder.resolve(".git/objects").toFile();
+        objects.mkdirs();
+        GitLooseObjectStore store = new GitLooseObjectStore(g, objects);
+        List<String> base = new ArrayList<>();
+        List<String> ours = new ArrayList<>();
+        List<String> theirs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                String path = "100644 dir" + i + "/file" + j + " ";
+                base.add(path + lines(30, -1, null));
+                ours.add(path + (j % 2 == 0 ? lines(30, 3, "ours " + i) : lines(30, -1, null)));
+                theirs.add(path + (j % 3 == 0 ? lines(30, 25, "theirs " + j) : lines(30, -1, null)));
+            }
+        }
+        ours.add("100644 only/ours added\n");
+        theirs.remove(1);
+        GitTreeEntry b = GitFixtures.tree(g, store, base.toArray(new String[0]));
+        GitTreeEntry o = GitFixtures.tree(g, store, ours.toArray(new String[0]));
+        GitTreeEntry t = GitFixtures.tree(g, store, theirs.toArray(new String[0]));
+        String baseCommit = commit(store, b, null);
+        String ourCommit = commit(store, o, baseCommit);
+        String theirCommit = commit(store, t, baseCommit);
+        store.flush();
+        git("init", "-q");
+
+        GitMerge merge = new GitMerge(g, store);
+        merge.setParallelism(4);
+        GitMergeResult result = merge.merge(b, o, t);
+        store.flush();
+        assertThat(result.isClean()).isTrue();
+        assertThat(result.getMergedBlobCount()).isEqualTo(20 * 4);
+        assertThat(g.binaryToHex(result.getTreeSha())).isEqualTo(git("merge-tree", "--write-tree", ourCommit, theirCommit).trim());
+        assertThat(git("fsck", "--strict")).doesNotContain("error");
+    }
+
+    private String commit(GitObjectStore store, GitTreeEntry tree, String parent) throws IOException {
+        GitCommit commit = new GitCommit();
+        commit.setMessage(parent == null ? "base" : "change");
+        commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setAuthoringDate(new Date(1496909724));
+        commit.setCommitDate(new Date(1496909724));
+        commit.setAuthoringTimezone("GMT+2");
+        commit.setCommitTimezone("GMT+2");
+        commit.setTree(g.binaryToHex(tree.getSha1()));
+        if (parent != null) {
+            commit.getParentCommits().add(parent);
+        }
+        return g.binaryToHex(g.write(store, commit));
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(folder, args);
+    }
+}
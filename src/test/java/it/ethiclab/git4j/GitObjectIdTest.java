@@ -0,0 +1,148 @@
+package it.ethiclab.git4j;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitObjectIdTest {
+
+    private Git g = new Git();
+
+    private List<byte[]> randomIds(int count, int length, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] sha = new byte[length];
+            random.nextBytes(sha);
+            ids.add(sha);
+        }
+        return ids;
+    }
+
+    @Test
+    public void testObjectId() {
+        byte[] sha = g.getBlobSha1("Hello World!\n\n");
+        GitObjectId id = GitObjectId.fromBytes(sha);
+        assertThat(id.toHex()).isEqualTo("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758");
+        assertThat(id.toString()).isEqualTo(id.toHex());
+        assertThat(id.toBytes()).isEqualTo(sha);
+        assertThat(id.getLength()).isEqualTo(20);
+        assertThat(id).isEqualTo(GitObjectId.fromHex("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758"));
+        assertThat(id.hashCode()).isEqualTo(GitObjectId.fromHex(id.toHex()).hashCode());
+        assertThat(id.equals(sha)).isTrue();
+        assertThat(id.equals(g.getBlobSha1("other"))).isFalse();
+
+        byte[] buffer = new byte[30];
+        System.arraycopy(sha, 0, buffer, 7, 20);
+        assertThat(GitObjectId.fromBytes(buffer, 7, 20)).isEqualTo(id);
+        byte[] copy = new byte[22];
+        id.copyTo(copy, 2);
+        assertThat(GitObjectId.fromBytes(copy, 2, 20)).isEqualTo(id);
+
+        GitObjectId wide = GitObjectId.fromBytes(Git.forObjectFormat(Git.SHA256).getBlobSha1("Hello World!\n\n"));
+        assertThat(wide.getLength()).isEqualTo(32);
+        assertThat(wide.toHex()).hasSize(64);
+        assertThat(wide).isNotEqualTo(id);
+        assertThat(GitObjectId.fromHex(wide.toHex())).isEqualTo(wide);
+
+        List<byte[]> ids = randomIds(200, 20, 1);
+        for (int i = 1; i < ids.size(); i++) {
+            int expected = Integer.signum(GitPackWriter.compare(ids.get(i - 1), ids.get(i)));
+            assertThat(Integer.signum(GitObjectId.fromBytes(ids.get(i - 1)).compareTo(GitObjectId.fromBytes(ids.get(i)))))
+                    .isEqualTo(expected);
+        }
+        assertThatThrownBy(() -> GitObjectId.fromBytes(new byte[10]))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid id length 10");
+    }
+
+    @Test
+    public void testSetMatchesHashSet() {
+        GitObjectIdSet set = new GitObjectIdSet();
+        Set<GitObjectId> expected = new HashSet<>();
+        List<byte[]> ids = randomIds(20_000, 20, 2);
+        Random random = new Random(3);
+        for (byte[] sha : ids) {
+            assertThat(set.add(sha)).isEqualTo(expected.add(GitObjectId.fromBytes(sha)));
+            if (random.nextInt(4) == 0) {
+                byte[] victim = ids.get(random.nextInt(ids.size()));
+                assertThat(set.remove(victim)).isEqualTo(expected.remove(GitObjectId.fromBytes(victim)));
+            }
+        }
+        assertThat(set.add(ids.get(0))).isEqualTo(expected.add(GitObjectId.fromBytes(ids.get(0))));
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (byte[] sha : ids) {
+            assertThat(set.contains(sha)).isEqualTo(expected.contains(GitObjectId.fromBytes(sha)));
+            assertThat(set.contains(GitObjectId.fromBytes(sha))).isEqualTo(expected.contains(GitObjectId.fromBytes(sha)));
+        }
+        Set<GitObjectId> iterated = new HashSet<>();
+        for (GitObjectId id : set) {
+            iterated.add(id);
+        }
+        assertThat(iterated).isEqualTo(expected);
+        assertThat(set.contains(new byte[32])).isFalse();
+        assertThatThrownBy(() -> set.add(new byte[32]))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid id length 32");
+        set.clear();
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.contains(ids.get(0))).isFalse();
+    }
+
+    @Test
+    public void testMap() {
+        GitObjectIdMap<String> map = new GitObjectIdMap<>(32, 0);
+        Map<GitObjectId, String> expected = new HashMap<>();
+        List<byte[]> ids = randomIds(5_000, 32, 4);
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] sha = ids.get(i);
+            assertThat(map.put(sha, "v" + i)).isNull();
+            expected.put(GitObjectId.fromBytes(sha), "v" + i);
+        }
+        assertThat(map.put(GitObjectId.fromBytes(ids.get(0)), "first")).isEqualTo("v0");
+        expected.put(GitObjectId.fromBytes(ids.get(0)), "first");
+        assertThat(map.computeIfAbsent(ids.get(1), sha -> "ignored")).isEqualTo("v1");
+        for (int i = 2; i < 1000; i++) {
+            assertThat(map.remove(ids.get(i))).isEqualTo("v" + i);
+            expected.remove(GitObjectId.fromBytes(ids.get(i)));
+        }
+        assertThat(map.remove(ids.get(2))).isNull();
+        assertThat(map.computeIfAbsent(ids.get(2), sha -> "again")).isEqualTo("again");
+        expected.put(GitObjectId.fromBytes(ids.get(2)), "again");
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<GitObjectId, String> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        for (byte[] sha : ids) {
+            assertThat(map.get(sha)).isEqualTo(expected.get(GitObjectId.fromBytes(sha)));
+            assertThat(map.containsKey(GitObjectId.fromBytes(sha))).isEqualTo(expected.containsKey(GitObjectId.fromBytes(sha)));
+        }
+        assertThat(map.get(new byte[20])).isNull();
+    }
+
+    @Test
+    public void testSetOfManyIds() {
+        List<byte[]> ids = randomIds(200_000, 20, 5);
+        GitObjectIdSet set = new GitObjectIdSet(20, ids.size());
+        Set<ByteBuffer> hashSet = new HashSet<>();
+        for (byte[] sha : ids) {
+            assertThat(set.add(sha)).isEqualTo(hashSet.add(ByteBuffer.wrap(sha)));
+        }
+        assertThat(set.size()).isEqualTo(hashSet.size());
+        for (byte[] sha : ids) {
+            assertThat(set.contains(sha)).isTrue();
+            assertThat(set.add(sha)).isFalse();
+        }
+        assertThat(set.contains(new byte[20])).isEqualTo(hashSet.contains(ByteBuffer.wrap(new byte[20])));
+    }
+}
@@ -0,0 +1,171 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitObjectStoreTest {
+
+    private Git g = new Git();
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(folder)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private List<GitObjectStore> createStores() {
+        File objects = folder.resolve("objects").toFile();
+        objects.mkdirs();
+        return Arrays.asList(
+                new GitLooseObjectStore(g, objects),
+                new GitPackObjectStore(g, folder.resolve("pack").toFile()),
+                new GitArenaObjectStore(20, 4096));
+    }
+
+    private GitTreeEntry writeTree(GitObjectStore store, byte[] large) throws IOException {
+        byte[] pippo = g.write(store, new GitBlob("Hello World!\n\n"));
+        byte[] pluto = g.write(store, new GitBlob("Hello World!\nHello Master!\n\n"));
+        byte[] big = g.write(store, new GitBlob(new ByteArrayInputStream(large), large.length));
+        List<GitTreeEntry> sub = new ArrayList<>();
+        sub.add(new GitTreeEntry("100644", "big", big));
+        sub.add(new GitTreeEntry("100644", "pippo", pippo));
+        byte[] subSha = g.write(store, new GitTreeEntry(sub));
+        List<GitTreeEntry> root = new ArrayList<>();
+        root.add(new GitTreeEntry("100644", "pluto", pluto));
+        root.add(new GitTreeEntry("40000", "sub", subSha));
+        GitTreeEntry tree = new GitTreeEntry(root);
+        g.write(store, tree);
+        return tree;
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        byte[] large = new byte[100_000];
+        new Random(5).nextBytes(large);
+        for (GitObjectStore store : createStores()) {
+            try {
+                GitTreeEntry tree = writeTree(store, large);
+                GitCommit commit = new GitCommit();
+                commit.setMessage("Add files.");
+                commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+                commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+                commit.setAuthoringDate(new Date(1496830486));
+                commit.setCommitDate(new Date(1496830486));
+                commit.setAuthoringTimezone("GMT+2");
+                commit.setCommitTimezone("GMT+2");
+                commit.setTree(g.binaryToHex(g.getTreeSha(tree)));
+                byte[] commitSha = g.write(store, commit);
+                store.flush();
+
+                String name = store.getClass().getSimpleName();
+                assertThat(store.has(commitSha)).as(name).isTrue();
+                assertThat(store.get(commitSha).getType()).as(name).isEqualTo(GitObjectType.COMMIT);
+                assertThat(((GitCommit) g.parse(store.get(commitSha))).getTree()).as(name).isEqualTo(commit.getTree());
+                assertThat(store.get(g.getBlobSha1("Hello World!\n\n")).getData()).as(name)
+                        .isEqualTo("Hello World!\n\n".getBytes("utf-8"));
+                assertThat(store.get(g.getSha(new GitBlob(large))).getData()).as(name).isEqualTo(large);
+                assertThat(store.get(g.getTreeSha(tree)).getType()).as(name).isEqualTo(GitObjectType.TREE);
+                assertThat(store.has(g.getBlobSha1("missing"))).as(name).isFalse();
+                assertThat(store.get(g.getBlobSha1("missing"))).as(name).isNull();
+                assertThat(g.write(store, new GitBlob("Hello World!\n\n"))).isEqualTo(g.getBlobSha1("Hello World!\n\n"));
+            } finally {
+                store.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPackStoreServesPendingObjects() throws Exception {
+        GitPackObjectStore store = new GitPackObjectStore(g, folder.resolve("pack").toFile());
+        byte[] sha = g.write(store, new GitBlob("pending\n"));
+        assertThat(store.getPendingCount()).isEqualTo(1);
+        assertThat(store.get(sha).getData()).isEqualTo("pending\n".getBytes("utf-8"));
+        store.close();
+        assertThat(store.getPendingCount()).isEqualTo(0);
+        assertThat(store.getDatabase().getPacks()).hasSize(1);
+        assertThat(new GitPackObjectStore(g, folder.resolve("pack").toFile()).get(sha).getData())
+                .isEqualTo("pending\n".getBytes("utf-8"));
+    }
+
+    @Test
+    public void testCheckoutFromEveryStore() throws Exception {
+        byte[] large = new byte[100_000];
+        new Random(6).nextBytes(large);
+        for (GitObjectStore store : createStores()) {
+            try {
+                byte[] root = g.getTreeSha(writeTree(store, large));
+                store.flush();
+                GitTreeEntry tree = (GitTreeEntry) g.parse(store.get(root));
+                String name = store.getClass().getSimpleName();
+                Path serial = folder.resolve(name + "-serial");
+                Path parallel = folder.resolve(name + "-parallel");
+                g.checkout(tree, store, serial);
+                g.checkout(tree, store, parallel, 4);
+                for (Path dest : Arrays.asList(serial, parallel)) {
+                    assertThat(Files.readAllBytes(dest.resolve("sub/big"))).as(name).isEqualTo(large);
+                    assertThat(new String(Files.readAllBytes(dest.resolve("pluto")), "utf-8")).as(name)
+                            .isEqualTo("Hello World!\nHello Master!\n\n");
+                    assertThat(new String(Files.readAllBytes(dest.resolve("sub/pippo")), "utf-8")).as(name)
+                            .isEqualTo("Hello World!\n\n");
+                }
+            } finally {
+                store.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCheckoutReportsMissingObjects() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        List<GitTreeEntry> entries = new ArrayList<>();
+        entries.add(new GitTreeEntry("100644", "pippo", g.getBlobSha1("missing")));
+        assertThatThrownBy(() -> g.checkout(new GitTreeEntry(entries), store, folder.resolve("dest")))
+                .isInstanceOf(GitException.class)
+                .hasMessage("missing object " + g.binaryToHex(g.getBlobSha1("missing")));
+    }
+
+    @Test
+    public void testArenaGrowsAcrossChunks() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore(20, 4096);
+        List<byte[]> shas = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            shas.add(g.write(store, new GitBlob("object number " + i + "\n")));
+        }
+        byte[] large = new byte[10_000];
+        new Random(7).nextBytes(large);
+        byte[] largeSha = g.write(store, new GitBlob(large));
+        assertThat(store.getObjectCount()).isEqualTo(5001);
+        assertThat(store.getCapacity()).isGreaterThanOrEqualTo(store.getUsedBytes());
+        for (int i = 0; i < shas.size(); i++) {
+            assertThat(store.get(shas.get(i)).getData()).isEqualTo(("object number " + i + "\n").getBytes("utf-8"));
+        }
+        assertThat(store.get(largeSha).getData()).isEqualTo(large);
+        store.close();
+        assertThat(store.has(largeSha)).isFalse();
+        assertThat(store.getUsedBytes()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,227 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitPackTest {
+
+    private Git g = new Git();
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(folder, FileVisitOption.FOLLOW_LINKS)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private List<GitObject> createObjects() {
+        List<GitObject> objects = new ArrayList<>();
+        GitBlob pippo = new GitBlob("Hello World!\n\n");
+        GitBlob pluto = new GitBlob("Hello World!\nHello Master!\n\n");
+        objects.add(pippo);
+        objects.add(pluto);
+        objects.add(new GitBlob("Hello World!\n\n"));
+        List<GitTreeEntry> entries = new ArrayList<>();
+        entries.add(new GitTreeEntry("100644", "pippo", g.getSha(pippo)));
+        entries.add(new GitTreeEntry("100644", "pluto", g.getSha(pluto)));
+        GitTreeEntry tree = new GitTreeEntry(entries);
+        objects.add(tree);
+        GitCommit commit = new GitCommit();
+        commit.setMessage("Add files.");
+        commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setAuthoringDate(new Date(1496830486));
+        commit.setCommitDate(new Date(1496830486));
+        commit.setAuthoringTimezone("GMT+2");
+        commit.setCommitTimezone("GMT+2");
+        commit.setTree(g.binaryToHex(g.getSha(tree)));
+        objects.add(commit);
+        byte[] large = new byte[300_000];
+        new Random(7).nextBytes(large);
+        objects.add(new GitBlob(new ByteArrayInputStream(large), large.length));
+        return objects;
+    }
+
+    @Test
+    public void testWritePackAndIndex() throws Exception {
+        GitPackWriter writer = new GitPackWriter(g);
+        writer.addAll(createObjects());
+        File packFolder = folder.resolve("pack").toFile();
+        byte[] checksum = writer.write(packFolder);
+
+        String name = "pack-" + g.binaryToHex(checksum);
+        byte[] pack = Files.readAllBytes(packFolder.toPath().resolve(name + ".pack"));
+        byte[] idx = Files.readAllBytes(packFolder.toPath().resolve(name + ".idx"));
+
+        assertThat(new String(pack, 0, 4, "US-ASCII")).isEqualTo("PACK");
+        assertThat(ByteBuffer.wrap(pack, 4, 8).getInt()).isEqualTo(2);
+        assertThat(ByteBuffer.wrap(pack, 8, 4).getInt()).isEqualTo(5);
+        assertThat(Arrays.copyOfRange(pack, pack.length - 20, pack.length)).isEqualTo(checksum);
+        assertThat(g.getBinarySha1(Arrays.copyOf(pack, pack.length - 20))).isEqualTo(checksum);
+
+        assertThat(ByteBuffer.wrap(idx).getInt()).isEqualTo(0xff744f63);
+        assertThat(ByteBuffer.wrap(idx, 4, 4).getInt()).isEqualTo(2);
+        assertThat(ByteBuffer.wrap(idx, 8 + 255 * 4, 4).getInt()).isEqualTo(5);
+        assertThat(idx.length).isEqualTo(8 + 256 * 4 + 5 * (20 + 4 + 4) + 40);
+        assertThat(Arrays.copyOfRange(idx, idx.length - 40, idx.length - 20)).isEqualTo(checksum);
+
+        assertThat(GitCli.git(folder, "verify-pack", "-v", packFolder.toPath().resolve(name + ".idx").toString()))
+                .contains("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758 blob");
+    }
+
+    @Test
+    public void testWritePackSkipsDuplicateStreams() throws Exception {
+        byte[] large = new byte[300_000];
+        new Random(7).nextBytes(large);
+        byte[] small = "Hello World!\n\n".getBytes("utf-8");
+        GitPackWriter writer = new GitPackWriter(g);
+        writer.add(new GitBlob(small));
+        writer.add(new GitBlob(new ByteArrayInputStream(large), large.length));
+        writer.add(new GitBlob(new ByteArrayInputStream(small), small.length));
+        writer.add(new GitBlob(new ByteArrayInputStream(large), large.length));
+        writer.add(new GitBlob("Hello World!\nHello Master!\n\n"));
+        File packFolder = folder.resolve("pack").toFile();
+        byte[] checksum = writer.write(packFolder);
+
+        String name = "pack-" + g.binaryToHex(checksum);
+        byte[] pack = Files.readAllBytes(packFolder.toPath().resolve(name + ".pack"));
+        assertThat(ByteBuffer.wrap(pack, 8, 4).getInt()).isEqualTo(3);
+        assertThat(g.getBinarySha1(Arrays.copyOf(pack, pack.length - 20))).isEqualTo(checksum);
+        assertThat(GitCli.git(folder, "verify-pack", "-v", packFolder.toPath().resolve(name + ".idx").toString()))
+                .contains("non delta: 3 objects", ": ok");
+        GitPackDatabase db = new GitPackDatabase(packFolder);
+        assertThat(db.read(g.getSha(new GitBlob(large))).getData()).isEqualTo(large);
+    }
+
+    private String createText(int lines, String marker) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("Hello World ").append(i).append('!').append(i == lines / 2 ? marker : "").append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testDeltaRoundTrip() {
+        byte[] base = g.getBytes(createText(1000, ""));
+        byte[] target = g.getBytes("Hello Developer!\n" + createText(1000, " Hello Master!") + "Bye!\n");
+        byte[] delta = GitDelta.encode(base, target);
+        assertThat(delta.length).isLessThan(200);
+        assertThat(GitDelta.apply(base, delta)).isEqualTo(target);
+
+        byte[] unrelated = new byte[5000];
+        new Random(3).nextBytes(unrelated);
+        assertThat(GitDelta.apply(base, GitDelta.encode(base, unrelated))).isEqualTo(unrelated);
+        assertThat(new GitDelta.Index(base).encode(unrelated, 1000)).isNull();
+        assertThat(GitDelta.apply(new byte[0], GitDelta.encode(new byte[0], target))).isEqualTo(target);
+    }
+
+    @Test
+    public void testDeltaLargeCopies() {
+        byte[] base = new byte[200_000];
+        new Random(5).nextBytes(base);
+        byte[] target = Arrays.copyOf(base, base.length + 1);
+        byte[] delta = GitDelta.encode(base, target);
+        assertThat(delta.length).isLessThan(40);
+        assertThat(GitDelta.apply(base, delta)).isEqualTo(target);
+    }
+
+    @Test
+    public void testCorruptDelta() {
+        assertThatThrownBy(() -> GitDelta.apply(new byte[3], new byte[]{4, 1}))
+                .isInstanceOf(GitException.class)
+                .hasMessage("delta base size mismatch: expected 4 but was 3");
+        assertThatThrownBy(() -> GitDelta.apply(new byte[3], new byte[]{3, 2, (byte) 0x91, 2, 2}))
+                .isInstanceOf(GitException.class)
+                .hasMessage("corrupt delta: copy out of bounds");
+    }
+
+    @Test
+    public void testWritePackWithDeltas() throws Exception {
+        GitPackWriter writer = new GitPackWriter(g);
+        writer.add(new GitBlob(createText(1000, "")), "pippo");
+        writer.add(new GitBlob(createText(1000, " Hello Developer!")), "pippo");
+        writer.add(new GitBlob(createText(1000, " Hello Master!")), "pippo");
+        writer.add(new GitBlob("Hello World!\n\n"), "pluto");
+        File packFolder = folder.resolve("pack").toFile();
+        byte[] checksum = writer.write(packFolder);
+
+        Path pack = packFolder.toPath().resolve("pack-" + g.binaryToHex(checksum) + ".pack");
+        assertThat(Files.size(pack)).isLessThan(4000);
+        assertThat(GitCli.git(folder, "verify-pack", "-v", packFolder.toPath().resolve("pack-" + g.binaryToHex(checksum) + ".idx").toString()))
+                .contains("non delta: 2 objects", ": ok");
+    }
+
+    @Test
+    public void testReadPackedObjects() throws Exception {
+        List<GitObject> objects = createObjects();
+        objects.add(new GitBlob(createText(1000, "")));
+        objects.add(new GitBlob(createText(1000, " Hello Developer!")));
+        GitPackWriter writer = new GitPackWriter(g);
+        writer.addAll(objects);
+        File packFolder = folder.resolve("pack").toFile();
+        writer.write(packFolder);
+
+        GitPackDatabase db = new GitPackDatabase(packFolder);
+        assertThat(db.getPacks()).hasSize(1);
+        for (GitObject object : objects) {
+            if (object instanceof GitBlob && ((GitBlob) object).isStreaming()) {
+                continue;
+            }
+            byte[] serialized = g.serialize(object);
+            GitRawObject raw = db.read(g.getBinarySha1(serialized));
+            assertThat(raw.getType()).isEqualTo(g.getType(object));
+            assertThat(raw.getData()).isEqualTo(Arrays.copyOfRange(serialized, GitPackWriter.headerLength(serialized), serialized.length));
+        }
+        assertThat(db.read(g.getBlobSha1("missing"))).isNull();
+        assertThat(db.getSize(g.getBlobSha1("missing"))).isEqualTo(-1);
+        assertThat(db.has(g.getBlobSha1("Hello World!\n\n"))).isTrue();
+        GitPack pack = db.getPacks().get(0);
+        for (int i = 0; i < pack.getIndex().getObjectCount(); i++) {
+            long offset = pack.getIndex().getOffset(i);
+            GitRawObject raw = pack.read(offset);
+            assertThat(pack.getType(offset)).isEqualTo(raw.getType());
+            assertThat(pack.getSize(offset)).isEqualTo(raw.getSize());
+        }
+    }
+
+    @Test
+    public void testPackIndexLookup() throws Exception {
+        GitPackWriter writer = new GitPackWriter(g);
+        writer.setDeltaWindow(0);
+        List<byte[]> shas = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            GitBlob blob = new GitBlob("blob " + i);
+            writer.add(blob);
+            shas.add(g.getSha(blob));
+        }
+        File packFolder = folder.resolve("pack").toFile();
+        byte[] checksum = writer.write(packFolder);
+        GitPackIndex index = new GitPackIndex(packFolder.toPath().resolve("pack-" + g.binaryToHex(checksum) + ".idx").toFile());
+        assertThat(index.getObjectCount()).isEqualTo(20000);
+        for (byte[] sha : shas) {
+            assertThat(index.findOffset(sha)).isGreaterThan(0);
+        }
+        assertThat(index.find(g.getBlobSha1("missing"))).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,245 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitRefDatabaseTest {
+
+    private Git g = new Git();
+    private Path folder;
+    private GitRefDatabase refs;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j");
+        refs = new GitRefDatabase(g, folder.resolve(".git").toFile());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(folder)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private byte[] id(int n) {
+        return ByteBuffer.allocate(20).putInt(16, n).array();
+    }
+
+    private int counter(byte[] id) {
+        return ByteBuffer.wrap(id).getInt(16);
+    }
+
+    private byte[] commit() throws Exception {
+        git("init", "-q");
+        git("config", "user.name", "Montoya Edu");
+        git("config", "user.email", "montoya.edu@gmail.com");
+        git("commit", "-q", "--allow-empty", "-m", "first");
+        return g.hexToBinary(git("rev-parse", "HEAD").trim());
+    }
+
+    @Test
+    public void testReadsRefsWrittenByGit() throws Exception {
+        byte[] head = commit();
+        StringBuilder stdin = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            stdin.append("create refs/heads/branch").append(i).append(' ').append(g.binaryToHex(head)).append('\n');
+        }
+        gitWithInput(stdin.toString(), "update-ref", "--stdin");
+        git("tag", "-a", "-m", "tag", "v1.0");
+        git("pack-refs", "--all");
+        git("commit", "-q", "--allow-empty", "-m", "second");
+        git("branch", "loose");
+        byte[] second = g.hexToBinary(git("rev-parse", "HEAD").trim());
+
+        assertThat(refs.resolve("HEAD")).isEqualTo(second);
+        assertThat(refs.exactRef("HEAD").getTarget()).isEqualTo(git("symbolic-ref", "HEAD").trim());
+        assertThat(refs.exactRef("refs/heads/branch500").getId()).isEqualTo(head);
+        assertThat(refs.exactRef("refs/heads/branch500").isPacked()).isTrue();
+        assertThat(refs.exactRef("refs/heads/loose").isPacked()).isFalse();
+        assertThat(refs.exactRef("refs/heads/branch")).isNull();
+        assertThat(refs.exactRef("refs/heads/branch9999")).isNull();
+        assertThat(refs.exactRef("refs/tags/v1.0").getPeeled()).isEqualTo(head);
+        assertThat(refs.exactRef("refs/tags/v1.0").getId()).isEqualTo(g.hexToBinary(git("rev-parse", "v1.0").trim()));
+
+        Map<String, GitRef> all = refs.getRefs("refs/");
+        StringBuilder expected = new StringBuilder();
+        for (GitRef ref : all.values()) {
+            expected.append(g.binaryToHex(ref.getId())).append(' ').append(ref.getName()).append('\n');
+        }
+        assertThat(expected.toString()).isEqualTo(git("show-ref"));
+        assertThat(refs.getRefs("refs/heads/branch99")).containsOnlyKeys("refs/heads/branch99",
+                "refs/heads/branch990", "refs/heads/branch991", "refs/heads/branch992", "refs/heads/branch993",
+                "refs/heads/branch994", "refs/heads/branch995", "refs/heads/branch996", "refs/heads/branch997",
+                "refs/heads/branch998", "refs/heads/branch999");
+    }
+
+    @Test
+    public void testCompareAndSet() throws Exception {
+        byte[] head = commit();
+        git("branch", "packed");
+        git("pack-refs", "--all");
+        assertThat(refs.compareAndSet("refs/heads/feature", null, head)).isTrue();
+        assertThat(refs.compareAndSet("refs/heads/feature", null, head)).isFalse();
+        assertThat(git("rev-parse", "feature").trim()).isEqualTo(g.binaryToHex(head));
+
+        assertThat(refs.compareAndSet("refs/heads/packed", id(1), null)).isFalse();
+        assertThat(refs.compareAndSet("refs/heads/packed", head, null)).isTrue();
+        assertThat(refs.exactRef("refs/heads/packed")).isNull();
+        assertThat(git("show-ref")).doesNotContain("refs/heads/packed");
+        assertThat(new String(Files.readAllBytes(folder.resolve(".git/packed-refs")), "utf-8")).doesNotContain("refs/heads/packed");
+
+        refs.setSymbolicRef("HEAD", "refs/heads/feature");
+        assertThat(git("symbolic-ref", "HEAD").trim()).isEqualTo("refs/heads/feature");
+        assertThat(refs.compareAndSet("HEAD", head, id(5))).isTrue();
+        assertThat(refs.exactRef("HEAD").getTarget()).isEqualTo("refs/heads/feature");
+        assertThat(counter(refs.resolve("refs/heads/feature"))).isEqualTo(5);
+        assertThat(refs.compareAndSet("HEAD", head, id(6))).isFalse();
+        assertThatThrownBy(() -> refs.newTransaction().set("HEAD", head).set("refs/heads/feature", head).commit())
+                .isInstanceOf(GitException.class)
+                .hasMessage("duplicate ref update refs/heads/feature");
+        assertThat(refs.compareAndSet("HEAD", id(5), head)).isTrue();
+        assertThat(refs.compareAndSet("refs/heads/feature", head, null)).isTrue();
+        assertThat(folder.resolve(".git/refs/heads")).exists();
+        assertThat(folder.resolve(".git/refs/heads/feature.lock")).doesNotExist();
+
+        assertThat(refs.compareAndSet("refs/heads/a/b", null, head)).isTrue();
+        assertThatThrownBy(() -> refs.compareAndSet("refs/heads/a", null, head))
+                .isInstanceOf(GitException.class)
+                .hasMessage("ref refs/heads/a conflicts with refs/heads/a/b");
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> refs.compareAndSet("refs/heads/a/b/c", null, head))
+                .isInstanceOf(GitException.class)
+                .hasMessage("ref refs/heads/a/b/c conflicts with refs/heads/a/b");
+        assertThat(System.nanoTime() - start).isLessThan(refs.getLockTimeout() * 1_000_000);
+        assertThatThrownBy(() -> refs.compareAndSet("refs/heads/../config", null, head))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid ref name refs/heads/../config");
+
+        Files.write(folder.resolve(".git/refs/heads/busy.lock"), new byte[0]);
+        refs.setLockTimeout(20);
+        assertThatThrownBy(() -> refs.compareAndSet("refs/heads/busy", null, head))
+                .isInstanceOf(GitException.class)
+                .hasMessage("ref is locked: refs/heads/busy");
+        refs.setLockTimeout(0);
+        assertThatThrownBy(() -> refs.compareAndSet("refs/heads/busy", null, head))
+                .isInstanceOf(GitException.class)
+                .hasMessage("ref is locked: refs/heads/busy");
+        Files.write(folder.resolve(".git/HEAD.lock"), new byte[0]);
+        assertThatThrownBy(() -> refs.setSymbolicRef("HEAD", "refs/heads/busy"))
+                .isInstanceOf(GitException.class)
+                .hasMessage("ref is locked: HEAD");
+    }
+
+    @Test
+    public void testTransactionIsAllOrNothing() throws Exception {
+        byte[] head = commit();
+        refs.newTransaction().set("refs/heads/one", head).set("refs/heads/two", head).commit();
+
+        GitRefTransaction failing = refs.newTransaction()
+                .update("refs/heads/one", head, id(1))
+                .update("refs/heads/two", id(7), id(2))
+                .update("refs/heads/three", null, id(3));
+        assertThat(failing.size()).isEqualTo(3);
+        assertThat(failing.commit()).isFalse();
+        assertThat(refs.resolve("refs/heads/one")).isEqualTo(head);
+        assertThat(refs.exactRef("refs/heads/three")).isNull();
+        assertThat(folder.resolve(".git/refs/heads/one.lock")).doesNotExist();
+
+        assertThat(refs.newTransaction()
+                .delete("refs/heads/one", head)
+                .update("refs/heads/two", head, id(2))
+                .update("refs/heads/three", null, id(3))
+                .commit()).isTrue();
+        assertThat(refs.getRefs("refs/heads/").keySet())
+                .contains("refs/heads/three", "refs/heads/two")
+                .doesNotContain("refs/heads/one");
+        assertThatThrownBy(() -> refs.newTransaction().set("refs/heads/x", head).set("refs/heads/x", head).commit())
+                .isInstanceOf(GitException.class)
+                .hasMessage("duplicate ref update refs/heads/x");
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        int threads = 8;
+        int increments = 100;
+        refs.compareAndSet("refs/heads/counter", null, id(0));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < increments; ) {
+                        byte[] current = refs.resolve("refs/heads/counter");
+                        if (refs.compareAndSet("refs/heads/counter", current, id(counter(current) + 1))) {
+                            assertThat(refs.compareAndSet("refs/heads/thread" + thread + "/" + i, null, id(i))).isTrue();
+                            i++;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(counter(refs.resolve("refs/heads/counter"))).isEqualTo(threads * increments);
+        assertThat(refs.getRefs("refs/heads/thread")).hasSize(threads * increments);
+
+        assertThat(refs.pack()).isEqualTo(threads * increments + 1);
+        assertThat(folder.resolve(".git/refs/heads")).exists();
+        assertThat(folder.resolve(".git/refs/heads/thread0")).doesNotExist();
+        assertThat(counter(refs.resolve("refs/heads/counter"))).isEqualTo(threads * increments);
+        assertThat(refs.exactRef("refs/heads/thread3/42").isPacked()).isTrue();
+        assertThat(refs.getRefs("refs/heads/thread3/")).hasSize(increments);
+        assertThat(refs.compareAndSet("refs/heads/thread3/42", id(42), id(43))).isTrue();
+        assertThat(refs.exactRef("refs/heads/thread3/42").isPacked()).isFalse();
+        assertThat(counter(refs.resolve("refs/heads/thread3/42"))).isEqualTo(43);
+    }
+
+    @Test
+    public void testUnsortedPackedRefs() throws Exception {
+        Files.createDirectories(folder.resolve(".git"));
+        try (OutputStream out = Files.newOutputStream(folder.resolve(".git/packed-refs"))) {
+            out.write((g.binaryToHex(id(3)) + " refs/tags/c\n"
+                    + g.binaryToHex(id(1)) + " refs/heads/a\n"
+                    + "^" + g.binaryToHex(id(9)) + "\n"
+                    + g.binaryToHex(id(2)) + " refs/heads/b\n").getBytes("utf-8"));
+        }
+        assertThat(counter(refs.resolve("refs/heads/a"))).isEqualTo(1);
+        assertThat(counter(refs.exactRef("refs/heads/a").getPeeled())).isEqualTo(9);
+        assertThat(counter(refs.resolve("refs/heads/b"))).isEqualTo(2);
+        assertThat(counter(refs.resolve("refs/tags/c"))).isEqualTo(3);
+        assertThat(refs.getRefs("").keySet()).containsExactly("refs/heads/a", "refs/heads/b", "refs/tags/c");
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(folder, args);
+    }
+
+    private String gitWithInput(String stdin, String... args) throws Exception {
+        return GitCli.gitWithInput(folder, stdin, args);
+    }
+}
@@ -0,0 +1,308 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitSnapshotTest {
+
+    private Git g = new Git();
+    private Path folder;
+    private Path work;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("git4j");
+        work = folder.resolve("work");
+        Files.createDirectories(work);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(folder)
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+    }
+
+    private void createWorkingTree() throws IOException {
+        Files.write(work.resolve("pippo"), "Hello World!\n\n".getBytes("utf-8"));
+        Files.write(work.resolve("pluto"), "Hello World!\nHello Master!\n\n".getBytes("utf-8"));
+        Files.createDirectories(work.resolve("a/b"));
+        Files.createDirectories(work.resolve("a.b"));
+        Files.createDirectories(work.resolve("empty"));
+        Files.write(work.resolve("a/b/c"), "c\n".getBytes("utf-8"));
+        Files.write(work.resolve("a.b/d"), "d\n".getBytes("utf-8"));
+        Files.write(work.resolve("a-"), "e\n".getBytes("utf-8"));
+        Path script = work.resolve("run.sh");
+        Files.write(script, "#!/bin/sh\n".getBytes("utf-8"));
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Files.createSymbolicLink(work.resolve("link"), work.getFileSystem().getPath("a/b/c"));
+        byte[] large = new byte[500_000];
+        new Random(3).nextBytes(large);
+        Files.write(work.resolve("a/large.bin"), large);
+        Files.createDirectories(work.resolve(".git"));
+        Files.write(work.resolve(".git/HEAD"), "ignored\n".getBytes("utf-8"));
+        setOld(work);
+    }
+
+    private void setOld(Path dir) throws IOException {
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        Files.walk(dir).filter(p -> !Files.isSymbolicLink(p)).forEach(p -> {
+            try {
+                Files.setLastModifiedTime(p, old);
+            } catch (IOException e) {
+                throw new GitException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testWriteTreeMatchesGit() throws Exception {
+        createWorkingTree();
+        GitTreeEntry tree = new GitSnapshot(g).writeTree(work);
+
+        List<String> names = new ArrayList<>();
+        for (GitTreeEntry entry : tree.getObjects()) {
+            names.add(entry.getOctalMode() + " " + entry.getName());
+        }
+        assertThat(names).containsExactly("100644 a-", "40000 a.b", "40000 a", "120000 link", "100644 pippo", "100644 pluto", "100755 run.sh");
+
+        Files.delete(work.resolve(".git/HEAD"));
+        Files.delete(work.resolve(".git"));
+        git("init", "-q");
+        git("add", "-A");
+        assertThat(g.binaryToHex(g.getTreeSha(tree))).isEqualTo(git("write-tree").trim());
+    }
+
+    @Test
+    public void testWriteTreeStoresLooseObjects() throws Exception {
+        createWorkingTree();
+        File objects = folder.resolve("objects").toFile();
+        GitSnapshot snapshot = new GitSnapshot(g);
+        snapshot.setParallelism(4);
+        GitTreeEntry tree = snapshot.writeTree(work, objects);
+
+        assertThat(g.getTreeSha(tree)).isEqualTo(g.getTreeSha(new GitSnapshot(g).writeTree(work)));
+        GitTreeEntry a = (GitTreeEntry) g.read(objects, tree.getObjects().get(2).getSha1());
+        assertThat(a.getObjects()).extracting(GitTreeEntry::getName).containsExactly("b", "large.bin");
+        GitBlob large = (GitBlob) g.read(objects, a.getObjects().get(1).getSha1());
+        assertThat(large.getData()).isEqualTo(Files.readAllBytes(work.resolve("a/large.bin")));
+        GitBlob link = (GitBlob) g.read(objects, tree.getObjects().get(3).getSha1());
+        assertThat(link.getContent()).isEqualTo("a/b/c");
+        assertThat(g.read(objects, g.getTreeSha(tree))).isNotNull();
+    }
+
+    @Test
+    public void testWriteTreeStoresPackedObjects() throws Exception {
+        createWorkingTree();
+        GitPackWriter writer = new GitPackWriter(g);
+        GitTreeEntry tree = new GitSnapshot(g).writeTree(work, writer);
+        assertThat(writer.getObjectCount()).isEqualTo(12);
+
+        File pack = folder.resolve("pack").toFile();
+        writer.write(pack);
+        GitPackDatabase db = new GitPackDatabase(pack);
+        assertThat(db.has(g.getTreeSha(tree))).isTrue();
+        assertThat(db.read(g.getBlobSha1(work.resolve("a/large.bin"))).getData())
+                .isEqualTo(Files.readAllBytes(work.resolve("a/large.bin")));
+    }
+
+    @Test
+    public void testWriteTreeOfManyFiles() throws Exception {
+        int files = 0;
+        for (int i = 0; i < 20; i++) {
+            Path dir = work.resolve("dir" + i);
+            Files.createDirectories(dir);
+            for (int j = 0; j < 250; j++) {
+                Files.write(dir.resolve("file" + j), ("content " + i + " " + j + "\n").getBytes("utf-8"));
+                files++;
+            }
+        }
+        GitSnapshot snapshot = new GitSnapshot(g);
+        GitTreeEntry tree = snapshot.writeTree(work);
+        assertThat(tree.getObjects()).hasSize(20);
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(files);
+
+        setOld(work);
+        File indexFile = folder.resolve("index").toFile();
+        snapshot.setIndex(new GitIndex(g, indexFile));
+        snapshot.writeTree(work);
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(files);
+        snapshot.getIndex().write();
+        snapshot.setIndex(new GitIndex(g, indexFile));
+        assertThat(g.getTreeSha(snapshot.writeTree(work))).isEqualTo(g.getTreeSha(tree));
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testIndexSkipsUnchangedFiles() throws Exception {
+        createWorkingTree();
+        File indexFile = folder.resolve("index").toFile();
+        GitSnapshot snapshot = new GitSnapshot(g);
+        snapshot.setIndex(new GitIndex(g, indexFile));
+        GitTreeEntry tree = snapshot.writeTree(work);
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(8);
+        snapshot.getIndex().write();
+
+        snapshot.setIndex(new GitIndex(g, indexFile));
+        assertThat(snapshot.getIndex().getEntries()).extracting(GitIndexEntry::getPath)
+                .containsExactly("a-", "a.b/d", "a/b/c", "a/large.bin", "link", "pippo", "pluto", "run.sh");
+        assertThat(snapshot.getIndex().getEntry("run.sh").getOctalMode()).isEqualTo("100755");
+        assertThat(g.getTreeSha(snapshot.writeTree(work))).isEqualTo(g.getTreeSha(tree));
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(0);
+        assertThat(snapshot.getIndex().isChanged()).isFalse();
+
+        Files.write(work.resolve("pippo"), "changed\n".getBytes("utf-8"));
+        Files.delete(work.resolve("pluto"));
+        GitTreeEntry changed = snapshot.writeTree(work);
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(1);
+        assertThat(g.getTreeSha(changed)).isEqualTo(g.getTreeSha(new GitSnapshot(g).writeTree(work)));
+        snapshot.getIndex().write();
+
+        GitIndex index = new GitIndex(g, indexFile);
+        assertThat(index.getEntry("pluto")).isNull();
+        assertThat(index.getEntry("pippo").getSha1()).isEqualTo(g.getBlobSha1("changed\n"));
+    }
+
+    @Test
+    public void testIndexIsCompatibleWithGit() throws Exception {
+        createWorkingTree();
+        Files.delete(work.resolve(".git/HEAD"));
+        Files.delete(work.resolve(".git"));
+        git("init", "-q");
+        git("add", "-A");
+        String expected = git("write-tree").trim();
+
+        File indexFile = work.resolve(".git/index").toFile();
+        GitSnapshot snapshot = new GitSnapshot(g);
+        snapshot.setIndex(new GitIndex(g, indexFile));
+        assertThat(g.binaryToHex(g.getTreeSha(snapshot.writeTree(work)))).isEqualTo(expected);
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(0);
+
+        Files.write(work.resolve("pippo"), "changed\n".getBytes("utf-8"));
+        snapshot.writeTree(work, work.resolve(".git/objects").toFile());
+        assertThat(snapshot.getLastHashedCount()).isEqualTo(1);
+        snapshot.getIndex().write();
+        assertThat(git("ls-files", "-s", "pippo")).startsWith("100644 " + g.binaryToHex(g.getBlobSha1("changed\n")));
+        assertThat(git("diff-files", "--name-only")).isEmpty();
+    }
+
+    @Test
+    public void testIndexKeepsExtensions() throws Exception {
+        Files.write(work.resolve("pippo"), "Hello World!\n\n".getBytes("utf-8"));
+        git("init", "-q");
+        git("add", "-A");
+        String sha = git("hash-object", "-w", "pippo").trim();
+        GitCli.gitWithInput(work, "100644 " + sha + " 1\tconflict\n100644 " + sha + " 2\tconflict\n"
+                + "100644 " + sha + " 3\tconflict\n", "update-index", "--index-info");
+        Files.write(work.resolve("conflict"), "resolved\n".getBytes("utf-8"));
+        git("add", "conflict");
+        git("write-tree");
+        git("update-index", "--untracked-cache");
+        git("status", "--porcelain");
+        File indexFile = work.resolve(".git/index").toFile();
+        assertThat(extensions(indexFile)).contains("REUC", "TREE", "UNTR");
+
+        new GitIndex(g, indexFile).write();
+        assertThat(extensions(indexFile)).contains("REUC", "TREE", "UNTR");
+        assertThat(git("ls-files", "--resolve-undo")).contains("\tconflict");
+
+        GitIndex index = new GitIndex(g, indexFile);
+        index.remove("pippo");
+        index.write();
+        assertThat(extensions(indexFile)).contains("REUC").doesNotContain("TREE").doesNotContain("UNTR");
+        assertThat(git("ls-files", "--resolve-undo")).contains("\tconflict");
+        assertThat(git("status", "--porcelain")).contains("?? pippo");
+    }
+
+    @Test
+    public void testIndexRejectsMandatoryExtensions() throws Exception {
+        Files.write(work.resolve("pippo"), "Hello World!\n\n".getBytes("utf-8"));
+        git("init", "-q");
+        git("add", "-A");
+        git("update-index", "--split-index");
+        File indexFile = work.resolve(".git/index").toFile();
+        assertThatThrownBy(() -> new GitIndex(g, indexFile))
+                .isInstanceOf(GitException.class)
+                .hasMessageStartingWith("unsupported index extension link");
+    }
+
+    private String extensions(File indexFile) throws IOException {
+        return new String(Files.readAllBytes(indexFile.toPath()), "iso-8859-1");
+    }
+
+    @Test
+    public void testIndexIsLocked() throws Exception {
+        File indexFile = folder.resolve("index").toFile();
+        Files.createFile(folder.resolve("index.lock"));
+        GitIndex index = new GitIndex(g, indexFile);
+        index.put(new GitIndexEntry("pippo", 0100644, g.getBlobSha1("pippo")));
+        assertThatThrownBy(index::write).isInstanceOf(GitException.class).hasMessageStartingWith("index is locked");
+        assertThat(indexFile).doesNotExist();
+    }
+
+    @Test
+    public void testSha256ObjectFormat() throws Exception {
+        createWorkingTree();
+        Files.delete(work.resolve(".git/HEAD"));
+        Files.delete(work.resolve(".git"));
+        git("init", "-q", "--object-format=sha256");
+        Git s = Git.forObjectFormat(Git.SHA256);
+        assertThat(s.getObjectFormat()).isEqualTo("sha256");
+        File objects = work.resolve(".git/objects").toFile();
+        GitTreeEntry tree = new GitSnapshot(s).writeTree(work, objects);
+        String treeHex = s.binaryToHex(s.getTreeSha(tree));
+        assertThat(treeHex).hasSize(64);
+
+        GitCommit commit = new GitCommit();
+        commit.setMessage("Add files.");
+        commit.setAuthor("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setCommitter("Montoya Edu <montoya.edu@gmail.com>");
+        commit.setAuthoringDate(new Date(1496830486));
+        commit.setCommitDate(new Date(1496830486));
+        commit.setAuthoringTimezone("GMT+2");
+        commit.setCommitTimezone("GMT+2");
+        commit.setTree(treeHex);
+        s.serializeGitObjectToFile(objects, commit);
+        String commitHex = s.binaryToHex(s.getSha(commit));
+        git("update-ref", "HEAD", commitHex);
+        git("fsck", "--strict", "--no-dangling");
+        assertThat(git("rev-parse", "HEAD^{tree}").trim()).isEqualTo(treeHex);
+        git("add", "-A");
+        assertThat(git("write-tree").trim()).isEqualTo(treeHex);
+
+        GitCommit read = (GitCommit) s.read(objects, s.hexToBinary(commitHex));
+        assertThat(read.getTree()).isEqualTo(treeHex);
+        GitTreeEntry a = (GitTreeEntry) s.read(objects, tree.getObjects().get(2).getSha1());
+        assertThat(a.getObjects().get(0).getSha1()).hasSize(32);
+
+        GitPackWriter writer = new GitPackWriter(s);
+        new GitSnapshot(s).writeTree(work, writer);
+        File pack = folder.resolve("pack").toFile();
+        String checksum = s.binaryToHex(writer.write(pack));
+        git("verify-pack", new File(pack, "pack-" + checksum + ".idx").getAbsolutePath());
+        GitPackDatabase db = new GitPackDatabase(pack, s.getDigestLength());
+        assertThat(db.read(s.getBlobSha1(work.resolve("a/large.bin"))).getData())
+                .isEqualTo(Files.readAllBytes(work.resolve("a/large.bin")));
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(work, args);
+    }
+}
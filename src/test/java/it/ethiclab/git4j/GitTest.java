@@ -2,15 +2,26 @@ package it.ethiclab.git4j;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -48,6 +59,61 @@ public class GitTest {
         return new GitTreeEntry(objects);
     }
 
+    @Test
+    public void testHexToBinary() {
+        byte[] sha = g.getBlobSha1("Hello World!\n\n");
+        assertThat(g.hexToBinary("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758")).isEqualTo(sha);
+        assertThatThrownBy(() -> g.hexToBinary("ea2"))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid hex string ea2");
+        assertThatThrownBy(() -> g.hexToBinary("zz"))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid hex string zz");
+    }
+
+    @Test
+    public void testHexCodec() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        String hex = g.binaryToHex(all);
+        assertThat(hex).startsWith("000102").endsWith("fdfeff").hasSize(512);
+        assertThat(g.hexToBinary(hex)).isEqualTo(all);
+        assertThat(g.hexToBinary(hex.toUpperCase())).isEqualTo(all);
+        assertThat(g.binaryToHex(new byte[0])).isEmpty();
+        assertThatThrownBy(() -> g.hexToBinary("0\u00e0"))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid hex string 0\u00e0");
+    }
+
+    @Test
+    public void testSha256Objects() throws Exception {
+        Git s = Git.forObjectFormat(Git.SHA256);
+        assertThat(g.getObjectFormat()).isEqualTo(Git.SHA1);
+        assertThat(s.getDigestLength()).isEqualTo(32);
+        byte[] blob = s.getBlobSha1("Hello World!\n\n");
+        assertThat(blob).isEqualTo(MessageDigest.getInstance("SHA-256").digest("blob 14\0Hello World!\n\n".getBytes("utf-8")));
+
+        List<GitTreeEntry> entries = new ArrayList<>();
+        entries.add(new GitTreeEntry("100644", "citt\u00e0", blob));
+        GitTreeEntry tree = new GitTreeEntry(entries);
+        byte[] data = s.serialize(tree);
+        int header = "tree 46\0".length();
+        assertThat(data).hasSize(header + 46);
+        assertThat(entries.get(0).length()).isEqualTo(46);
+        GitTreeEntry parsed = (GitTreeEntry) s.parse(new GitRawObject(GitObjectType.TREE, Arrays.copyOfRange(data, header, data.length)));
+        assertThat(parsed.getObjects().get(0).getName()).isEqualTo("citt\u00e0");
+        assertThat(parsed.getObjects().get(0).getSha1()).isEqualTo(blob);
+
+        assertThatThrownBy(() -> g.serialize(tree))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid id length 32 for citt\u00e0");
+        assertThatThrownBy(() -> Git.forObjectFormat("md5"))
+                .isInstanceOf(GitException.class)
+                .hasMessage("unsupported object format md5");
+    }
+
     @Test
     public void testTreeWith2Items() {
         assertThat(g.binaryToHex(g.getTreeSha(createSecondTree())))
@@ -132,6 +198,21 @@ public class GitTest {
         return c;
     }
 
+    @Test
+    public void testCommitHeaderCountsBytes() throws Exception {
+        GitCommit c = createInitialCommit();
+        c.setAuthor("Montoya Èdu <montoya.edu@gmail.com>");
+        c.setMessage("Add file \uD83D\uDE00.");
+        c.setCommitTimezone("GMT-01:30");
+        byte[] bytes = g.serialize(c);
+        String text = new String(bytes, "utf-8");
+        int nul = text.indexOf('\0');
+        assertThat(text.substring(0, nul)).isEqualTo("commit " + (bytes.length - nul - 1));
+        assertThat(text).contains("author Montoya Èdu <montoya.edu@gmail.com> 1496830486 +0200\n");
+        assertThat(text).contains("committer Montoya Edu <montoya.edu@gmail.com> 1496830486 -0130\n");
+        assertThat(text).endsWith("\n\nAdd file \uD83D\uDE00.\n");
+    }
+
     @Test
     public void testSecondCommit() {
         GitCommit c = createSecondCommit();
@@ -257,6 +338,496 @@ public class GitTest {
         return c;
     }
 
+    @Test
+    public void testStreamingBlobSha1() throws Exception {
+        Path file = Files.createTempFile("git4j", ".txt");
+        try {
+            Files.write(file, g.getBytes("Hello World!\n\n"));
+            assertThat(g.binaryToHex(g.getBlobSha1(file))).isEqualTo("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758");
+            byte[] bytes = g.getBytes("Hello World!\n\n");
+            GitBlob blob = new GitBlob(new ByteArrayInputStream(bytes), bytes.length);
+            assertThat(g.binaryToHex(g.getSha(blob))).isEqualTo("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758");
+            assertThatThrownBy(() -> g.getSha(blob))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("blob stream can be read only once");
+            GitBlob fileBlob = new GitBlob(file);
+            assertThat(g.getSha(fileBlob)).isEqualTo(g.getSha(fileBlob));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStreamingBlobTooShort() {
+        GitBlob blob = new GitBlob(new ByteArrayInputStream(new byte[10]), 11);
+        assertThatThrownBy(() -> g.getSha(blob))
+                .isInstanceOf(GitException.class)
+                .hasMessage("unexpected end of blob, 1 bytes missing");
+    }
+
+    @Test
+    public void testWriteLargeStreamingBlob() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            Path file = Paths.get(folder.toString(), "large.bin");
+            byte[] chunk = new byte[100_000];
+            new Random(42).nextBytes(chunk);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (int i = 0; i < 30; i++) {
+                    out.write(chunk);
+                }
+            }
+            File objectsFolder = Paths.get(folder.toString(), "objects").toFile();
+            objectsFolder.mkdir();
+
+            byte[] sha = g.writeBlob(objectsFolder, new GitBlob(file));
+            assertThat(sha).isEqualTo(g.getBinarySha1(g.serialize(new GitBlob(file))));
+
+            String hex = g.binaryToHex(sha);
+            File stored = Paths.get(objectsFolder.getAbsolutePath(), hex.substring(0, 2), hex.substring(2)).toFile();
+            assertThat(inflate(stored)).isEqualTo(g.serialize(new GitBlob(file)));
+
+            File copy = Paths.get(folder.toString(), "copy.bin").toFile();
+            g.uncompress(copy, stored);
+            assertThat(Files.readAllBytes(copy.toPath())).isEqualTo(Files.readAllBytes(file));
+            assertThat(objectsFolder.list()).containsExactly(hex.substring(0, 2));
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testParallelShasMatchSerialShas() {
+        List<GitObject> objects = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            objects.add(new GitBlob("Hello World " + i + "!\n"));
+            objects.add(createSecondTree());
+        }
+        List<byte[]> serial = g.getShas(objects, 1);
+        List<byte[]> parallel = g.getShas(objects, 8);
+        assertThat(parallel).hasSameSizeAs(serial);
+        for (int i = 0; i < serial.size(); i++) {
+            assertThat(parallel.get(i)).isEqualTo(serial.get(i));
+        }
+        assertThat(g.binaryToHex(parallel.get(1))).isEqualTo("a48464603b7d2519a92794f59232caeda2c829f6");
+    }
+
+    @Test
+    public void testInvalidParallelism() {
+        assertThatThrownBy(() -> g.getShas(Collections.emptyList(), 0))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid parallelism 0");
+    }
+
+    @Test
+    public void testObjectReaderReusesInflaters() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            Git git = new Git();
+            File objectsFolder = writeRepository(folder, createMergeTree());
+            byte[] sha = git.getTreeSha(createMergeTree());
+            for (int i = 0; i < 10; i++) {
+                ForkJoinPool pool = new ForkJoinPool(1);
+                try {
+                    assertThat(pool.submit(() -> git.read(objectsFolder, sha)).get()).isInstanceOf(GitTreeEntry.class);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            assertThat(git.getCreatedInflaterCount()).isEqualTo(1);
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testObjectReaderParsesHeader() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            File objectsFolder = writeRepository(folder, createMergeTree());
+            String sha = g.binaryToHex(g.getTreeSha(createMergeTree()));
+            File object = Paths.get(objectsFolder.getAbsolutePath(), sha.substring(0, 2), sha.substring(2)).toFile();
+            File dest = Paths.get(folder.toString(), "tree").toFile();
+
+            GitObjectReader reader = new GitObjectReader();
+            assertThat(reader.copy(object, dest)).isEqualTo(66);
+            assertThat(reader.getType()).isEqualTo(GitObjectType.TREE);
+            assertThat(reader.getSize()).isEqualTo(66);
+
+            byte[] compressed = Files.readAllBytes(object.toPath());
+            Files.write(object.toPath(), Arrays.copyOf(compressed, compressed.length - 10));
+            assertThatThrownBy(() -> reader.copy(object, dest))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("truncated object");
+
+            Files.write(object.toPath(), g.compress(g.getBytes("blob 5\0abc")));
+            assertThatThrownBy(() -> reader.copy(object, dest))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("corrupt object: expected 5 bytes but found 3");
+
+            Files.write(object.toPath(), g.compress(g.getBytes("blub 3\0abc")));
+            assertThatThrownBy(() -> reader.copy(object, dest))
+                    .isInstanceOf(GitException.class)
+                    .hasMessage("unknown object type blub");
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testReadLooseObjects() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            File objectsFolder = writeRepository(folder, new GitBlob("Hello World!\n\n"), createNestedTree(), createMergeCommit());
+
+            GitCommit commit = (GitCommit) g.read(objectsFolder, g.getSha(createMergeCommit()));
+            assertThat(commit.getTree()).isEqualTo("bf1d6d1bc9c9ca5295959c67222228c145e174c9");
+            assertThat(commit.getParentCommits()).containsExactly(
+                    "67dcda19177750b3047b28182f5dd3e1745cab67", "6624283d61c0271418784d69d034ebb0be59ae3d");
+            assertThat(commit.getAuthor()).isEqualTo("Montoya Edu <montoya.edu@gmail.com>");
+            assertThat(commit.getCommitDate().getTime()).isEqualTo(1496909724);
+            assertThat(commit.getMessage()).isEqualTo("Merge branch 'devel'");
+            assertThat(g.binaryToHex(g.getSha(commit))).isEqualTo("afeefefbb0a4b91b5744ef77ed8efab8b20382a3");
+
+            GitTreeEntry tree = (GitTreeEntry) g.read(objectsFolder, g.getTreeSha(createNestedTree()));
+            assertThat(tree.getObjects()).extracting(GitTreeEntry::getName).containsExactly("pippo", "pluto", "sub");
+            assertThat(tree.getObjects().get(2).getOctalMode()).isEqualTo("40000");
+            assertThat(tree.getObjects().get(2).isTree()).isTrue();
+            assertThat(tree.getObjects().get(0).isTree()).isFalse();
+            assertThat(g.getTreeSha(tree)).isEqualTo(g.getTreeSha(createNestedTree()));
+
+            GitBlob blob = (GitBlob) g.read(objectsFolder, g.getBlobSha1("Hello World!\n\n"));
+            assertThat(blob.getContent()).isEqualTo("Hello World!\n\n");
+            assertThat(g.binaryToHex(g.getSha(blob))).isEqualTo("ea2fd5c3fa7abbc3b05bade4a1c9ea0a5c3f1758");
+
+            assertThat(g.read(objectsFolder, g.getBlobSha1("missing"))).isNull();
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testReadPackedObjects() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            File objectsFolder = writeRepository(folder);
+            GitPackWriter writer = new GitPackWriter(g);
+            writer.add(createThirdCommit());
+            writer.add(createThirdTree());
+            writer.write(new File(objectsFolder, "pack"));
+
+            GitCommit commit = (GitCommit) g.read(objectsFolder, g.getSha(createThirdCommit()));
+            assertThat(commit.getParentCommits()).containsExactly("79c3366a520f9766bd4f80071370d6639dcdeadd");
+            assertThat(commit.getAuthoringTimezone()).isEqualTo("GMT+0200");
+            assertThat(g.binaryToHex(g.getSha(commit))).isEqualTo("6624283d61c0271418784d69d034ebb0be59ae3d");
+            assertThat(g.read(objectsFolder, g.hexToBinary(commit.getTree()))).isInstanceOf(GitTreeEntry.class);
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testObjectCacheEviction() {
+        GitLruObjectCache cache = new GitLruObjectCache(300, 1000);
+        byte[] tree = g.getTreeSha(createMergeTree());
+        byte[] blob1 = g.getBlobSha1("1");
+        byte[] blob2 = g.getBlobSha1("2");
+        byte[] blob3 = g.getBlobSha1("3");
+        cache.put(tree, new GitRawObject(GitObjectType.TREE, new byte[66]));
+        cache.put(blob1, new GitRawObject(GitObjectType.BLOB, new byte[300]));
+        cache.put(blob2, new GitRawObject(GitObjectType.BLOB, new byte[300]));
+        assertThat(cache.get(blob1)).isNotNull();
+        cache.put(blob3, new GitRawObject(GitObjectType.BLOB, new byte[300]));
+        cache.put(g.getBlobSha1("4"), new GitRawObject(GitObjectType.BLOB, new byte[5000]));
+
+        assertThat(cache.get(tree)).isNotNull();
+        assertThat(cache.get(blob1)).isNotNull();
+        assertThat(cache.get(blob2)).isNull();
+        assertThat(cache.get(blob3)).isNotNull();
+        assertThat(cache.get(g.getBlobSha1("4"))).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(4);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getSmallObjectBytes()).isEqualTo(66 + 96);
+        assertThat(cache.getBlobBytes()).isEqualTo(2 * (300 + 96));
+    }
+
+    @Test
+    public void testCheckoutThroughObjectCache() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        Git cached = new Git();
+        GitLruObjectCache cache = new GitLruObjectCache(1 << 20, 1 << 20);
+        cached.setCache(cache);
+        try {
+            writeRepository(folder,
+                    new GitBlob("Hello World!\nHello Developer!\n\n"),
+                    new GitBlob("Hello World!\nHello Master!\n\n"));
+            cached.checkout(createNestedTree(), folder, folder.resolve("first"));
+            cached.checkout(createNestedTree(), folder, folder.resolve("second"), 2);
+            assertThat(cache.getMissCount()).isEqualTo(2);
+            assertThat(cache.getHitCount()).isEqualTo(6);
+            assertThat(new String(Files.readAllBytes(folder.resolve("second/sub/pippo")), "utf-8"))
+                    .isEqualTo("Hello World!\nHello Developer!\n\n");
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testTreeIndexRehashesOnlyDirtyPath() {
+        GitTreeIndex index = new GitTreeIndex(g, createNestedTree());
+        assertThat(index.getRootSha()).isEqualTo(g.getTreeSha(createNestedTree()));
+        assertThat(index.getLastHashedCount()).isEqualTo(1);
+
+        index.put("sub/pippo", "100644", g.getBlobSha1("Hello World!\nHello Developer!\n\n"));
+        assertThat(index.getRootSha()).isEqualTo(g.getTreeSha(createNestedTree()));
+        assertThat(index.getLastHashedCount()).isEqualTo(0);
+
+        index.put("sub/pippo", "100644", g.getBlobSha1("Hello World!\n\n"));
+        index.put("pluto", "100644", g.getBlobSha1("Hello World!\n\n"));
+        List<GitTreeEntry> expected = new ArrayList<>(createSecondTree().getObjects());
+        expected.add(new GitTreeEntry("40000", "sub", g.getTreeSha(createFourthTree()), createFourthTree().getObjects()));
+        expected.set(0, createFileEntry("pippo", "Hello World!\nHello Developer!\n\n"));
+        assertThat(index.getRootSha(4)).isEqualTo(g.getTreeSha(new GitTreeEntry(expected)));
+        assertThat(index.getLastHashedCount()).isEqualTo(2);
+        assertThat(index.getSha("sub")).isEqualTo(g.getTreeSha(createFourthTree()));
+        assertThat(g.getTreeSha(index.toTree())).isEqualTo(g.getTreeSha(new GitTreeEntry(expected)));
+    }
+
+    @Test
+    public void testTreeIndexAddAndRemoveDirectories() {
+        GitTreeIndex index = new GitTreeIndex(g, createMergeTree());
+        byte[] before = index.getRootSha();
+        index.put("a/b/c", "100644", g.getBlobSha1("c"));
+        index.put("a.txt", "100644", g.getBlobSha1("a"));
+        GitTreeEntry tree = index.toTree();
+        assertThat(tree.getObjects()).extracting(GitTreeEntry::getName).containsExactly("a.txt", "a", "pippo", "pluto");
+        assertThat(tree.getObjects().get(1).getObjects().get(0).getObjects().get(0).getName()).isEqualTo("c");
+        assertThat(index.getLastHashedCount()).isEqualTo(3);
+
+        assertThat(index.remove("a/b/missing")).isFalse();
+        assertThat(index.remove("a/b/c")).isTrue();
+        assertThat(index.remove("a.txt")).isTrue();
+        assertThat(index.getRootSha()).isEqualTo(before);
+        assertThat(index.getSha("a")).isNull();
+        assertThatThrownBy(() -> index.put("a//b", "100644", before))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid path a//b");
+    }
+
+    private GitTreeEntry createNestedTree() {
+        GitTreeEntry merge = createMergeTree();
+        List<GitTreeEntry> objects = new ArrayList<>(createMergeTree().getObjects());
+        objects.add(new GitTreeEntry("40000", "sub", g.getTreeSha(merge), merge.getObjects()));
+        return new GitTreeEntry(objects);
+    }
+
+    private File writeRepository(Path folder, GitObject... objects) throws IOException {
+        File objectsFolder = Paths.get(folder.toString(), ".git", "objects").toFile();
+        objectsFolder.mkdirs();
+        for (GitObject object : objects) {
+            g.serializeGitObjectToFile(objectsFolder, object);
+        }
+        return objectsFolder;
+    }
+
+    @Test
+    public void testSerializeSkipsExistingObjects() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            GitBlob blob = new GitBlob("Hello World!\n\n");
+            File objectsFolder = writeRepository(folder, blob);
+            String hex = g.binaryToHex(g.getSha(blob));
+            File object = Paths.get(objectsFolder.toString(), hex.substring(0, 2), hex.substring(2)).toFile();
+            assertThat(object.setLastModified(1000)).isTrue();
+            g.serializeGitObjectToFile(objectsFolder, blob);
+            assertThat(object.lastModified()).isEqualTo(1000);
+            assertThat(g.has(objectsFolder, g.getSha(blob))).isTrue();
+            assertThat(objectsFolder.list()).containsExactly(hex.substring(0, 2));
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testObjectWriterDurabilityModes() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            for (GitDurability durability : GitDurability.values()) {
+                File objectsFolder = Paths.get(folder.toString(), durability.name()).toFile();
+                objectsFolder.mkdirs();
+                List<byte[]> shas = new ArrayList<>();
+                try (GitObjectWriter writer = new GitObjectWriter(g, objectsFolder)) {
+                    writer.setDurability(durability);
+                    writer.setBatchSize(7);
+                    for (int i = 0; i < 20; i++) {
+                        shas.add(writer.write(new GitBlob("blob " + i + "\n")));
+                    }
+                    byte[] large = new byte[200_000];
+                    new Random(1).nextBytes(large);
+                    shas.add(writer.write(new GitBlob(new ByteArrayInputStream(large), large.length)));
+                    assertThat(writer.write(new GitBlob("blob 3\n"))).isEqualTo(shas.get(3));
+                    assertThat(writer.write(new GitBlob(new ByteArrayInputStream(large), large.length))).isEqualTo(shas.get(20));
+                    shas.add(writer.write(createMergeTree()));
+                    assertThat(writer.getSkippedCount()).isEqualTo(2);
+                }
+                for (int i = 0; i < 20; i++) {
+                    assertThat(((GitBlob) g.read(objectsFolder, shas.get(i))).getContent()).isEqualTo("blob " + i + "\n");
+                }
+                assertThat(g.read(objectsFolder, shas.get(20))).isInstanceOf(GitBlob.class);
+                assertThat(g.read(objectsFolder, shas.get(21))).isInstanceOf(GitTreeEntry.class);
+                assertThat(objectsFolder.list((dir, name) -> name.startsWith("tmp_obj_"))).isEmpty();
+            }
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testObjectWriterRetriesFailedWrite() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            File objectsFolder = new File(folder.toFile(), "objects");
+            GitObjectWriter writer = new GitObjectWriter(g, objectsFolder);
+            assertThatThrownBy(() -> writer.write(new GitBlob("retry\n"))).isInstanceOf(IOException.class);
+            objectsFolder.mkdirs();
+            byte[] sha = writer.write(new GitBlob("retry\n"));
+            assertThat(g.has(objectsFolder, sha)).isTrue();
+            assertThat(writer.getSkippedCount()).isEqualTo(0);
+            assertThat(writer.getWrittenCount()).isEqualTo(1);
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testObjectWriterBatchIsVisibleAfterFlush() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            File objectsFolder = writeRepository(folder);
+            GitObjectWriter writer = new GitObjectWriter(g, objectsFolder);
+            writer.setDurability(GitDurability.BATCH);
+            byte[] sha = writer.write(new GitBlob("pending\n"));
+            assertThat(g.has(objectsFolder, sha)).isFalse();
+            writer.flush();
+            assertThat(g.has(objectsFolder, sha)).isTrue();
+            assertThat(writer.getWrittenCount()).isEqualTo(1);
+            writer.close();
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testCompressIntoCallerBuffer() throws Exception {
+        byte[] input = "Hello World!\nHello Master!\n\n".getBytes("utf-8");
+        byte[] out = new byte[3 + Git.compressBound(input.length)];
+        int n = g.compress(input, 0, input.length, out, 3);
+        assertThat(Arrays.copyOfRange(out, 3, 3 + n)).isEqualTo(g.compress(input));
+        Inflater inflater = new Inflater();
+        inflater.setInput(out, 3, n);
+        byte[] result = new byte[input.length];
+        assertThat(inflater.inflate(result)).isEqualTo(input.length);
+        assertThat(inflater.finished()).isTrue();
+        inflater.end();
+        assertThat(result).isEqualTo(input);
+        assertThatThrownBy(() -> g.compress(input, 0, input.length, new byte[4], 0))
+                .isInstanceOf(GitException.class)
+                .hasMessageStartingWith("output buffer too small");
+    }
+
+    @Test
+    public void testCompressionSettings() throws Exception {
+        Git git = new Git();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("Hello World! ").append(i % 10).append('\n');
+        }
+        byte[] input = sb.toString().getBytes("utf-8");
+        int defaultLength = git.compress(input).length;
+        git.setCompressionLevel(Deflater.NO_COMPRESSION);
+        assertThat(git.compress(input).length).isGreaterThan(input.length);
+        git.setCompressionLevel(Deflater.BEST_COMPRESSION);
+        git.setCompressionStrategy(Deflater.FILTERED);
+        assertThat(git.compress(input).length).isLessThanOrEqualTo(defaultLength);
+        assertThatThrownBy(() -> git.setCompressionLevel(10))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid compression level 10");
+        assertThatThrownBy(() -> git.setCompressionStrategy(7))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid compression strategy 7");
+        for (int i = 0; i < 100; i++) {
+            git.compress(input);
+        }
+        assertThat(git.getCreatedDeflaterCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStoreCompressedBlobs() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            ByteArrayOutputStream gz = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(gz)) {
+                for (int i = 0; i < 10000; i++) {
+                    out.write(("line " + i + "\n").getBytes("utf-8"));
+                }
+            }
+            byte[] data = gz.toByteArray();
+            Git git = new Git();
+            git.setStoreCompressedBlobs(true);
+            File objectsFolder = Paths.get(folder.toString(), "objects").toFile();
+            objectsFolder.mkdirs();
+            byte[] sha;
+            try (GitObjectWriter writer = new GitObjectWriter(git, objectsFolder)) {
+                sha = writer.write(new GitBlob(data));
+            }
+            String hex = git.binaryToHex(sha);
+            File object = Paths.get(objectsFolder.toString(), hex.substring(0, 2), hex.substring(2)).toFile();
+            assertThat(object.length()).isGreaterThan(data.length);
+            assertThat(((GitBlob) git.read(objectsFolder, sha)).getData()).isEqualTo(data);
+            assertThat(Git.isCompressed(data, 0, data.length)).isTrue();
+            assertThat(Git.isCompressed("Hello".getBytes("utf-8"), 0, 5)).isFalse();
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testParallelCheckoutMatchesSerialCheckout() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            writeRepository(folder,
+                    new GitBlob("Hello World!\nHello Developer!\n\n"),
+                    new GitBlob("Hello World!\nHello Master!\n\n"));
+            Path serial = Paths.get(folder.toString(), "serial");
+            Path parallel = Paths.get(folder.toString(), "parallel");
+            g.checkout(createNestedTree(), folder, serial);
+            g.checkout(createNestedTree(), folder, parallel, 4);
+            for (String name : Arrays.asList("pippo", "pluto", "sub/pippo", "sub/pluto")) {
+                assertThat(Files.readAllBytes(parallel.resolve(name))).isEqualTo(Files.readAllBytes(serial.resolve(name)));
+            }
+            assertThat(new String(Files.readAllBytes(parallel.resolve("sub/pluto")), "utf-8"))
+                    .isEqualTo("Hello World!\nHello Master!\n\n");
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
+    @Test
+    public void testParallelCheckoutReportsEachFailure() throws Exception {
+        Path folder = Files.createTempDirectory("git4j");
+        try {
+            writeRepository(folder, new GitBlob("Hello World!\nHello Developer!\n\n"));
+            Path target = Paths.get(folder.toString(), "work");
+            assertThatThrownBy(() -> g.checkout(createNestedTree(), folder, target, 2))
+                    .isInstanceOfSatisfying(GitCheckoutException.class, e -> assertThat(e.getFailures().keySet())
+                            .containsExactly(target.resolve("pluto").toAbsolutePath(), target.resolve("sub/pluto").toAbsolutePath()));
+            assertThat(target.resolve("sub/pippo")).exists();
+        } finally {
+            deleteRecursively(folder.toFile());
+        }
+    }
+
     @Test
     public void testPseudoCloneAndCheckoutMaster() throws Exception {
 
@@ -315,6 +886,18 @@ public class GitTest {
         }
     }
 
+    private byte[] inflate(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new InflaterInputStream(new FileInputStream(file))) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
     private void deleteRecursively(File folder) throws IOException {
         if (!folder.exists()) {
             return;
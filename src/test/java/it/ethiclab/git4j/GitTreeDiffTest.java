@@ -0,0 +1,155 @@
+package it.ethiclab.git4j;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitTreeDiffTest {
+
+    private Git g = new Git();
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = GitFixtures.createFolder();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        GitFixtures.delete(folder);
+    }
+
+    private GitTreeEntry file(String name, String content) {
+        return new GitTreeEntry("100644", name, g.getBlobSha1(content));
+    }
+
+    private List<String> lines(List<GitChange> changes) {
+        List<String> lines = new ArrayList<>();
+        for (GitChange change : changes) {
+            lines.add(change.toString().replaceAll("^R[0-9]{3}", "R"));
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void testFourthTreeAgainstMergeTree() {
+        List<GitTreeEntry> fourth = new ArrayList<>();
+        fourth.add(file("pippo", "Hello World!\n\n"));
+        fourth.add(file("pluto", "Hello World!\nHello Master!\n\n"));
+        List<GitTreeEntry> merge = new ArrayList<>();
+        merge.add(file("pippo", "Hello World!\nHello Developer!\n\n"));
+        merge.add(file("pluto", "Hello World!\nHello Master!\n\n"));
+
+        List<GitChange> changes = new GitTreeDiff(g).diff(new GitTreeEntry(fourth), new GitTreeEntry(merge));
+        assertThat(changes).hasSize(1);
+        GitChange change = changes.get(0);
+        assertThat(change.getType()).isEqualTo(GitChangeType.MODIFY);
+        assertThat(change.getPath()).isEqualTo("pippo");
+        assertThat(change.getOldId()).isEqualTo(g.getBlobSha1("Hello World!\n\n"));
+        assertThat(change.getNewId()).isEqualTo(g.getBlobSha1("Hello World!\nHello Developer!\n\n"));
+        assertThat(change.toString()).isEqualTo("M\tpippo");
+        assertThat(new GitTreeDiff(g).diff(new GitTreeEntry(merge), null)).extracting(GitChange::toString)
+                .containsExactly("D\tpippo", "D\tpluto");
+    }
+
+    @Test
+    public void testPrunesIdenticalSubtrees() throws Exception {
+        GitArenaObjectStore store = new GitArenaObjectStore();
+        List<String> specs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 50; j++) {
+                specs.add("100644 dir" + i + "/sub/file" + j + " content " + i + " " + j + "\n");
+            }
+        }
+        byte[] a = GitFixtures.tree(g, store, specs.toArray(new String[0])).getSha1();
+        specs.set(7 * 50 + 3, "100644 dir7/sub/file3 changed\n");
+        byte[] b = GitFixtures.tree(g, store, specs.toArray(new String[0])).getSha1();
+
+        GitTreeDiff diff = new GitTreeDiff(g, store);
+        List<GitChange> changes = diff.diff(a, b);
+        assertThat(changes).extracting(GitChange::toString).containsExactly("M\tdir7/sub/file3");
+        assertThat(diff.getLastVisitedTreeCount()).isEqualTo(3);
+        assertThat(diff.diff(a, a)).isEmpty();
+        assertThat(diff.getLastVisitedTreeCount()).isEqualTo(0);
+        assertThat(diff.diff(null, a)).hasSize(2500);
+        assertThat(diff.getLastVisitedTreeCount()).isEqualTo(101);
+
+        assertThatThrownBy(() -> new GitTreeDiff(g).diff(a, b))
+                .isInstanceOf(GitException.class)
+                .hasMessage("missing tree " + g.binaryToHex(a));
+    }
+
+    @Test
+    public void testMatchesGitDiffTree() throws Exception {
+        File objects = folder.resolve(".git/objects").toFile();
+        objects.mkdirs();
+        GitLooseObjectStore store = new GitLooseObjectStore(g, objects);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("line number ").append(i).append(" of a file that is going to be renamed\n");
+        }
+        String original = text.toString();
+        String edited = original.replace("line number 20 ", "line number twenty ");
+        byte[] a = GitFixtures.tree(g, store,
+                "100644 pippo Hello World!\n\n",
+                "100644 pluto Hello World!\nHello Master!\n\n",
+                "100644 run.sh #!/bin/sh\n",
+                "100644 link a/b/c\n",
+                "100644 x x\n",
+                "100644 gone/deep/file gone\n",
+                "100644 a/moved exact\n",
+                "100644 a/old.txt " + original,
+                "100644 same/one 1\n",
+                "100644 same/two 2\n").getSha1();
+        byte[] b = GitFixtures.tree(g, store,
+                "100644 pippo Hello World!\nHello Developer!\n\n",
+                "100644 pluto Hello World!\nHello Master!\n\n",
+                "100755 run.sh #!/bin/sh\n",
+                "120000 link a/b/c",
+                "100644 x/y y\n",
+                "100644 added new\n",
+                "100644 b/moved exact\n",
+                "100644 b/new.txt " + edited,
+                "100644 same/one 1\n",
+                "100644 same/two 2\n").getSha1();
+        store.flush();
+        git("init", "-q");
+
+        GitTreeDiff diff = new GitTreeDiff(g, store);
+        String ha = g.binaryToHex(a);
+        String hb = g.binaryToHex(b);
+        List<String> expected = new ArrayList<>(Arrays.asList(git("diff-tree", "-r", "--no-renames", "--name-status", ha, hb).trim().split("\n")));
+        Collections.sort(expected);
+        assertThat(lines(diff.diff(a, b))).isEqualTo(expected);
+
+        diff.setDetectRenames(true);
+        List<GitChange> changes = diff.diff(a, b);
+        expected = new ArrayList<>(Arrays.asList(git("diff-tree", "-r", "-M", "--name-status", ha, hb).trim().replaceAll("(?m)^R[0-9]{3}", "R").split("\n")));
+        Collections.sort(expected);
+        assertThat(lines(changes)).isEqualTo(expected);
+        assertThat(changes).filteredOn(c -> c.getType() == GitChangeType.RENAME).extracting(GitChange::toString)
+                .containsExactlyInAnyOrder("R100\ta/moved\tb/moved", "R097\ta/old.txt\tb/new.txt");
+
+        diff.setRenameScore(99);
+        assertThat(lines(diff.diff(a, b))).contains("A\tb/new.txt", "D\ta/old.txt", "R\ta/moved\tb/moved");
+        assertThatThrownBy(() -> diff.setRenameScore(101))
+                .isInstanceOf(GitException.class)
+                .hasMessage("invalid rename score 101");
+    }
+
+    private String git(String... args) throws Exception {
+        return GitCli.git(folder, args);
+    }
+}